@@ -31,21 +31,21 @@ public abstract class AbstractProfile implements Profile {
 	private final Map<String, String> typeNameValueTypeMap = new HashMap<String, String>();
 
 	/**
-	 * Registers a value type keyed to the lowercase version of a type name.
+	 * Registers a value type keyed to the folded version of a type name.
 	 * @param typeName The type name for which a value type should be retrieved.
 	 * @param valueType The value type to associate with this type name.
 	 */
 	protected void registerValueType(final String typeName, final String valueType) {
-		typeNameValueTypeMap.put(typeName.toLowerCase(), valueType); //put the value type in the map, keyed to the lowercase version of the type name		
+		typeNameValueTypeMap.put(Directory.foldName(typeName), valueType); //put the value type in the map, keyed to the folded version of the type name		
 	}
 
 	/**
-	 * Returns a value type keyed to the lowercase version of a type name.
+	 * Returns a value type keyed to the folded version of a type name.
 	 * @param typeName The type name for which a value type should be associated.
 	 * @return The value type associated with this type name, or <code>null</code> if no value type has been registered with the type name.
 	 */
 	protected String getValueType(final String typeName) {
-		return typeNameValueTypeMap.get(typeName.toLowerCase()); //get whatever value type we have associated with this type name, if any
+		return typeNameValueTypeMap.get(Directory.foldName(typeName)); //get whatever value type we have associated with this type name, if any
 	}
 
 	/**
@@ -0,0 +1,419 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static com.globalmentor.text.ABNF.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Objects.*;
+
+import com.globalmentor.io.*;
+import com.globalmentor.java.Characters;
+
+/**
+ * Lexer of content lines encoded in UTF-8, which locates lines and their components directly in the encoded bytes.
+ * <p>
+ * Because all content line delimiters are ASCII, no bytes are decoded until a string or value is actually requested, and then only the bytes of the requested
+ * component are decoded. Lines are unfolded by this lexer as specified in RFC 2425, by removing any CRLF followed by a space. Like {@link LineUnfoldReader},
+ * this lexer also converts the non-standard <code>CR+LINE_SEPARATOR</code> used by some producers to simply <code>LINE_SEPARATOR</code>. Lines that contain
+ * no folds are lexed in place in the source buffer; only folded lines are copied.
+ * </p>
+ * <p>
+ * Values are decoded as UTF-8 unless a {@value Directory#CHARSET_PARAM_NAME} parameter indicates another charset, as vCard 2.1 producers may do. The soft line
+ * breaks of vCard 2.1 quoted-printable values are removed like folds, and the escaped bytes are decoded directly from the unfolded line.
+ * </p>
+ * <p>
+ * Bytes are read from an input stream in blocks, or lexed directly from a byte buffer. Subclasses may provide other sources by overriding {@link #fill()}.
+ * Because bytes are read ahead, the underlying input stream should not be used by anything else after being given to this lexer.
+ * </p>
+ * @author Garret Wilson
+ */
+public class ByteContentLineLexer extends ContentLineLexer {
+
+	/** The UTF-8 encoding of {@link Characters#LINE_SEPARATOR_CHAR}, which some producers precede with CR. */
+	private static final byte[] LINE_SEPARATOR_BYTES = {(byte)0xE2, (byte)0x80, (byte)0xA8};
+
+	/** The input stream from which bytes are read, or <code>null</code> if the bytes are provided in a buffer. */
+	private final InputStream inputStream;
+
+	/** The buffer containing the source bytes. */
+	private ByteBuffer buffer;
+
+	/** @return The buffer containing the source bytes. */
+	protected ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/** The index of the next byte in the buffer not yet lexed. */
+	private int position;
+
+	/** @return The index of the next byte in the buffer not yet lexed. */
+	protected int getPosition() {
+		return position;
+	}
+
+	/** The index one past the last valid byte in the buffer. */
+	private int limit;
+
+	/** @return The index one past the last valid byte in the buffer. */
+	protected int getLimit() {
+		return limit;
+	}
+
+	/** The offset in the source of the first byte of the buffer. */
+	private long bufferOffset;
+
+	/**
+	 * Replaces the source buffer, such as when more data becomes available.
+	 * @param buffer The new buffer of source bytes.
+	 * @param position The index of the next byte in the buffer not yet lexed.
+	 * @param limit The index one past the last valid byte in the buffer.
+	 * @param offset The offset in the source of the first byte of the new buffer.
+	 */
+	protected void setBuffer(final ByteBuffer buffer, final int position, final int limit, final long offset) {
+		this.buffer = requireNonNull(buffer);
+		this.position = position;
+		this.limit = limit;
+		this.bufferOffset = offset;
+	}
+
+	/** The offset in the source of the beginning of the current line, or -1 if no line has been lexed. */
+	private long lineOffset = -1;
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns the offset in bytes. For a lexer of a byte buffer, the offset is relative to the original position of the buffer.
+	 * </p>
+	 */
+	@Override
+	public long getLineOffset() {
+		return lineOffset;
+	}
+
+	/** Whether the end of the data has been reached. */
+	private boolean end = false;
+
+	/** The buffer containing the current line; either the source buffer or the unfold buffer. */
+	private ByteBuffer lineBuffer;
+
+	/** The buffer used for unfolding lines; created as needed. */
+	private ByteBuffer unfoldBuffer = null;
+
+	/** The buffer of decoded value characters; reused for each line. */
+	private CharBuffer valueChars = CharBuffer.allocate(256);
+
+	/** Whether the value of the current line has been decoded into the value characters. */
+	private boolean valueDecoded = false;
+
+	/**
+	 * Input stream constructor with a default buffer size.
+	 * @param inputStream The input stream from which UTF-8 content lines will be read.
+	 * @throws NullPointerException if the given input stream is <code>null</code>.
+	 */
+	public ByteContentLineLexer(final InputStream inputStream) {
+		this(inputStream, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Input stream and initial buffer size constructor. The buffer will grow as needed to hold the longest content line.
+	 * @param inputStream The input stream from which UTF-8 content lines will be read.
+	 * @param bufferSize The initial size of the buffer.
+	 * @throws NullPointerException if the given input stream is <code>null</code>.
+	 * @throws IllegalArgumentException if the given buffer size is not positive.
+	 */
+	public ByteContentLineLexer(final InputStream inputStream, final int bufferSize) {
+		this.inputStream = requireNonNull(inputStream);
+		if(bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+		}
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.position = 0;
+		this.limit = 0;
+		this.bufferOffset = 0;
+	}
+
+	/**
+	 * Byte buffer constructor. The bytes from the position to the limit of the given buffer will be lexed without copying; the buffer itself will not be
+	 * modified.
+	 * @param buffer The buffer containing UTF-8 content lines.
+	 * @throws NullPointerException if the given buffer is <code>null</code>.
+	 */
+	public ByteContentLineLexer(final ByteBuffer buffer) {
+		this.inputStream = null;
+		this.buffer = requireNonNull(buffer);
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+		this.bufferOffset = -buffer.position(); //report offsets relative to the first byte lexed
+	}
+
+	@Override
+	public boolean nextLine() throws IOException, ParseIOException {
+		resetLine();
+		valueDecoded = false;
+		boolean folded = false; //whether the line has folds that must be removed
+		int offset = 0; //the offset from the current position of the next byte to examine
+		int cr = -1;
+		while(true) { //find the CR ending the line, unfolding as we go
+			if(position + offset + LINE_SEPARATOR_BYTES.length >= limit && !end) { //make sure there are enough bytes to see what follows a CR
+				if(!fill()) {
+					end = true;
+				}
+				continue;
+			}
+			final int index = position + offset;
+			if(index >= limit) { //if we ran out of data without finding a CR
+				break;
+			}
+			if(buffer.get(index) == CR) {
+				if(index + 2 < limit && buffer.get(index + 1) == LF && buffer.get(index + 2) == SP) { //CRLF+SP
+					folded = true;
+					offset += 3;
+					continue;
+				}
+				if(index + LINE_SEPARATOR_BYTES.length < limit && buffer.get(index + 1) == LINE_SEPARATOR_BYTES[0] && buffer.get(index + 2) == LINE_SEPARATOR_BYTES[1]
+						&& buffer.get(index + 3) == LINE_SEPARATOR_BYTES[2]) { //CR+LINE_SEPARATOR (an oddity of Nokia VCards)
+					folded = true;
+					offset += 1;
+					continue;
+				}
+				if(index + 1 < limit && buffer.get(index + 1) == LF) {
+					lineBuffer = buffer; //the line is examined in the source buffer
+					if(isSoftLineBreak(position, index)) { //"=" CRLF in a quoted-printable value (vCard 2.1)
+						folded = true;
+						offset += 2;
+						continue;
+					}
+				}
+				cr = index;
+				break;
+			}
+			final int searchEnd = end ? limit : limit - LINE_SEPARATOR_BYTES.length; //stop where more data would be needed
+			final int next = indexOfCR(buffer, index + 1, searchEnd);
+			offset = (next >= 0 ? next : Math.max(searchEnd, index + 1)) - position;
+		}
+		lineBuffer = buffer;
+		lineOffset = bufferOffset + position;
+		if(cr < 0) { //if there was no CR before the end of the data
+			if(position == limit) { //if there are no bytes left
+				return false;
+			}
+			beginLine(position, limit);
+			position = limit; //consume the rest of the data
+			if(!isWhitespace(getLineStart(), getLineEnd())) { //text without a CRLF is not a complete content line
+				throw new ParseEOFException("Content line is missing its ending CRLF.", getLineIndex(), getLineEnd() - getLineStart());
+			}
+			setBlank();
+			return true;
+		}
+		beginLine(position, cr);
+		final int lineStart = position;
+		position = cr + 1; //consume the line up to the CR, in case of errors
+		if(cr + 1 == limit) { //if the data ended after the CR
+			throw new ParseEOFException("Content line is missing its ending LF.", getLineIndex(), cr - lineStart);
+		}
+		final byte next = buffer.get(cr + 1);
+		if(next != LF) { //every CR must be followed by LF
+			throw new ParseUnexpectedDataException(Characters.of(LF), (char)(next & 0xFF), getLineIndex(), cr + 1 - lineStart);
+		}
+		position = cr + 2; //consume the CRLF
+		if(folded) { //lex a copy of the line with the folds removed
+			if(skipIfUnwanted()) { //don't bother unfolding a line that won't be lexed
+				return true;
+			}
+			final int unfoldedLength = unfold(lineStart, cr + 2);
+			lineBuffer = unfoldBuffer;
+			beginLine(0, unfoldedLength - CRLF.length());
+		}
+		lex();
+		return true;
+	}
+
+	/**
+	 * Determines whether a CR in the source buffer is a quoted-printable soft line break, before the line containing it has been located by {@link #nextLine()}.
+	 * This allows the end of a content line to be found in data that has not yet been lexed.
+	 * @param start The index in the source buffer of the beginning of the content line.
+	 * @param cr The index in the source buffer of a CR within or ending the content line.
+	 * @return <code>true</code> if the CR begins a soft line break.
+	 * @see #isSoftLineBreak(int, int)
+	 */
+	protected boolean isSourceSoftLineBreak(final int start, final int cr) {
+		lineBuffer = buffer;
+		return isSoftLineBreak(start, cr);
+	}
+
+	/**
+	 * Copies a range of the source buffer to the unfold buffer, removing all CRLF+SP sequences and quoted-printable soft line breaks, as well as CR before a line
+	 * separator.
+	 * @param start The beginning of the range, which must start a line.
+	 * @param end The end of the range, which must end with the CRLF that ends the line.
+	 * @return The number of bytes in the unfold buffer.
+	 */
+	private int unfold(final int start, final int end) {
+		if(unfoldBuffer == null || unfoldBuffer.capacity() < end - start) {
+			unfoldBuffer = ByteBuffer.allocate(Math.max(end - start, DEFAULT_BUFFER_SIZE));
+		}
+		final byte[] unfolded = unfoldBuffer.array();
+		final ByteBuffer source = buffer.duplicate(); //copy runs using relative bulk gets, leaving the source buffer untouched
+		final int lastCR = end - CRLF.length();
+		int length = 0;
+		int runStart = start;
+		int cr = start;
+		while((cr = indexOfCR(buffer, cr, lastCR)) >= 0) { //any CR before the ending CR is either a fold or precedes a line separator
+			source.limit(cr).position(runStart);
+			final int runLength = cr - runStart;
+			source.get(unfolded, length, runLength);
+			length += runLength;
+			if(buffer.get(cr + 1) != LF) { //skip only the CR before a line separator
+				cr += 1;
+			} else if(buffer.get(cr + 2) == SP) { //skip CRLF+SP entirely
+				cr += 3;
+			} else { //remove a quoted-printable soft line break, including the '=' already copied
+				--length;
+				cr += 2;
+			}
+			runStart = cr;
+		}
+		source.limit(end).position(runStart);
+		final int runLength = end - runStart;
+		source.get(unfolded, length, runLength);
+		return length + runLength;
+	}
+
+	/** A long word with every byte set to CR. */
+	private static final long CR_WORD = 0x0101010101010101L * CR;
+
+	/** A long word with the high bit of every byte cleared. */
+	private static final long LOW_BITS_WORD = 0x7F7F7F7F7F7F7F7FL;
+
+	/**
+	 * Finds the next CR in a range of a buffer. The buffer is examined a long word at a time, locating any CR byte in the word using arithmetic on all its bytes at
+	 * once; only the bytes at the end of the range not filling a word are examined individually.
+	 * @param buffer The buffer to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index one past the last byte to search.
+	 * @return The index of the next CR, or -1 if there is no CR in the range.
+	 */
+	static int indexOfCR(final ByteBuffer buffer, int start, final int end) {
+		final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+		for(; start + Long.BYTES <= end; start += Long.BYTES) {
+			final long word = buffer.getLong(start) ^ CR_WORD; //CR bytes become zero
+			final long crBits = ~(((word & LOW_BITS_WORD) + LOW_BITS_WORD) | word | LOW_BITS_WORD); //the high bit of each zero byte, and nothing else
+			if(crBits != 0) {
+				return start + ((bigEndian ? Long.numberOfLeadingZeros(crBits) : Long.numberOfTrailingZeros(crBits)) >>> 3);
+			}
+		}
+		for(; start < end; ++start) {
+			if(buffer.get(start) == CR) {
+				return start;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes more bytes available after the current limit, keeping all bytes from the current position. The buffer may be replaced, and the position and limit
+	 * may change.
+	 * <p>
+	 * This implementation reads from the input stream, if any, first moving unlexed bytes to the beginning of the buffer and growing the buffer if it is full.
+	 * </p>
+	 * @return <code>true</code> if more bytes were made available, or <code>false</code> if the end of the data has been reached.
+	 * @throws IOException if there is an error reading the data.
+	 * @see #setBuffer(ByteBuffer, int, int, long)
+	 */
+	protected boolean fill() throws IOException {
+		if(inputStream == null) {
+			return false;
+		}
+		byte[] bytes = buffer.array();
+		if(position > 0) { //discard lexed bytes
+			System.arraycopy(bytes, position, bytes, 0, limit - position);
+			bufferOffset += position;
+			limit -= position;
+			position = 0;
+		}
+		if(limit == bytes.length) { //make room for a longer line
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			buffer = ByteBuffer.wrap(bytes);
+		}
+		final int count = inputStream.read(bytes, limit, bytes.length - limit);
+		if(count < 0) {
+			return false;
+		}
+		limit += count;
+		return true;
+	}
+
+	@Override
+	protected char charAt(final int index) {
+		return (char)(lineBuffer.get(index) & 0xFF);
+	}
+
+	@Override
+	protected String createString(final int start, final int end) {
+		final int length = end - start;
+		if(lineBuffer.hasArray()) {
+			return new String(lineBuffer.array(), lineBuffer.arrayOffset() + start, length, UTF_8);
+		}
+		final byte[] bytes = new byte[length];
+		for(int i = 0; i < length; ++i) {
+			bytes[i] = lineBuffer.get(start + i);
+		}
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This version returns the source bytes of the characters, which are already encoded in the charset of the value.
+	 * </p>
+	 */
+	@Override
+	protected ByteBuffer encodeLiteral(final int start, final int end, final CharsetDecoder decoder) {
+		final ByteBuffer literalBytes = lineBuffer.duplicate();
+		literalBytes.limit(end).position(start);
+		return literalBytes;
+	}
+
+	@Override
+	protected CharBuffer decodeValue() {
+		if(isQuotedPrintable()) {
+			return decodeQuotedPrintableValue();
+		}
+		if(!valueDecoded) {
+			final CharsetDecoder decoder = getValueDecoder();
+			final ByteBuffer valueBytes = lineBuffer.duplicate();
+			valueBytes.limit(getLineEnd() + CRLF.length()).position(getValueStart());
+			final int capacity = (int)Math.ceil(valueBytes.remaining() * (double)decoder.maxCharsPerByte()); //UTF-8 never decodes to more characters than bytes
+			if(valueChars.capacity() < capacity) {
+				valueChars = CharBuffer.allocate(Math.max(capacity, valueChars.capacity() * 2));
+			}
+			valueChars.clear();
+			decoder.reset();
+			decoder.decode(valueBytes, valueChars, true);
+			decoder.flush(valueChars);
+			valueChars.flip();
+			valueDecoded = true;
+		}
+		return valueChars;
+	}
+
+}
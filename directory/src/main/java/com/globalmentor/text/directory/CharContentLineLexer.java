@@ -0,0 +1,206 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.util.*;
+
+import static com.globalmentor.text.ABNF.*;
+import static java.util.Objects.*;
+
+import com.globalmentor.io.*;
+import com.globalmentor.java.Characters;
+
+/**
+ * Lexer of content lines read as characters from a reader.
+ * <p>
+ * Characters are read from the underlying reader in blocks into a character buffer, which grows as needed to hold the longest content line. The reader is
+ * expected to have already unfolded any folded lines. Because characters are read ahead, the underlying reader should not be used by anything else after
+ * being given to this lexer.
+ * </p>
+ * @author Garret Wilson
+ * @see LineUnfoldReader
+ */
+public class CharContentLineLexer extends ContentLineLexer {
+
+	/** The reader from which characters are read. */
+	private final Reader reader;
+
+	/** @return The reader from which characters are read. */
+	protected Reader getReader() {
+		return reader;
+	}
+
+	/** The buffer of characters read, containing the current content line. */
+	private char[] buffer;
+
+	/** @return The buffer containing the current content line; only valid until the next line is requested. */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/** The index of the next character in the buffer not yet lexed. */
+	private int position = 0;
+
+	/** The index one past the last valid character in the buffer. */
+	private int limit = 0;
+
+	/** The offset in the reader of the first character of the buffer. */
+	private long bufferOffset = 0;
+
+	/** The offset in the reader of the beginning of the current line, or -1 if no line has been lexed. */
+	private long lineOffset = -1;
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns the offset in characters.
+	 * </p>
+	 */
+	@Override
+	public long getLineOffset() {
+		return lineOffset;
+	}
+
+	/** Whether the end of the reader has been reached. */
+	private boolean end = false;
+
+	/**
+	 * Reader constructor with a default buffer size.
+	 * @param reader The reader from which unfolded content lines will be read.
+	 * @throws NullPointerException if the given reader is <code>null</code>.
+	 */
+	public CharContentLineLexer(final Reader reader) {
+		this(reader, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Reader and initial buffer size constructor.
+	 * @param reader The reader from which unfolded content lines will be read.
+	 * @param bufferSize The initial size of the buffer.
+	 * @throws NullPointerException if the given reader is <code>null</code>.
+	 * @throws IllegalArgumentException if the given buffer size is not positive.
+	 */
+	public CharContentLineLexer(final Reader reader, final int bufferSize) {
+		this.reader = requireNonNull(reader);
+		if(bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+		}
+		this.buffer = new char[bufferSize];
+	}
+
+	@Override
+	public boolean nextLine() throws IOException, ParseIOException {
+		resetLine();
+		int scanOffset = 0; //the offset from the current position already searched for CR
+		int removedCount = 0; //the number of characters of soft line breaks removed from the buffer
+		int cr;
+		while(true) { //find the CR, making sure its LF is loaded as well
+			cr = indexOf(CR, position + scanOffset, limit);
+			if(cr >= 0 && cr + 1 < limit && buffer[cr + 1] == LF && isSoftLineBreak(position, cr)) { //remove any quoted-printable soft line break (vCard 2.1) in place
+				System.arraycopy(buffer, cr + 2, buffer, cr - 1, limit - (cr + 2));
+				limit -= 3;
+				removedCount += 3;
+				scanOffset = cr - 1 - position;
+				continue;
+			}
+			if((cr >= 0 && cr + 1 < limit) || end) {
+				break;
+			}
+			scanOffset = (cr >= 0 ? cr : limit) - position; //don't search the same characters again
+			fill();
+		}
+		lineOffset = bufferOffset + position;
+		bufferOffset += removedCount; //the characters after the removed soft line breaks are that much further along in the reader
+		if(cr < 0) { //if there was no CR before the end of the data
+			if(position == limit) { //if there are no characters left
+				return false;
+			}
+			beginLine(position, limit);
+			position = limit; //consume the rest of the data
+			if(!isWhitespace(getLineStart(), getLineEnd())) { //text without a CRLF is not a complete content line
+				throw new ParseEOFException("Content line is missing its ending CRLF.", getLineIndex(), getLineEnd() - getLineStart());
+			}
+			setBlank();
+			return true;
+		}
+		beginLine(position, cr);
+		position = cr + 1; //consume the line up to the CR, in case of errors
+		if(cr + 1 == limit) { //if the data ended after the CR
+			throw new ParseEOFException("Content line is missing its ending LF.", getLineIndex(), cr - getLineStart());
+		}
+		if(buffer[cr + 1] != LF) { //every CR must be followed by LF
+			throw new ParseUnexpectedDataException(Characters.of(LF), buffer[cr + 1], getLineIndex(), cr + 1 - getLineStart());
+		}
+		position = cr + 2; //consume the CRLF
+		lex();
+		return true;
+	}
+
+	@Override
+	protected char charAt(final int index) {
+		return buffer[index];
+	}
+
+	@Override
+	protected int indexOf(final char c, final int start, final int end) {
+		for(int i = start; i < end; ++i) {
+			if(buffer[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	protected String createString(final int start, final int end) {
+		return new String(buffer, start, end - start);
+	}
+
+	@Override
+	protected CharBuffer decodeValue() {
+		if(isQuotedPrintable()) {
+			return decodeQuotedPrintableValue();
+		}
+		final int valueStart = getValueStart();
+		return CharBuffer.wrap(buffer, valueStart, getLineEnd() + CRLF.length() - valueStart);
+	}
+
+	/**
+	 * Reads more characters into the buffer, first moving unlexed characters to the beginning of the buffer and growing the buffer if it is full.
+	 * @throws IOException if there is an error reading from the reader.
+	 */
+	private void fill() throws IOException {
+		if(position > 0) { //discard lexed characters
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			bufferOffset += position;
+			limit -= position;
+			position = 0;
+		}
+		if(limit == buffer.length) { //make room for a longer line
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		final int count = reader.read(buffer, limit, buffer.length - limit);
+		if(count < 0) {
+			end = true;
+		} else {
+			limit += count;
+		}
+	}
+
+}
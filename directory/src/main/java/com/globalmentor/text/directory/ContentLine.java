@@ -65,6 +65,8 @@ public void setGroup(final String group) {
 	private final List<NameValuePair<String, String>> paramList;
 
 	/**
+	 * Returns the list of parameters. The parameters of a content line created by a {@link DirectoryProcessor} are an immutable {@link ParamList} shared with
+	 * the other content lines created from the same line.
 	 * @return The list of parameters, each item of which is a <code>NameValuePair</code> with a name of type <code>String</code> and a value of type
 	 *         <code>String</code>.
 	 * @see NameValuePair
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+
+import com.globalmentor.io.*;
+
+/**
+ * Receives notification of the content lines of a directory of type <code>text/directory</code> as defined in <a
+ * href="https://www.ietf.org/rfc/rfc2425.txt">RFC 2425</a>, "A MIME Content-Type for Directory Information", as they are parsed.
+ * <p>
+ * The "begin:" content line of a profile block is reported after {@link #beginProfile(String)}, and the "end:" content line is reported before
+ * {@link #endProfile(String)}, so that each profile block encloses its own delimiting content lines.
+ * </p>
+ * @author Garret Wilson
+ * @see DirectoryProcessor#processContentLines(Reader, ContentLineHandler)
+ */
+@FunctionalInterface
+public interface ContentLineHandler {
+
+	/**
+	 * Called when a "begin:" content line starts a profile block.
+	 * @param profile The profile of the block.
+	 * @throws IOException Thrown if the handler cannot process the notification.
+	 */
+	public default void beginProfile(final String profile) throws IOException {
+	}
+
+	/**
+	 * Called for each content line, including "begin:" and "end:" content lines. If the parsed content line has multiple values, this method will be called
+	 * once for each value.
+	 * @param contentLine The content line parsed.
+	 * @throws IOException Thrown if the handler cannot process the content line.
+	 */
+	public void contentLine(final ContentLine contentLine) throws IOException;
+
+	/**
+	 * Called when an "end:" content line closes a profile block.
+	 * @param profile The profile of the block.
+	 * @throws IOException Thrown if the handler cannot process the notification.
+	 */
+	public default void endProfile(final String profile) throws IOException {
+	}
+
+	/**
+	 * Called when a content line cannot be parsed. If this method returns normally, processing continues with the next content line.
+	 * <p>
+	 * This default version rethrows the given exception, aborting processing.
+	 * </p>
+	 * @param parseIOException The exception describing the parsing error.
+	 * @throws IOException Thrown if processing should be aborted; usually the given exception itself.
+	 */
+	public default void error(final ParseIOException parseIOException) throws IOException {
+		throw parseIOException;
+	}
+
+}
@@ -0,0 +1,940 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static com.globalmentor.java.Conditions.*;
+import static com.globalmentor.text.ABNF.*;
+import static com.globalmentor.text.directory.Directory.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Objects.*;
+
+import com.globalmentor.io.*;
+import com.globalmentor.java.Characters;
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * Lexer that splits unfolded content lines of a directory of type <code>text/directory</code> into their components by scanning a buffer directly.
+ * <p>
+ * After each call to {@link #nextLine()}, the boundaries of the group, the name, each parameter name and value, and the value of the current line are
+ * available as offsets into the buffer of the current line. Strings are only created when explicitly requested. The offsets and the buffer contents are only
+ * valid until the next call to {@link #nextLine()}.
+ * </p>
+ * <p>
+ * Subclasses locate lines in their particular source and call {@link #lex()} to determine the components of each line. All delimiters of a content line are
+ * ASCII characters, so the buffer of a subclass may contain characters or the bytes of an ASCII-compatible encoding.
+ * </p>
+ * @author Garret Wilson
+ * @see CharContentLineLexer
+ * @see ByteContentLineLexer
+ */
+public abstract class ContentLineLexer {
+
+	/** The default initial size of a lexer buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/** The delimiters expected after a content line name. */
+	protected static final Characters NAME_DELIMITER_CHARACTERS = Characters.of(PARAM_SEPARATOR_CHAR, NAME_VALUE_SEPARATOR_CHAR);
+
+	/** The delimiters expected after a parameter name. */
+	private static final Characters PARAM_NAME_DELIMITER_CHARACTERS = Characters.of(PARAM_NAME_VALUE_SEPARATOR_CHAR, PARAM_SEPARATOR_CHAR,
+			NAME_VALUE_SEPARATOR_CHAR);
+
+	/** The delimiters expected after a parameter value. */
+	private static final Characters PARAM_VALUE_DELIMITER_CHARACTERS = Characters.of(PARAM_SEPARATOR_CHAR, PARAM_VALUE_SEPARATOR_CHAR,
+			NAME_VALUE_SEPARATOR_CHAR);
+
+	/** The folded name of the encoding parameter. */
+	private static final String FOLDED_ENCODING_PARAM_NAME = foldName(ENCODING_PARAM_NAME);
+
+	/** The folded name of the charset parameter. */
+	private static final String FOLDED_CHARSET_PARAM_NAME = foldName(CHARSET_PARAM_NAME);
+
+	/** The folded quoted-printable encoding type, which may also appear as a bare parameter. */
+	private static final String FOLDED_QUOTED_PRINTABLE_ENCODING_TYPE = foldName(QUOTED_PRINTABLE_ENCODING_TYPE);
+
+	/** The character that begins a quoted-printable escape sequence or soft line break. */
+	protected static final char QUOTED_PRINTABLE_ESCAPE_CHAR = '=';
+
+	/** The type names that are always lexed, because they delimit directories and profiles. */
+	private static final String[] STRUCTURAL_TYPE_NAMES = {BEGIN_TYPE, END_TYPE, PROFILE_TYPE};
+
+	/** The folded type names of the content lines to lex, or <code>null</code> if all content lines should be lexed. */
+	private String[] projection = null;
+
+	/**
+	 * Restricts the content lines lexed to those with the given type names. The parameters and values of any other content line are not lexed, and it is
+	 * reported as skipped. Content lines delimiting directories and profiles are always lexed.
+	 * @param typeNames The type names of the content lines to lex, which will be matched without regard to case, or <code>null</code> if all content lines
+	 *          should be lexed.
+	 * @see #isSkipped()
+	 */
+	public void setProjection(final Collection<String> typeNames) {
+		if(typeNames == null) {
+			projection = null;
+			return;
+		}
+		final Set<String> projectionSet = new LinkedHashSet<String>();
+		for(final String typeName : typeNames) {
+			projectionSet.add(foldName(typeName));
+		}
+		projectionSet.addAll(Arrays.asList(STRUCTURAL_TYPE_NAMES));
+		projection = projectionSet.toArray(new String[projectionSet.size()]);
+	}
+
+	/** The folded type names of the content lines not to lex, or <code>null</code> if no content lines are excluded. */
+	private String[] exclusion = null;
+
+	/**
+	 * Excludes content lines with the given type names from being lexed, such as those containing large binary values. The parameters and values of the
+	 * excluded content lines are not lexed, and they are reported as skipped. Content lines delimiting directories and profiles are never excluded.
+	 * @param typeNames The type names of the content lines not to lex, which will be matched without regard to case, or <code>null</code> if no content lines
+	 *          should be excluded.
+	 * @see #isSkipped()
+	 */
+	public void setExclusion(final Collection<String> typeNames) {
+		if(typeNames == null) {
+			exclusion = null;
+			return;
+		}
+		final Set<String> exclusionSet = new LinkedHashSet<String>();
+		for(final String typeName : typeNames) {
+			exclusionSet.add(foldName(typeName));
+		}
+		exclusionSet.removeAll(Arrays.asList(STRUCTURAL_TYPE_NAMES));
+		exclusion = exclusionSet.toArray(new String[exclusionSet.size()]);
+	}
+
+	/** The zero-based index of the current unfolded content line, or -1 if no line has been lexed. */
+	private long lineIndex = -1;
+
+	/** @return The zero-based index of the current unfolded content line, or -1 if no line has been lexed. */
+	public long getLineIndex() {
+		return lineIndex;
+	}
+
+	/**
+	 * Sets the index of the first content line to be lexed, such as when lexing a section of a larger file, so that errors report line numbers relative to the
+	 * whole file.
+	 * @param firstLineIndex The zero-based index of the first unfolded content line.
+	 * @throws IllegalArgumentException if the given line index is negative.
+	 * @throws IllegalStateException if a line has already been lexed.
+	 */
+	public void setFirstLineIndex(final long firstLineIndex) {
+		checkArgument(firstLineIndex >= 0, "Invalid first line index %d.", firstLineIndex);
+		checkState(lineIndex == -1, "Content lines have already been lexed.");
+		lineIndex = firstLineIndex - 1;
+	}
+
+	/**
+	 * Returns the offset in the source data of the beginning of the current content line, counted in the units of the source, such as bytes for an encoded
+	 * source. This version returns -1; subclasses that know the offset should override this method.
+	 * @return The offset in the source of the beginning of the current content line, or -1 if the offset is not known.
+	 */
+	public long getLineOffset() {
+		return -1;
+	}
+
+	/** The index in the buffer of the beginning of the current content line. */
+	private int lineStart = 0;
+
+	/** @return The index in the buffer of the beginning of the current content line. */
+	public int getLineStart() {
+		return lineStart;
+	}
+
+	/** The index in the buffer of the CR ending the current content line. */
+	private int lineEnd = 0;
+
+	/** @return The index in the buffer of the CR ending the current content line. */
+	public int getLineEnd() {
+		return lineEnd;
+	}
+
+	/** Whether the current content line contains only whitespace. */
+	private boolean blank = false;
+
+	/** @return Whether the current content line contains only whitespace, in which case it has no other components. */
+	public boolean isBlank() {
+		return blank;
+	}
+
+	/** Whether the current content line was skipped because of the projection or exclusion. */
+	private boolean skipped = false;
+
+	/**
+	 * @return Whether the current content line was not lexed because its type name is not in the projection or is in the exclusion, in which case none of its
+	 *         components are available.
+	 * @see #setProjection(Collection)
+	 * @see #setExclusion(Collection)
+	 */
+	public boolean isSkipped() {
+		return skipped;
+	}
+
+	/** The index in the buffer of the beginning of the group, or -1 if the current content line has no group. */
+	private int groupStart = -1;
+
+	/** @return The index in the buffer of the beginning of the group, or -1 if the current content line has no group. */
+	public int getGroupStart() {
+		return groupStart;
+	}
+
+	/** The index in the buffer one past the end of the group, or -1 if the current content line has no group. */
+	private int groupEnd = -1;
+
+	/** @return The index in the buffer one past the end of the group, or -1 if the current content line has no group. */
+	public int getGroupEnd() {
+		return groupEnd;
+	}
+
+	/** The index in the buffer of the beginning of the name. */
+	private int nameStart = 0;
+
+	/** @return The index in the buffer of the beginning of the name. */
+	public int getNameStart() {
+		return nameStart;
+	}
+
+	/** The index in the buffer one past the end of the name. */
+	private int nameEnd = 0;
+
+	/** @return The index in the buffer one past the end of the name. */
+	public int getNameEnd() {
+		return nameEnd;
+	}
+
+	/** The start and end of each parameter name and value, in that order; value offsets are -1 for a parameter with no value. */
+	private int[] paramOffsets = new int[4 * 8];
+
+	/** The number of parameter name/value pairs of the current content line. */
+	private int paramCount = 0;
+
+	/**
+	 * Returns the number of parameter name/value pairs of the current content line. A parameter with multiple values is reported as multiple pairs with the same
+	 * name.
+	 * @return The number of parameter name/value pairs.
+	 */
+	public int getParamCount() {
+		return paramCount;
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The index in the buffer of the beginning of the parameter name.
+	 */
+	public int getParamNameStart(final int index) {
+		return paramOffsets[checkParamIndex(index) * 4];
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The index in the buffer one past the end of the parameter name.
+	 */
+	public int getParamNameEnd(final int index) {
+		return paramOffsets[checkParamIndex(index) * 4 + 1];
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The index in the buffer of the beginning of the parameter value, excluding any quotes, or -1 if the parameter has no value.
+	 */
+	public int getParamValueStart(final int index) {
+		return paramOffsets[checkParamIndex(index) * 4 + 2];
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The index in the buffer one past the end of the parameter value, excluding any quotes, or -1 if the parameter has no value.
+	 */
+	public int getParamValueEnd(final int index) {
+		return paramOffsets[checkParamIndex(index) * 4 + 3];
+	}
+
+	/** The index of the parameter indicating quoted-printable encoding, or -1 if the value of the current content line is not quoted-printable. */
+	private int quotedPrintableParamIndex = -1;
+
+	/**
+	 * Indicates whether the value of the current content line is encoded as quoted-printable, as is done by vCard 2.1 producers. Such a value will be decoded
+	 * before being provided to value factories, using the charset of any {@value Directory#CHARSET_PARAM_NAME} parameter, and any soft line breaks will already
+	 * have been removed when the content line was located.
+	 * @return <code>true</code> if the value of the current content line is quoted-printable.
+	 */
+	public boolean isQuotedPrintable() {
+		return quotedPrintableParamIndex >= 0;
+	}
+
+	/** The index of the {@value Directory#CHARSET_PARAM_NAME} parameter, or -1 if the current content line has none. */
+	private int charsetParamIndex = -1;
+
+	/** The index in the buffer of the beginning of the value. */
+	private int valueStart = 0;
+
+	/** @return The index in the buffer of the beginning of the value. */
+	public int getValueStart() {
+		return valueStart;
+	}
+
+	/** @return The index in the buffer one past the end of the value; the same as the end of the line. */
+	public int getValueEnd() {
+		return lineEnd;
+	}
+
+	/**
+	 * Lexes the next content line. If there is an error in the content line, the line will nevertheless have been consumed before the error is reported, so
+	 * that lexing may continue with the following line.
+	 * @return <code>true</code> if a content line was lexed, or <code>false</code> if the end of the data was reached.
+	 * @throws IOException Thrown if there is an error reading the data.
+	 * @throws ParseEOFException Thrown if the data ends within a content line.
+	 * @throws ParseIOException Thrown if the content line is not syntactically correct.
+	 */
+	public abstract boolean nextLine() throws IOException, ParseIOException;
+
+	/** Clears the components of the previous content line before a new line is located. */
+	protected void resetLine() {
+		paramCount = 0;
+		quotedPrintableParamIndex = charsetParamIndex = -1;
+		quotedPrintableDecoded = false;
+		groupStart = groupEnd = -1;
+		blank = false;
+		skipped = false;
+	}
+
+	/**
+	 * Starts a new content line, which becomes the current line for error reporting.
+	 * @param start The index in the buffer of the beginning of the line.
+	 * @param end The index in the buffer of the CR ending the line, or of the end of the data if the line is incomplete.
+	 */
+	protected void beginLine(final int start, final int end) {
+		++lineIndex;
+		lineStart = start;
+		lineEnd = end;
+	}
+
+	/**
+	 * Indicates that the current content line contains only whitespace.
+	 * @see #isBlank()
+	 */
+	protected void setBlank() {
+		blank = true;
+	}
+
+	/**
+	 * Returns the character at the given index in the buffer of the current line. Only ASCII characters are significant; any character outside the ASCII range
+	 * may be reported as any non-ASCII value.
+	 * @param index The index in the buffer.
+	 * @return The character at the given index.
+	 */
+	protected abstract char charAt(final int index);
+
+	/**
+	 * Creates a string from a range of the buffer of the current line.
+	 * @param start The index of the beginning of the string.
+	 * @param end The index one past the end of the string.
+	 * @return A string of the decoded characters in the given range.
+	 */
+	protected abstract String createString(final int start, final int end);
+
+	/**
+	 * Decodes the value of the current content line, followed by the ending CRLF.
+	 * @return A buffer with an accessible array, positioned at the beginning of the value and limited to the end of the CRLF.
+	 */
+	protected abstract CharBuffer decodeValue();
+
+	/**
+	 * Determines the components of the current content line within {@link #getLineStart()} and {@link #getLineEnd()}.
+	 * @throws ParseIOException Thrown if the content line is not syntactically correct.
+	 */
+	protected void lex() throws ParseIOException {
+		int index = lineStart;
+		char c = 0;
+		while(index < lineEnd && (c = charAt(index)) != GROUP_NAME_SEPARATOR_CHAR && c != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR && c != LF) {
+			++index;
+		}
+		if(index < lineEnd && c == GROUP_NAME_SEPARATOR_CHAR) { //if we just found a group
+			groupStart = lineStart;
+			groupEnd = index++;
+			final int tokenStart = index;
+			while(index < lineEnd && (c = charAt(index)) != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR && c != LF) {
+				++index;
+			}
+			nameStart = tokenStart;
+		} else {
+			nameStart = lineStart;
+		}
+		if(index == lineEnd) { //if we reached the end of the line without finding a name delimiter
+			if(!isWhitespace(nameStart, lineEnd)) { //only whitespace lines are allowed to have no value
+				throw new ParseUnexpectedDataException(NAME_DELIMITER_CHARACTERS, CR, lineIndex, index - lineStart);
+			}
+			setBlank();
+			return;
+		}
+		if(c == LF) { //if we see an LF before a CR
+			throw new ParseUnexpectedDataException(NAME_DELIMITER_CHARACTERS, c, lineIndex, index - lineStart);
+		}
+		nameEnd = index++;
+		if(!isWanted(nameStart, nameEnd)) { //if we don't need this content line, don't lex the rest of it
+			skipped = true;
+			return;
+		}
+		if(c == PARAM_SEPARATOR_CHAR) { //if there are parameters, lex them up to the ':'
+			index = lexParameters(index);
+			findEncodingParams();
+		}
+		valueStart = index;
+	}
+
+	/** Locates any parameters indicating quoted-printable encoding or a charset among the parameters of the current content line. */
+	private void findEncodingParams() {
+		for(int i = 0; i < paramCount; ++i) {
+			final int offset = i * 4;
+			final int paramNameStart = paramOffsets[offset];
+			final int paramNameEnd = paramOffsets[offset + 1];
+			final int paramValueStart = paramOffsets[offset + 2];
+			if(paramValueStart < 0) { //vCard 2.1 allows a bare QUOTED-PRINTABLE parameter
+				if(matchesIgnoreCase(paramNameStart, paramNameEnd, FOLDED_QUOTED_PRINTABLE_ENCODING_TYPE)) {
+					quotedPrintableParamIndex = i;
+				}
+			} else if(matchesIgnoreCase(paramNameStart, paramNameEnd, FOLDED_ENCODING_PARAM_NAME)) {
+				if(matchesIgnoreCase(paramValueStart, paramOffsets[offset + 3], FOLDED_QUOTED_PRINTABLE_ENCODING_TYPE)) {
+					quotedPrintableParamIndex = i;
+				}
+			} else if(matchesIgnoreCase(paramNameStart, paramNameEnd, FOLDED_CHARSET_PARAM_NAME)) {
+				charsetParamIndex = i;
+			}
+		}
+	}
+
+	/**
+	 * Determines whether a CR ending a physical line is a quoted-printable soft line break, as produced by vCard 2.1 producers, in which case the content line
+	 * continues on the next physical line. This is so if the CR is preceded by '=' and the parameters of the content line indicate quoted-printable encoding,
+	 * either with an {@value Directory#ENCODING_PARAM_NAME} parameter or with a bare {@value Directory#QUOTED_PRINTABLE_ENCODING_TYPE} parameter. Because this
+	 * method may be called before the content line is lexed, the parameters up to the CR are lexed here and then forgotten.
+	 * @param start The index in the buffer of the beginning of the content line.
+	 * @param cr The index in the buffer of a CR within or ending the content line.
+	 * @return <code>true</code> if the CR begins a soft line break.
+	 */
+	protected boolean isSoftLineBreak(final int start, final int cr) {
+		if(cr == start || charAt(cr - 1) != QUOTED_PRINTABLE_ESCAPE_CHAR) { //only a CR following '=' can be a soft line break
+			return false;
+		}
+		int index = start;
+		char c = 0;
+		while(index < cr && (c = charAt(index)) != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR) {
+			++index;
+		}
+		if(index == cr || c != PARAM_SEPARATOR_CHAR) { //only a line with parameters can be quoted-printable
+			return false;
+		}
+		final int oldLineEnd = lineEnd;
+		lineEnd = cr; //lex the parameters only up to the CR
+		try {
+			lexParameters(index + 1);
+			findEncodingParams();
+			return isQuotedPrintable();
+		} catch(final ParseIOException parseIOException) { //if the parameters don't end before the CR, this can't be a soft line break
+			return false;
+		} finally {
+			lineEnd = oldLineEnd;
+			paramCount = 0; //forget the parameters until the line is actually lexed
+			quotedPrintableParamIndex = charsetParamIndex = -1;
+		}
+	}
+
+	/**
+	 * Determines whether a range of the current line matches the given uppercase string without regard to ASCII case.
+	 * @param start The beginning of the range.
+	 * @param end One past the end of the range.
+	 * @param string The uppercase string to compare.
+	 * @return <code>true</code> if the range matches the string.
+	 */
+	private boolean matchesIgnoreCase(final int start, final int end, final String string) {
+		return end - start == string.length() && regionMatchesIgnoreCase(start, string);
+	}
+
+	/**
+	 * Skips the current content line without lexing it if its name can be found and is not wanted because of the projection or the exclusion. The name is
+	 * located directly from the beginning of the line, so this may be called before any folds are removed; if the name cannot be determined, the line is not
+	 * skipped.
+	 * @return <code>true</code> if the line was skipped.
+	 * @see #setProjection(Collection)
+	 * @see #setExclusion(Collection)
+	 */
+	protected boolean skipIfUnwanted() {
+		if(projection == null && exclusion == null) {
+			return false;
+		}
+		int index = lineStart;
+		int start = lineStart;
+		char c = 0;
+		while(index < lineEnd && (c = charAt(index)) != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR && c != CR && c != LF) {
+			if(c == GROUP_NAME_SEPARATOR_CHAR) { //the name starts after any group
+				start = index + 1;
+			}
+			++index;
+		}
+		if(index == lineEnd || (c != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR) || isWanted(start, index)) { //if the name is needed or unknown
+			return false;
+		}
+		skipped = true;
+		return true;
+	}
+
+	/**
+	 * Determines whether the current content line is a "begin:" content line starting a block of the given profile, without creating any strings.
+	 * @param profileName The name of the profile, such as "VCARD", which will be matched without regard to case.
+	 * @return <code>true</code> if the current content line begins a block of the given profile.
+	 */
+	public boolean isBeginOf(final String profileName) {
+		if(blank || skipped || nameEnd - nameStart != BEGIN_TYPE.length() || !regionMatchesIgnoreCase(nameStart, BEGIN_TYPE)) {
+			return false;
+		}
+		final String foldedProfileName = foldName(profileName);
+		return lineEnd - valueStart == foldedProfileName.length() && regionMatchesIgnoreCase(valueStart, foldedProfileName);
+	}
+
+	/**
+	 * Determines whether a content line with the given name should be lexed.
+	 * @param start The index of the beginning of the name.
+	 * @param end The index one past the end of the name.
+	 * @return <code>true</code> if the name is in the projection, if any, and is not in the exclusion, if any.
+	 */
+	private boolean isWanted(final int start, final int end) {
+		return (projection == null || isAnyOf(projection, start, end)) && (exclusion == null || !isAnyOf(exclusion, start, end));
+	}
+
+	/**
+	 * Determines whether the given name is one of the given names.
+	 * @param typeNames The folded type names to check.
+	 * @param start The index of the beginning of the name.
+	 * @param end The index one past the end of the name.
+	 * @return <code>true</code> if the name matches one of the given names without regard to ASCII case.
+	 */
+	private boolean isAnyOf(final String[] typeNames, final int start, final int end) {
+		for(final String typeName : typeNames) {
+			if(matchesIgnoreCase(start, end, typeName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether the characters of the current line starting at the given index match the given uppercase string without regard to ASCII case.
+	 * @param start The index of the first character to compare.
+	 * @param string The uppercase string to compare; the line must have at least as many characters as the string after the given index.
+	 * @return <code>true</code> if the characters match the string.
+	 */
+	private boolean regionMatchesIgnoreCase(final int start, final String string) {
+		for(int i = string.length() - 1; i >= 0; --i) {
+			char c = charAt(start + i);
+			if(c >= 'a' && c <= 'z') {
+				c -= 'a' - 'A';
+			}
+			if(c != string.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Lexes the parameters of the current content line, up to and including the name/value separator (':').
+	 * @param index The index in the buffer of the first parameter.
+	 * @return The index in the buffer after the name/value separator.
+	 * @throws ParseIOException Thrown if the parameters are not syntactically correct.
+	 */
+	protected int lexParameters(int index) throws ParseIOException {
+		char c;
+		do { //lex each parameter
+			final int paramNameStart = index;
+			while(index < lineEnd && (c = charAt(index)) != PARAM_NAME_VALUE_SEPARATOR_CHAR && c != PARAM_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR) {
+				++index;
+			}
+			checkNotLineEnd(index, PARAM_NAME_DELIMITER_CHARACTERS);
+			final int paramNameEnd = index;
+			c = charAt(index);
+			if(c == PARAM_NAME_VALUE_SEPARATOR_CHAR) { //if there is at least one value waiting
+				do { //lex the parameter value(s)
+					++index; //skip the delimiter that got us here
+					checkNotLineEnd(index, PARAM_VALUE_DELIMITER_CHARACTERS);
+					final int paramValueStart;
+					final int paramValueEnd;
+					if(charAt(index) == DQUOTE) { //if the value is quoted
+						paramValueStart = ++index;
+						paramValueEnd = indexOf(DQUOTE, index, lineEnd);
+						if(paramValueEnd < 0) {
+							throw new ParseUnexpectedDataException(Characters.of(DQUOTE), CR, lineIndex, lineEnd - lineStart);
+						}
+						index = paramValueEnd + 1; //skip the ending quote
+						checkNotLineEnd(index, PARAM_VALUE_DELIMITER_CHARACTERS);
+					} else {
+						paramValueStart = index;
+						while(index < lineEnd && (c = charAt(index)) != PARAM_SEPARATOR_CHAR && c != PARAM_VALUE_SEPARATOR_CHAR && c != NAME_VALUE_SEPARATOR_CHAR) {
+							++index;
+						}
+						checkNotLineEnd(index, PARAM_VALUE_DELIMITER_CHARACTERS);
+						paramValueEnd = index;
+					}
+					addParam(paramNameStart, paramNameEnd, paramValueStart, paramValueEnd);
+					c = charAt(index);
+				} while(c == PARAM_VALUE_SEPARATOR_CHAR); //keep getting parameter values while there are more parameter value separators
+			} else { //if there is no '='
+				addParam(paramNameStart, paramNameEnd, -1, -1);
+			}
+			if(c == PARAM_SEPARATOR_CHAR) { //skip the separator before the next parameter
+				++index;
+			}
+		} while(c != NAME_VALUE_SEPARATOR_CHAR); //keep lexing parameters until we get to the ':' that separates the name from the value
+		return index + 1; //skip the ':'
+	}
+
+	/**
+	 * Records the offsets of a parameter name/value pair.
+	 * @param nameStart The beginning of the parameter name.
+	 * @param nameEnd One past the end of the parameter name.
+	 * @param valueStart The beginning of the parameter value, or -1 if there is no value.
+	 * @param valueEnd One past the end of the parameter value, or -1 if there is no value.
+	 */
+	private void addParam(final int nameStart, final int nameEnd, final int valueStart, final int valueEnd) {
+		final int offset = paramCount * 4;
+		if(offset + 4 > paramOffsets.length) {
+			paramOffsets = Arrays.copyOf(paramOffsets, paramOffsets.length * 2);
+		}
+		paramOffsets[offset] = nameStart;
+		paramOffsets[offset + 1] = nameEnd;
+		paramOffsets[offset + 2] = valueStart;
+		paramOffsets[offset + 3] = valueEnd;
+		++paramCount;
+	}
+
+	/** The number of strings cached by each lexer. */
+	private static final int STRING_CACHE_CAPACITY = 1024;
+
+	/** The cache of names and parameter values, which repeat across content lines and are reused rather than created for each line. */
+	private final StringCache stringCache = new StringCache(STRING_CACHE_CAPACITY);
+
+	/**
+	 * Returns a string of the characters of the current line in the given range, reusing an equal string from the cache of this lexer if possible. Only short
+	 * ASCII strings are cached.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return A string of the characters in the given range.
+	 * @see StringCache
+	 */
+	protected String createCachedString(final int start, final int end) {
+		if(end - start > StringCache.MAX_LENGTH) {
+			return createString(start, end);
+		}
+		int hashCode = 0;
+		for(int i = start; i < end; ++i) { //calculate the hash code the string would have, without creating the string
+			final char c = charAt(i);
+			if(c >= 0x80) { //for non-ASCII characters, the characters don't necessarily correspond to those of the string
+				return createString(start, end);
+			}
+			hashCode = 31 * hashCode + c;
+		}
+		final int slot = stringCache.getSlot(hashCode);
+		final String cachedString = stringCache.get(slot);
+		if(cachedString != null && cachedString.length() == end - start && regionMatches(start, cachedString)) {
+			return cachedString;
+		}
+		final String string = createString(start, end);
+		stringCache.set(slot, string);
+		return string;
+	}
+
+	/** @return The group of the current content line, or <code>null</code> if there is no group. */
+	public String getGroup() {
+		return groupStart >= 0 ? createCachedString(groupStart, groupEnd) : null;
+	}
+
+	/** @return The name of the current content line. */
+	public String getName() {
+		return createCachedString(nameStart, nameEnd);
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The name of the parameter.
+	 */
+	public String getParamName(final int index) {
+		return createCachedString(getParamNameStart(index), getParamNameEnd(index));
+	}
+
+	/**
+	 * Determines whether the characters of the current line starting at the given index match the given string exactly.
+	 * @param start The index of the first character to compare.
+	 * @param string The string to compare; the line must have at least as many characters as the string after the given index.
+	 * @return <code>true</code> if the characters match the string.
+	 */
+	private boolean regionMatches(final int start, final String string) {
+		for(int i = string.length() - 1; i >= 0; --i) {
+			if(charAt(start + i) != string.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param index The index of the parameter.
+	 * @return The value of the parameter, or <code>null</code> if the parameter has no value.
+	 */
+	public String getParamValue(final int index) {
+		final int start = getParamValueStart(index);
+		return start >= 0 ? createCachedString(start, getParamValueEnd(index)) : null;
+	}
+
+	/**
+	 * Returns the parameters of the current content line. For a quoted-printable value, the parameters indicating the encoding and charset are not included, as
+	 * they no longer apply to the decoded value.
+	 * @return A new immutable list of the parameter name/value pairs of the current content line.
+	 * @see #isQuotedPrintable()
+	 */
+	public ParamList getParamList() {
+		final int omittedParamIndex1 = quotedPrintableParamIndex;
+		final int omittedParamIndex2 = isQuotedPrintable() ? charsetParamIndex : -1;
+		@SuppressWarnings("unchecked")
+		final NameValuePair<String, String>[] params = new NameValuePair[paramCount - (omittedParamIndex1 >= 0 ? 1 : 0) - (omittedParamIndex2 >= 0 ? 1 : 0)];
+		int paramIndex = 0;
+		for(int i = 0; i < paramCount; ++i) {
+			if(i != omittedParamIndex1 && i != omittedParamIndex2) {
+				params[paramIndex++] = new NameValuePair<String, String>(getParamName(i), getParamValue(i));
+			}
+		}
+		return ParamList.wrap(params);
+	}
+
+	/** The decoder for values with no indicated charset. */
+	private final CharsetDecoder defaultValueDecoder = UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** The decoder for the last charset indicated by a content line, or <code>null</code> if no charset has been indicated. */
+	private CharsetDecoder charsetValueDecoder = null;
+
+	/** The folded name of the charset of the charset value decoder, or <code>null</code> if no charset has been indicated. */
+	private String charsetValueDecoderName = null;
+
+	/**
+	 * Returns a decoder for the bytes of the value of the current content line. If the content line has a {@value Directory#CHARSET_PARAM_NAME} parameter
+	 * indicating a supported charset, the decoder will be for that charset; otherwise it will be for UTF-8. Decoders are reused, and replace malformed input.
+	 * @return A decoder for the value of the current content line.
+	 */
+	protected CharsetDecoder getValueDecoder() {
+		if(charsetParamIndex < 0) {
+			return defaultValueDecoder;
+		}
+		final int start = getParamValueStart(charsetParamIndex);
+		final int end = getParamValueEnd(charsetParamIndex);
+		if(start < 0) {
+			return defaultValueDecoder;
+		}
+		if(charsetValueDecoderName == null || !matchesIgnoreCase(start, end, charsetValueDecoderName)) { //only look up the charset if it changed
+			final String charsetName = createString(start, end);
+			final Charset charset;
+			try {
+				charset = Charset.forName(charsetName);
+			} catch(final IllegalArgumentException illegalArgumentException) { //if the charset is not known, hope for UTF-8
+				return defaultValueDecoder;
+			}
+			charsetValueDecoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			charsetValueDecoderName = foldName(charsetName);
+		}
+		return charsetValueDecoder;
+	}
+
+	/** The bytes of the last quoted-printable value; reused for each line. */
+	private byte[] quotedPrintableBytes = new byte[256];
+
+	/** The characters of the last quoted-printable value; reused for each line. */
+	private CharBuffer quotedPrintableChars = CharBuffer.allocate(256);
+
+	/** Whether the quoted-printable value of the current line has been decoded. */
+	private boolean quotedPrintableDecoded = false;
+
+	/**
+	 * Decodes the quoted-printable value of the current content line, followed by the ending CRLF. The escaped bytes are collected with the bytes of any literal
+	 * characters and decoded using the charset of the content line. No soft line breaks remain, so a multi-byte character may have been divided across physical
+	 * lines. An '=' not followed by two hexadecimal digits is kept literally.
+	 * @return A buffer with an accessible array, positioned at the beginning of the value and limited to the end of the CRLF.
+	 * @see #isQuotedPrintable()
+	 * @see #getValueDecoder()
+	 * @see #encodeLiteral(int, int, CharsetDecoder)
+	 */
+	protected CharBuffer decodeQuotedPrintableValue() {
+		if(!quotedPrintableDecoded) {
+			final int start = valueStart;
+			final int end = lineEnd;
+			if(quotedPrintableBytes.length < end - start) {
+				quotedPrintableBytes = new byte[Math.max(end - start, quotedPrintableBytes.length * 2)];
+			}
+			final CharsetDecoder decoder = getValueDecoder();
+			byte[] bytes = quotedPrintableBytes;
+			int length = 0;
+			for(int i = start; i < end; ++i) {
+				final char c = charAt(i);
+				if(c == QUOTED_PRINTABLE_ESCAPE_CHAR && i + 2 < end) {
+					final int high = Character.digit(charAt(i + 1), 16);
+					final int low = Character.digit(charAt(i + 2), 16);
+					if(high >= 0 && low >= 0) {
+						bytes[length++] = (byte)(high << 4 | low);
+						i += 2;
+						continue;
+					}
+				}
+				if(c >= 0x80) { //encode any run of literal non-ASCII characters
+					int literalEnd = i + 1;
+					while(literalEnd < end && charAt(literalEnd) >= 0x80) {
+						++literalEnd;
+					}
+					final ByteBuffer literalBytes = encodeLiteral(i, literalEnd, decoder);
+					final int literalLength = literalBytes.remaining();
+					if(length + literalLength + (end - literalEnd) > bytes.length) { //make sure the rest of the value will still fit
+						bytes = quotedPrintableBytes = Arrays.copyOf(bytes, Math.max(length + literalLength + (end - literalEnd), bytes.length * 2));
+					}
+					literalBytes.get(bytes, length, literalLength);
+					length += literalLength;
+					i = literalEnd - 1;
+					continue;
+				}
+				bytes[length++] = (byte)c;
+			}
+			final int capacity = (int)Math.ceil(length * (double)decoder.maxCharsPerByte()) + CRLF.length();
+			if(quotedPrintableChars.capacity() < capacity) {
+				quotedPrintableChars = CharBuffer.allocate(Math.max(capacity, quotedPrintableChars.capacity() * 2));
+			}
+			final CharBuffer chars = quotedPrintableChars;
+			chars.clear();
+			decoder.reset();
+			decoder.decode(ByteBuffer.wrap(bytes, 0, length), chars, true);
+			decoder.flush(chars);
+			chars.put(CR).put(LF);
+			chars.flip();
+			quotedPrintableDecoded = true;
+		}
+		return quotedPrintableChars;
+	}
+
+	/** The encoder for literal non-ASCII characters of quoted-printable values, or <code>null</code> if none has been needed. */
+	private CharsetEncoder literalEncoder = null;
+
+	/**
+	 * Returns the bytes of literal non-ASCII characters in a quoted-printable value, to be decoded along with the escaped bytes. Although quoted-printable
+	 * values should contain only ASCII, some producers include literal characters. This version encodes the characters using the charset of the value, which is
+	 * UTF-8 if no charset is indicated; a lexer whose buffer contains the source bytes themselves should override this method to return those bytes.
+	 * @param start The index in the buffer of the first literal character.
+	 * @param end The index in the buffer one past the last literal character.
+	 * @param decoder The decoder that will be used for the value.
+	 * @return A buffer containing the bytes of the characters between its position and its limit.
+	 */
+	protected ByteBuffer encodeLiteral(final int start, final int end, final CharsetDecoder decoder) {
+		final Charset charset = decoder.charset().canEncode() ? decoder.charset() : UTF_8;
+		if(literalEncoder == null || !literalEncoder.charset().equals(charset)) {
+			literalEncoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+		try {
+			return literalEncoder.encode(CharBuffer.wrap(createString(start, end)));
+		} catch(final CharacterCodingException characterCodingException) { //errors are replaced, so this should never happen
+			throw unexpected(characterCodingException);
+		}
+	}
+
+	/** @return The literal, undecoded value of the current content line. */
+	public String getValue() {
+		return createString(valueStart, lineEnd);
+	}
+
+	/**
+	 * Returns a reader of the value of the current content line, followed by the ending CRLF, for use by value factories. The reader must not be used after
+	 * the next line is requested.
+	 * @return A reader of the value of the current content line.
+	 */
+	public Reader getValueReader() {
+		final CharBuffer value = decodeValue();
+		return new CharArrayReader(value.array(), value.arrayOffset() + value.position(), value.remaining());
+	}
+
+	/**
+	 * Returns the decoded characters of the value of the current content line, without the ending CRLF. The buffer must not be used after the next line is
+	 * requested.
+	 * @return A buffer with an accessible array containing the value between its position and its limit.
+	 */
+	public CharBuffer getValueChars() {
+		final CharBuffer value = decodeValue();
+		final CharBuffer chars = value.duplicate();
+		chars.limit(chars.limit() - CRLF.length());
+		return chars;
+	}
+
+	/**
+	 * Finds the first occurrence of an ASCII character in the buffer of the current line.
+	 * @param c The character to find.
+	 * @param start The index at which to start searching.
+	 * @param end The index at which to stop searching.
+	 * @return The index of the character, or -1 if the character was not found.
+	 */
+	protected int indexOf(final char c, final int start, final int end) {
+		for(int i = start; i < end; ++i) {
+			if(charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param start The beginning of the range to check.
+	 * @param end One past the end of the range to check.
+	 * @return <code>true</code> if the range contains only whitespace.
+	 */
+	protected boolean isWhitespace(final int start, final int end) {
+		for(int i = start; i < end; ++i) {
+			if(charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ensures that the given index is not at the end of the current content line.
+	 * @param index The index to check.
+	 * @param expectedCharacters The characters that were expected instead.
+	 * @throws ParseUnexpectedDataException if the index is at the end of the line.
+	 */
+	private void checkNotLineEnd(final int index, final Characters expectedCharacters) throws ParseUnexpectedDataException {
+		if(index == lineEnd) {
+			throw new ParseUnexpectedDataException(expectedCharacters, CR, lineIndex, index - lineStart);
+		}
+	}
+
+	/**
+	 * Checks a parameter index.
+	 * @param index The index of the parameter.
+	 * @return The given index.
+	 * @throws IndexOutOfBoundsException if the index is not within the parameters of the current content line.
+	 */
+	private int checkParamIndex(final int index) {
+		return checkIndexBounds(index, paramCount);
+	}
+
+}
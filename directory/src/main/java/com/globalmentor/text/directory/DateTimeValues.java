@@ -0,0 +1,310 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory;
+
+import java.time.*;
+import java.time.temporal.*;
+
+import com.globalmentor.io.ParseIOException;
+
+/**
+ * Parses the date and time values of directories, in the ISO 8601 basic and extended forms, including the truncated forms and UTC offsets allowed by vCard.
+ * <p>
+ * The form of a value is determined from its length and separators before any fields are parsed, so a value in any of the recognized forms is parsed without
+ * trying and discarding other forms, and without creating intermediate strings.
+ * </p>
+ * <p>
+ * The following date forms are recognized:
+ * </p>
+ * <ul>
+ * <li><code>YYYY-MM-DD</code> and <code>YYYYMMDD</code>, producing a {@link LocalDate}.</li>
+ * <li><code>YYYY-MM</code>, producing a {@link YearMonth}.</li>
+ * <li><code>YYYY</code>, producing a {@link Year}.</li>
+ * <li><code>--MM-DD</code> and <code>--MMDD</code>, producing a {@link MonthDay}.</li>
+ * </ul>
+ * <p>
+ * Times are recognized in the forms <code>hh:mm:ss</code>, <code>hhmmss</code>, <code>hh:mm</code>, <code>hhmm</code>, and <code>hh</code>, with optional
+ * fractional seconds, followed by an optional UTC offset of <code>Z</code>, <code>&plusmn;hh:mm</code>, <code>&plusmn;hhmm</code>, or <code>&plusmn;hh</code>.
+ * A date-time is a complete date followed by <code>T</code> and a time.
+ * </p>
+ * @author Garret Wilson
+ * @see <a href="https://www.ietf.org/rfc/rfc2425.txt">RFC 2425</a>
+ * @see <a href="https://tools.ietf.org/html/rfc6350#section-4.3">RFC 6350 § 4.3</a>
+ */
+public final class DateTimeValues {
+
+	/** The character separating the date and the time of a date-time. */
+	public static final char TIME_DESIGNATOR = 'T';
+
+	/** The character indicating UTC. */
+	public static final char UTC_DESIGNATOR = 'Z';
+
+	/** This class cannot be publicly instantiated. */
+	private DateTimeValues() {
+	}
+
+	/**
+	 * Parses a date or a date-time, depending on whether the value contains {@value #TIME_DESIGNATOR}.
+	 * @param text The text to parse.
+	 * @return The date or date-time represented by the text.
+	 * @throws ParseIOException if the text is not a date or date-time in one of the recognized forms.
+	 * @see #parseDate(CharSequence)
+	 * @see #parseDateTime(CharSequence)
+	 */
+	public static TemporalAccessor parseDateOrDateTime(final CharSequence text) throws ParseIOException {
+		return indexOf(text, TIME_DESIGNATOR) >= 0 ? parseDateTime(text) : parseDate(text);
+	}
+
+	/**
+	 * Parses a date, which may be truncated.
+	 * @param text The text to parse.
+	 * @return The date represented by the text; a {@link LocalDate}, {@link YearMonth}, {@link Year}, or {@link MonthDay}.
+	 * @throws ParseIOException if the text is not a date in one of the recognized forms.
+	 */
+	public static TemporalAccessor parseDate(final CharSequence text) throws ParseIOException {
+		return parseDate(text, 0, text.length());
+	}
+
+	/**
+	 * Parses a time with an optional UTC offset.
+	 * @param text The text to parse.
+	 * @return The time represented by the text; an {@link OffsetTime} if a UTC offset is given, otherwise a {@link LocalTime}.
+	 * @throws ParseIOException if the text is not a time in one of the recognized forms.
+	 */
+	public static Temporal parseTime(final CharSequence text) throws ParseIOException {
+		final int length = text.length();
+		final int offsetStart = findOffset(text, 0, length);
+		final LocalTime time = parseLocalTime(text, 0, offsetStart);
+		return offsetStart < length ? OffsetTime.of(time, parseOffset(text, offsetStart, length)) : time;
+	}
+
+	/**
+	 * Parses a date-time with an optional UTC offset. The date must be complete.
+	 * @param text The text to parse.
+	 * @return The date-time represented by the text; an {@link OffsetDateTime} if a UTC offset is given, otherwise a {@link LocalDateTime}.
+	 * @throws ParseIOException if the text is not a date-time in one of the recognized forms.
+	 */
+	public static Temporal parseDateTime(final CharSequence text) throws ParseIOException {
+		final int length = text.length();
+		final int timeDesignatorIndex = indexOf(text, TIME_DESIGNATOR);
+		if(timeDesignatorIndex < 0) {
+			throw new ParseIOException("Date-time missing time: " + text);
+		}
+		final TemporalAccessor date = parseDate(text, 0, timeDesignatorIndex);
+		if(!(date instanceof LocalDate)) {
+			throw new ParseIOException("Date-time with incomplete date: " + text);
+		}
+		final int offsetStart = findOffset(text, timeDesignatorIndex + 1, length);
+		final LocalDateTime dateTime = LocalDateTime.of((LocalDate)date, parseLocalTime(text, timeDesignatorIndex + 1, offsetStart));
+		return offsetStart < length ? OffsetDateTime.of(dateTime, parseOffset(text, offsetStart, length)) : dateTime;
+	}
+
+	/**
+	 * Parses a date in a region of text.
+	 * @param text The text to parse.
+	 * @param start The index of the first character of the date.
+	 * @param end The index after the last character of the date.
+	 * @return The date represented by the text.
+	 * @throws ParseIOException if the region is not a date in one of the recognized forms.
+	 */
+	private static TemporalAccessor parseDate(final CharSequence text, final int start, final int end) throws ParseIOException {
+		try {
+			if(end - start >= 2 && text.charAt(start) == '-' && text.charAt(start + 1) == '-') { //--MMDD or --MM-DD
+				switch(end - start) {
+					case 6:
+						return MonthDay.of(parseDigits(text, start + 2, start + 4), parseDigits(text, start + 4, start + 6));
+					case 7:
+						if(text.charAt(start + 4) == '-') {
+							return MonthDay.of(parseDigits(text, start + 2, start + 4), parseDigits(text, start + 5, start + 7));
+						}
+						break;
+				}
+			} else {
+				switch(end - start) {
+					case 4: //YYYY
+						return Year.of(parseDigits(text, start, start + 4));
+					case 7: //YYYY-MM
+						if(text.charAt(start + 4) == '-') {
+							return YearMonth.of(parseDigits(text, start, start + 4), parseDigits(text, start + 5, start + 7));
+						}
+						break;
+					case 8: //YYYYMMDD
+						return LocalDate.of(parseDigits(text, start, start + 4), parseDigits(text, start + 4, start + 6), parseDigits(text, start + 6, start + 8));
+					case 10: //YYYY-MM-DD
+						if(text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-') {
+							return LocalDate.of(parseDigits(text, start, start + 4), parseDigits(text, start + 5, start + 7), parseDigits(text, start + 8, start + 10));
+						}
+						break;
+				}
+			}
+		} catch(final DateTimeException dateTimeException) { //the fields were out of range
+			throw new ParseIOException("Invalid date: " + text, dateTimeException);
+		}
+		throw new ParseIOException("Unrecognized date: " + text);
+	}
+
+	/**
+	 * Parses a time without a UTC offset in a region of text.
+	 * @param text The text to parse.
+	 * @param start The index of the first character of the time.
+	 * @param end The index after the last character of the time.
+	 * @return The time represented by the text.
+	 * @throws ParseIOException if the region is not a time in one of the recognized forms.
+	 */
+	private static LocalTime parseLocalTime(final CharSequence text, final int start, int end) throws ParseIOException {
+		int nano = 0;
+		for(int i = start; i < end; ++i) { //look for fractional seconds
+			final char c = text.charAt(i);
+			if(c == '.' || c == ',') {
+				final int fractionLength = end - (i + 1);
+				if(fractionLength < 1 || fractionLength > 9) {
+					throw new ParseIOException("Invalid fractional seconds: " + text);
+				}
+				nano = parseDigits(text, i + 1, end);
+				for(int j = fractionLength; j < 9; ++j) { //scale the fraction to nanoseconds
+					nano *= 10;
+				}
+				end = i;
+				break;
+			}
+		}
+		final boolean extended = end - start > 2 && text.charAt(start + 2) == ':'; //hh:mm[:ss]
+		final int fieldLength = extended ? 3 : 2;
+		final int fieldCount = (end - start + (extended ? 1 : 0)) / fieldLength;
+		if(fieldCount < 1 || fieldCount > 3 || (end - start + (extended ? 1 : 0)) % fieldLength != 0 || (nano != 0 && fieldCount != 3)) {
+			throw new ParseIOException("Unrecognized time: " + text);
+		}
+		final int hour = parseDigits(text, start, start + 2);
+		int minute = 0;
+		int second = 0;
+		if(fieldCount > 1) {
+			if(extended && text.charAt(start + 2) != ':') {
+				throw new ParseIOException("Unrecognized time: " + text);
+			}
+			minute = parseDigits(text, start + fieldLength, start + fieldLength + 2);
+			if(fieldCount > 2) {
+				if(extended && text.charAt(start + 5) != ':') {
+					throw new ParseIOException("Unrecognized time: " + text);
+				}
+				second = parseDigits(text, start + fieldLength * 2, start + fieldLength * 2 + 2);
+			}
+		}
+		try {
+			return LocalTime.of(hour, minute, second, nano);
+		} catch(final DateTimeException dateTimeException) { //the fields were out of range
+			throw new ParseIOException("Invalid time: " + text, dateTimeException);
+		}
+	}
+
+	/**
+	 * Finds the start of a UTC offset following a time.
+	 * @param text The text to search.
+	 * @param start The index of the first character of the time.
+	 * @param end The index after the last character of the time and offset.
+	 * @return The index of the {@value #UTC_DESIGNATOR}, <code>+</code>, or <code>-</code> starting the offset, or the end if there is no offset.
+	 */
+	private static int findOffset(final CharSequence text, final int start, final int end) {
+		for(int i = start; i < end; ++i) {
+			final char c = text.charAt(i);
+			if(c == UTC_DESIGNATOR || c == '+' || c == '-') {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Parses a UTC offset in a region of text.
+	 * @param text The text to parse.
+	 * @param start The index of the {@value #UTC_DESIGNATOR}, <code>+</code>, or <code>-</code> starting the offset.
+	 * @param end The index after the last character of the offset.
+	 * @return The offset represented by the text.
+	 * @throws ParseIOException if the region is not an offset in one of the recognized forms.
+	 */
+	private static ZoneOffset parseOffset(final CharSequence text, final int start, final int end) throws ParseIOException {
+		final char designator = text.charAt(start);
+		if(designator == UTC_DESIGNATOR) {
+			if(end - start != 1) {
+				throw new ParseIOException("Unrecognized UTC offset: " + text);
+			}
+			return ZoneOffset.UTC;
+		}
+		final int hours = parseDigits(text, start + 1, Math.min(start + 3, end));
+		final int minutes;
+		switch(end - start) {
+			case 3: //±hh
+				minutes = 0;
+				break;
+			case 5: //±hhmm
+				minutes = parseDigits(text, start + 3, start + 5);
+				break;
+			case 6: //±hh:mm
+				if(text.charAt(start + 3) != ':') {
+					throw new ParseIOException("Unrecognized UTC offset: " + text);
+				}
+				minutes = parseDigits(text, start + 4, start + 6);
+				break;
+			default:
+				throw new ParseIOException("Unrecognized UTC offset: " + text);
+		}
+		try {
+			return designator == '-' ? ZoneOffset.ofHoursMinutes(-hours, -minutes) : ZoneOffset.ofHoursMinutes(hours, minutes);
+		} catch(final DateTimeException dateTimeException) { //the fields were out of range
+			throw new ParseIOException("Invalid UTC offset: " + text, dateTimeException);
+		}
+	}
+
+	/**
+	 * Parses a field of decimal digits in a region of text.
+	 * @param text The text to parse.
+	 * @param start The index of the first digit.
+	 * @param end The index after the last digit.
+	 * @return The value of the digits.
+	 * @throws ParseIOException if the region is empty or contains a character other than an ASCII digit.
+	 */
+	private static int parseDigits(final CharSequence text, final int start, final int end) throws ParseIOException {
+		if(start >= end) {
+			throw new ParseIOException("Missing digits: " + text);
+		}
+		int value = 0;
+		for(int i = start; i < end; ++i) {
+			final int digit = text.charAt(i) - '0';
+			if(digit < 0 || digit > 9) {
+				throw new ParseIOException("Invalid digit at index " + i + ": " + text);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Finds the first occurrence of a character.
+	 * @param text The text to search.
+	 * @param c The character to find.
+	 * @return The index of the character, or -1 if the text does not contain the character.
+	 */
+	private static int indexOf(final CharSequence text, final char c) {
+		for(int i = 0, length = text.length(); i < length; ++i) {
+			if(text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -104,6 +104,12 @@ public class Directory {
 	/** The base64 encoding type; equivalent to {@link #B_ENCODING_TYPE} as per RFC 2047. Used by some VCard producers such as Nokia. */
 	public static final String BASE64_ENCODING_TYPE = "base64";
 
+	/** The quoted-printable encoding type from RFC 2045, used by vCard 2.1 producers. */
+	public static final String QUOTED_PRINTABLE_ENCODING_TYPE = "quoted-printable";
+
+	/** The character set parameter, used by vCard 2.1 producers to indicate the charset of a value. */
+	public static final String CHARSET_PARAM_NAME = "charset";
+
 	/** The value type predefined type. */
 	public static final String VALUE_PARAM_NAME = "value";
 
@@ -203,6 +209,40 @@ public static LocaledText createLocaleTextValue(final List<NameValuePair<String,
 		return new LocaledText(value.toString(), locale); //create and return the locale text
 	}
 
+	//names
+
+	/**
+	 * Folds a case-insensitive name, such as a type name, profile name, or value type, into the uppercase token used to look it up. Because names are nearly
+	 * always given in uppercase, a name with no lowercase ASCII letters is returned unchanged without creating a new string.
+	 * @param name The name to fold.
+	 * @return The uppercase form of the name.
+	 */
+	public static String foldName(final String name) {
+		for(int i = name.length() - 1; i >= 0; --i) {
+			final char c = name.charAt(i);
+			if(c >= 'a' && c <= 'z') { //if there is a lowercase letter, the name must be converted
+				return name.toUpperCase(Locale.ROOT);
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Folds a case-insensitive value type into the lowercase token used to look it up. Because value types are nearly always given in lowercase, a value type
+	 * with no uppercase ASCII letters is returned unchanged without creating a new string.
+	 * @param valueType The value type to fold.
+	 * @return The lowercase form of the value type.
+	 */
+	public static String foldValueType(final String valueType) {
+		for(int i = valueType.length() - 1; i >= 0; --i) {
+			final char c = valueType.charAt(i);
+			if(c >= 'A' && c <= 'Z') { //if there is an uppercase letter, the value type must be converted
+				return valueType.toLowerCase(Locale.ROOT);
+			}
+		}
+		return valueType;
+	}
+
 	//parameters
 
 	/**
@@ -212,6 +252,9 @@ public static LocaledText createLocaleTextValue(final List<NameValuePair<String,
 	 * @return The value of the first matching parameter, or <code>null</code> if there is no matching parameter.
 	 */
 	public static String getParamValue(final List<NameValuePair<String, String>> paramList, final String paramName) {
+		if(paramList instanceof ParamList) { //use the parameter name index, if available
+			return ((ParamList)paramList).getParamValue(paramName);
+		}
 		for(final NameValuePair<String, String> parameter : paramList) { //for each parameter
 			if(paramName.equalsIgnoreCase(parameter.getName())) { //if this is the correct parameter
 				return parameter.getValue(); //return the parameter value
@@ -227,6 +270,9 @@ public static String getParamValue(final List<NameValuePair<String, String>> par
 	 * @return The values of all matching parameters.
 	 */
 	public static List<String> getParamValues(final List<NameValuePair<String, String>> paramList, final String paramName) {
+		if(paramList instanceof ParamList) { //use the parameter name index, if available
+			return ((ParamList)paramList).getParamValues(paramName);
+		}
 		final List<String> paramValueList = new ArrayList<String>(paramList.size()); //create a list to hold parameter values, knowing we won't need room for more parameters than the we were given
 		for(final NameValuePair<String, String> parameter : paramList) { //for each parameter
 			if(paramName.equalsIgnoreCase(parameter.getName())) { //if this is the correct parameter
@@ -299,9 +345,53 @@ public static void addParam(final List<NameValuePair<String, String>> paramList,
 	 */
 	public static Locale getLanguageParamValue(final List<NameValuePair<String, String>> paramList) {
 		final String languageValue = getParamValue(paramList, LANGUAGE_PARAM_NAME); //get the first language parameter
-		return languageValue != null && languageValue.trim().length() > 0 //if there is a language and it isn't just whitespace 
-				? Locales.createLocale(languageValue.trim()) //create a locale from the language value
-				: null; //show that there was no language
+		if(languageValue == null) { //if there is no language
+			return null;
+		}
+		final int hashCode = languageValue.hashCode();
+		final int slot = (hashCode ^ (hashCode >>> 16)) & (CACHED_LOCALES.length - 1);
+		final CachedLocale cachedLocale = CACHED_LOCALES[slot]; //reuse the locale if this language has been seen recently
+		if(cachedLocale != null && cachedLocale.language.equals(languageValue)) {
+			return cachedLocale.locale;
+		}
+		final String language = languageValue.trim();
+		if(language.isEmpty()) { //if the language is just whitespace
+			return null;
+		}
+		final Locale locale = Locales.createLocale(language); //create a locale from the language value
+		CACHED_LOCALES[slot] = new CachedLocale(languageValue, locale); //replace any locale in this slot, so that the cache never grows
+		return locale;
+	}
+
+	/**
+	 * The locales created for language parameter values, each in a slot determined by the hash code of the value as it appeared, so that the same locale is
+	 * shared by all content lines with the same language. The number of slots is a power of two.
+	 * <p>
+	 * As with {@link StringCache}, each entry is immutable, so the cache may be shared among threads without synchronization; a thread may at worst miss a
+	 * locale another thread has just cached, resulting only in a duplicate.
+	 * </p>
+	 */
+	private static final CachedLocale[] CACHED_LOCALES = new CachedLocale[256];
+
+	/** A locale cached along with the language parameter value from which it was created. */
+	private static final class CachedLocale {
+
+		/** The language parameter value, as it appeared. */
+		private final String language;
+
+		/** The locale created from the language parameter value. */
+		private final Locale locale;
+
+		/**
+		 * Constructor.
+		 * @param language The language parameter value, as it appeared.
+		 * @param locale The locale created from the language parameter value.
+		 */
+		CachedLocale(final String language, final Locale locale) {
+			this.language = language;
+			this.locale = locale;
+		}
+
 	}
 
 	/**
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory;
+
+import static java.util.Objects.*;
+
+/**
+ * A description of an error encountered while leniently processing a series of directories, identifying where the error was detected.
+ * @author Garret Wilson
+ * @see DirectoryProcessor#processDirectoriesLenient(ContentLineLexer, String, java.util.function.Consumer)
+ */
+public final class DirectoryParseError {
+
+	/** The zero-based index of the directory in which the error occurred. */
+	private final long directoryIndex;
+
+	/**
+	 * @return The zero-based index of the directory in which the error occurred, counting directories that could not be processed; for content lines outside a
+	 *         directory, the index of the next directory.
+	 */
+	public long getDirectoryIndex() {
+		return directoryIndex;
+	}
+
+	/** The zero-based index of the unfolded content line at which the error was detected, or -1 if not known. */
+	private final long lineIndex;
+
+	/** @return The zero-based index of the unfolded content line at which the error was detected, or -1 if not known. */
+	public long getLineIndex() {
+		return lineIndex;
+	}
+
+	/** The offset in the source of the beginning of the content line at which the error was detected, or -1 if not known. */
+	private final long offset;
+
+	/**
+	 * @return The offset in the source of the beginning of the content line at which the error was detected, such as a byte offset, or -1 if not known.
+	 * @see ContentLineLexer#getLineOffset()
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/** The exception describing the error. */
+	private final Exception exception;
+
+	/** @return The exception describing the error. */
+	public Exception getException() {
+		return exception;
+	}
+
+	/**
+	 * Constructor.
+	 * @param directoryIndex The zero-based index of the directory in which the error occurred.
+	 * @param lineIndex The zero-based index of the unfolded content line at which the error was detected, or -1 if not known.
+	 * @param offset The offset in the source of the beginning of the content line, or -1 if not known.
+	 * @param exception The exception describing the error.
+	 * @throws NullPointerException if the given exception is <code>null</code>.
+	 */
+	public DirectoryParseError(final long directoryIndex, final long lineIndex, final long offset, final Exception exception) {
+		this.directoryIndex = directoryIndex;
+		this.lineIndex = lineIndex;
+		this.offset = offset;
+		this.exception = requireNonNull(exception);
+	}
+
+	/**
+	 * Lexer constructor, identifying the current content line of the lexer as the location of the error.
+	 * @param directoryIndex The zero-based index of the directory in which the error occurred.
+	 * @param lexer The lexer positioned at the content line at which the error was detected.
+	 * @param exception The exception describing the error.
+	 * @throws NullPointerException if the given exception is <code>null</code>.
+	 */
+	DirectoryParseError(final long directoryIndex, final ContentLineLexer lexer, final Exception exception) {
+		this(directoryIndex, lexer.getLineIndex(), lexer.getLineOffset(), exception);
+	}
+
+	@Override
+	public String toString() {
+		return "Directory " + directoryIndex + ", line " + lineIndex + ", offset " + offset + ": " + exception.getMessage();
+	}
+
+}
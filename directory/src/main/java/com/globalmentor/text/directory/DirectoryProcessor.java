@@ -17,11 +17,19 @@
 package com.globalmentor.text.directory;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
 
 import static com.globalmentor.io.ReaderParser.*;
 import static com.globalmentor.text.ABNF.*;
 import static com.globalmentor.text.directory.Directory.*;
+import static java.util.Objects.*;
 
 import com.globalmentor.io.*;
 import com.globalmentor.java.Characters;
@@ -38,10 +46,15 @@
  * <li>Every content line, including the last, is required to end in CRLF.</li>
  * <li>Lines containing only whitespace are ignored.</li>
  * </ul>
+ * <p>
+ * All state of a single directory is kept in a {@link ProfileContext} created for each directory, so that once its profiles and value factories are
+ * registered, a processor may be shared and used by multiple threads concurrently.
+ * </p>
  * @author Garret Wilson
  * @see ValueFactory
  * @see Profile
  * @see PredefinedProfile
+ * @see ContentLineHandler
  */
 public class DirectoryProcessor {
 
@@ -53,8 +66,8 @@ protected PredefinedProfile getPredefinedProfile() {
 		return predefinedProfile;
 	}
 
-	/** A map of profiles keyed to the lowercase version of the profile name. */
-	private final Map<String, Profile> profileMap = new HashMap<String, Profile>();
+	/** A map of profiles keyed to the folded version of the profile name. */
+	private final Map<String, Profile> profileMap = new ConcurrentHashMap<String, Profile>();
 
 	/**
 	 * Registers a profile.
@@ -62,7 +75,7 @@ protected PredefinedProfile getPredefinedProfile() {
 	 * @param profile The profile to be registered with this profile name.
 	 */
 	public void registerProfile(final String profileName, final Profile profile) {
-		profileMap.put(profileName.toLowerCase(), profile); //put the profile in the map, keyed to the lowercase version of the profile name
+		profileMap.put(foldName(profileName), profile); //put the profile in the map, keyed to the folded version of the profile name
 	}
 
 	/**
@@ -72,11 +85,11 @@ public void registerProfile(final String profileName, final Profile profile) {
 	 * @see #getPredefinedProfile
 	 */
 	protected Profile getProfile(final String profileName) {
-		return profileName != null ? profileMap.get(profileName.toLowerCase()) : getPredefinedProfile(); //get the profile keyed to the lowercase version of the profile name, or return the predefined profile if null was passed
+		return profileName != null ? profileMap.get(foldName(profileName)) : getPredefinedProfile(); //get the profile keyed to the folded version of the profile name, or return the predefined profile if null was passed
 	}
 
-	/** A map of value factories keyed to the lowercase version of the value type. */
-	private final Map<String, ValueFactory> valueFactoryMap = new HashMap<String, ValueFactory>();
+	/** A map of value factories keyed to the folded version of the value type. */
+	private final Map<String, ValueFactory> valueFactoryMap = new ConcurrentHashMap<String, ValueFactory>();
 
 	/**
 	 * Registers a value factory by value type.
@@ -84,7 +97,7 @@ protected Profile getProfile(final String profileName) {
 	 * @param valueFactory The value factory to be registered with this value type.
 	 */
 	public void registerValueFactory(final String valueType, final ValueFactory valueFactory) {
-		valueFactoryMap.put(valueType.toLowerCase(), valueFactory); //put the value factory in the map, keyed to the lowercase version of the type
+		valueFactoryMap.put(foldValueType(valueType), valueFactory); //put the value factory in the map, keyed to the folded version of the type
 	}
 
 	/**
@@ -93,67 +106,78 @@ public void registerValueFactory(final String valueType, final ValueFactory valu
 	 * @return A value factory for this value type, or <code>null</code> if there is no value factory registered for this value type.
 	 */
 	protected ValueFactory getValueFactory(final String valueType) {
-		return valueFactoryMap.get(valueType.toLowerCase()); //get the value factory keyed to the lowercase version of this value type
+		return valueFactoryMap.get(foldValueType(valueType)); //get the value factory keyed to the folded version of this value type
 	}
 
-	/** The profile last encountered in a "profile:" type content line. */
-	private String defaultProfile = null;
-
-	/** Whether the default profile was the last profile encountered. */
-	private boolean useDefaultProfile = false;
-
-	/**
-	 * The stack of profiles encountered in a "begin:"/"end:" blocks; created before processing and released afterwards.
-	 */
-	private LinkedList<String> profileStack = null;
-
 	/**
 	 * Sets the profile to be used for subsequent content lines. If in the middle of a profile "begin:"/"end:" block, the profile of that block will be suspended
 	 * until the block ends or another block begins.
 	 * @param profile The new profile of the directory.
+	 * @throws UnsupportedOperationException always, as the processor no longer keeps profile state.
+	 * @deprecated The profile state of each directory is now kept in a {@link ProfileContext} created for that directory, so that the processor may be shared
+	 *             among threads. Use {@link ProfileContext#setProfile(String)}.
 	 */
+	@Deprecated
 	protected void setProfile(final String profile) {
-		defaultProfile = profile; //save the profile
-		useDefaultProfile = true; //show that we should use the default profile
+		throw new UnsupportedOperationException("Profile state is kept in a ProfileContext for each directory.");
 	}
 
 	/**
 	 * @return The current profile, either the last set profile, the profile of the current "begin:"/"end:" block, or <code>null</code> if there is no profile, in
 	 *         that order.
+	 * @throws UnsupportedOperationException always, as the processor no longer keeps profile state.
+	 * @deprecated The profile state of each directory is now kept in a {@link ProfileContext} created for that directory, so that the processor may be shared
+	 *             among threads. Use {@link ProfileContext#getProfile()}.
 	 */
+	@Deprecated
 	protected String getProfile() {
-		if(useDefaultProfile && defaultProfile != null) { //if we should use the default profile and there is a profile set
-			return defaultProfile; //return the last set profile
-		} else if(profileStack.size() > 0) { //if we're in a profile "begin:"/"end:" block
-			return profileStack.getLast(); //return the profile of the current block
-		} else { //if no profile is set, and we're not in a profile "begin:"/"end:" block
-			return defaultProfile; //if there's no profile "begin:"/"end:" block, we'll have to use the default profile, even if it is null
-		}
+		throw new UnsupportedOperationException("Profile state is kept in a ProfileContext for each directory.");
 	}
 
 	/**
 	 * Pushes the given profile on the stack, and removes the set profile, if any. Suspends the currently set profile, if any.
 	 * @param profile The profile of the new "begin:"/"end:" block block.
+	 * @throws UnsupportedOperationException always, as the processor no longer keeps profile state.
+	 * @deprecated The profile state of each directory is now kept in a {@link ProfileContext} created for that directory, so that the processor may be shared
+	 *             among threads. Use {@link ProfileContext#pushProfile(String)}.
 	 */
+	@Deprecated
 	protected void pushProfile(final String profile) {
-		profileStack.addLast(profile); //push the profile onto the stack
-		useDefaultProfile = false; //suspend use of the default profile
+		throw new UnsupportedOperationException("Profile state is kept in a ProfileContext for each directory.");
 	}
 
 	/**
 	 * Removes the profile from the top of the stack. Suspends the currently set profile, if any.
 	 * @return The profile from the top of the stack.
-	 * @throws NoSuchElementException Thrown if there are no more profiles on the stack.
+	 * @throws UnsupportedOperationException always, as the processor no longer keeps profile state.
+	 * @deprecated The profile state of each directory is now kept in a {@link ProfileContext} created for that directory, so that the processor may be shared
+	 *             among threads. Use {@link ProfileContext#popProfile()}.
 	 */
+	@Deprecated
 	protected String popProfile() {
-		useDefaultProfile = false; //suspend use of the default profile
-		return profileStack.removeLast(); //pop the profile from the stack
+		throw new UnsupportedOperationException("Profile state is kept in a ProfileContext for each directory.");
 	}
 
 	/**
-	 * Default constructor. This class automatically registers the predefined profile as a value factory for standard value types.
+	 * Default constructor, decoding values as each line is processed. This class automatically registers the predefined profile as a value factory for standard
+	 * value types.
 	 */
 	public DirectoryProcessor() {
+		this(false);
+	}
+
+	/**
+	 * Lazy values constructor. This class automatically registers the predefined profile as a value factory for standard value types.
+	 * <p>
+	 * If values are lazy, each line is processed into a single {@link LazyContentLine} holding the undecoded value and its value type, and no value factory is
+	 * consulted until the value of the content line is retrieved. This saves processing when only a few of the content lines will be examined. Directories
+	 * created from lazy content lines will still have all their values decoded.
+	 * </p>
+	 * @param lazyValues <code>true</code> if values should be decoded only when first requested.
+	 * @see LazyContentLine
+	 */
+	public DirectoryProcessor(final boolean lazyValues) {
+		this.lazyValues = lazyValues;
 		//register the predefined profile as a value factory for the standard value types
 		registerValueFactory(URI_VALUE_TYPE, getPredefinedProfile());
 		registerValueFactory(TEXT_VALUE_TYPE, getPredefinedProfile());
@@ -165,15 +189,16 @@ public DirectoryProcessor() {
 		registerValueFactory(FLOAT_VALUE_TYPE, getPredefinedProfile());
 	}
 
-	/**
-	 * The delimiter characters separating the main components of a content line with no group provided (';', ':', CR, and LF).
-	 */
-	protected static final Characters GROUPLESS_CONTENT_LINE_DELIMITER_CHARACTERS = Characters.of(PARAM_SEPARATOR_CHAR, NAME_VALUE_SEPARATOR_CHAR, CR, LF);
+	/** Whether values are decoded only when first requested. */
+	private final boolean lazyValues;
 
 	/**
-	 * The delimiter characters separating the main components of a content line ('.', ';', ':', CR, and LF).
+	 * @return Whether content lines hold their undecoded values, which are only decoded when first requested.
+	 * @see #DirectoryProcessor(boolean)
 	 */
-	protected static final Characters CONTENT_LINE_DELIMITER_CHARACTERS = GROUPLESS_CONTENT_LINE_DELIMITER_CHARACTERS.add(GROUP_NAME_SEPARATOR_CHAR);
+	public boolean isLazyValues() {
+		return lazyValues;
+	}
 
 	/**
 	 * Processes the content lines from a directory of type <code>text/directory</code>.
@@ -196,8 +221,552 @@ public Directory processDirectory(final Reader reader, final Object sourceObject
 	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
 	 */
 	public Directory processDirectory(final Reader reader) throws IOException, ParseIOException {
+		return createDirectory(processContentLines(reader)); //process the content lines and create a directory from them
+	}
+
+	/**
+	 * Processes the content lines from a directory of type <code>text/directory</code> encoded in UTF-8, locating the components of each line in the bytes
+	 * themselves and decoding only the components used.
+	 * @param inputStream The input stream that contains the folded lines of the directory.
+	 * @return An object representing the directory.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see ByteContentLineLexer
+	 */
+	public Directory processDirectory(final InputStream inputStream) throws IOException, ParseIOException {
+		return createDirectory(processContentLines(new ByteContentLineLexer(inputStream))); //process the content lines and create a directory from them
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code>, such as a file containing many concatenated vCards. Each directory ends
+	 * with the "end:" content line that closes its outermost "begin:"/"end:" block; content lines not enclosed in any block are grouped into a directory ending
+	 * at the end of the reader.
+	 * <p>
+	 * Only the content lines of a single directory are held in memory at any time; they are released as soon as the directory has been created from them.
+	 * </p>
+	 * <p>
+	 * The returned stream reads from the reader as elements are consumed; I/O and parsing errors are reported as {@link UncheckedIOException}. The reader is not
+	 * closed by this method or by the returned stream.
+	 * </p>
+	 * @param reader The reader that contains the lines of the directories.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @see #processDirectoryContentLines(ContentLineLexer)
+	 * @see #createDirectory(ContentLine[])
+	 */
+	public Stream<Directory> processDirectories(final Reader reader) {
+		return processDirectories(new CharContentLineLexer(new LineUnfoldReader(reader))); //all the directories will share the same lexer
+	}
+
+	/**
+	 * Processes the content lines from a file containing a directory of type <code>text/directory</code> encoded in UTF-8. The file is mapped into memory
+	 * rather than read, and the components of each line are located in the mapped bytes themselves.
+	 * @param path The path of the file that contains the folded lines of the directory.
+	 * @return An object representing the directory.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see MappedContentLineLexer
+	 */
+	public Directory processDirectory(final Path path) throws IOException, ParseIOException {
+		try (final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return createDirectory(processContentLines(new MappedContentLineLexer(fileChannel))); //process the content lines and create a directory from them
+		}
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code> encoded in UTF-8, locating the components of each line in the bytes
+	 * themselves and decoding only the components used.
+	 * @param inputStream The input stream that contains the folded lines of the directories.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @see #processDirectories(Reader)
+	 * @see ByteContentLineLexer
+	 */
+	public Stream<Directory> processDirectories(final InputStream inputStream) {
+		return processDirectories(new ByteContentLineLexer(inputStream)); //all the directories will share the same lexer
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code> in a file encoded in UTF-8, such as a large exported address book. The file
+	 * is mapped into memory in segments rather than read, so files of any size are supported.
+	 * <p>
+	 * The returned stream holds the file open, and must be closed when no longer needed.
+	 * </p>
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @throws IOException Thrown if there is an error opening the file.
+	 * @see #processDirectories(Reader)
+	 * @see MappedContentLineLexer
+	 */
+	public Stream<Directory> processDirectories(final Path path) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+		return processDirectories(new MappedContentLineLexer(fileChannel)).onClose(() -> {
+			try {
+				fileChannel.close();
+			} catch(final IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code> encoded in UTF-8, processing only the content lines with the given type names.
+	 * All other content lines are skipped without lexing their parameters or processing their values.
+	 * @param inputStream The input stream that contains the folded lines of the directories.
+	 * @param typeNames The type names of the content lines to process, which will be matched without regard to case.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @see #processDirectories(InputStream)
+	 * @see ContentLineLexer#setProjection(Collection)
+	 */
+	public Stream<Directory> processDirectories(final InputStream inputStream, final Set<String> typeNames) {
+		final ContentLineLexer lexer = new ByteContentLineLexer(inputStream);
+		lexer.setProjection(typeNames);
+		return processDirectories(lexer);
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code> in a file encoded in UTF-8, processing only the content lines with the given
+	 * type names. All other content lines are skipped without lexing their parameters or processing their values.
+	 * <p>
+	 * The returned stream holds the file open, and must be closed when no longer needed.
+	 * </p>
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @param typeNames The type names of the content lines to process, which will be matched without regard to case.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @throws IOException Thrown if there is an error opening the file.
+	 * @see #processDirectories(Path)
+	 * @see ContentLineLexer#setProjection(Collection)
+	 */
+	public Stream<Directory> processDirectories(final Path path, final Set<String> typeNames) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+		final ContentLineLexer lexer = new MappedContentLineLexer(fileChannel);
+		lexer.setProjection(typeNames);
+		return processDirectories(lexer).onClose(() -> {
+			try {
+				fileChannel.close();
+			} catch(final IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+	}
+
+	/**
+	 * Lazily processes a series of directories of type <code>text/directory</code> from the content lines of a lexer.
+	 * @param lexer The lexer of the lines of the directories.
+	 * @return A sequential stream of the directories in the order they appear.
+	 * @see #processDirectories(Reader)
+	 */
+	public Stream<Directory> processDirectories(final ContentLineLexer lexer) {
+		return StreamSupport.stream(new Spliterators.AbstractSpliterator<Directory>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(final Consumer<? super Directory> action) {
+				final ContentLine[] contentLines;
+				try {
+					contentLines = processDirectoryContentLines(lexer);
+				} catch(final IOException ioException) {
+					throw new UncheckedIOException(ioException);
+				}
+				if(contentLines == null) { //if there are no more directories
+					return false;
+				}
+				action.accept(createDirectory(contentLines));
+				return true;
+			}
+		}, false);
+	}
+
+	/**
+	 * Leniently processes a series of directories of type <code>text/directory</code> from the content lines of a lexer, skipping any directory that cannot be
+	 * processed rather than aborting.
+	 * <p>
+	 * Each directory must begin with a "begin:" content line of the given profile. If a content line cannot be parsed, or a directory cannot be created from its
+	 * content lines, the error is reported to the given sink and the lines are skipped until the next "begin:" content line of the profile. Any other content
+	 * lines outside a directory are skipped as well, reporting a single error for each run of skipped lines. Because skipping content lines requires no
+	 * parsing beyond locating their names, dirty input is processed about as quickly as clean input.
+	 * </p>
+	 * <p>
+	 * An error reading the data, as opposed to interpreting it, is reported by the stream as an {@link UncheckedIOException}.
+	 * </p>
+	 * @param lexer The lexer of the lines of the directories.
+	 * @param profileName The name of the profile, such as "VCARD", of the "begin:" content lines that start each directory.
+	 * @param errorSink The consumer to receive a description of each error.
+	 * @return A sequential stream of the directories processed without error, in the order they appear.
+	 * @see ContentLineLexer#isBeginOf(String)
+	 */
+	public Stream<Directory> processDirectoriesLenient(final ContentLineLexer lexer, final String profileName,
+			final Consumer<? super DirectoryParseError> errorSink) {
+		requireNonNull(profileName);
+		requireNonNull(errorSink);
+		return StreamSupport.stream(new Spliterators.AbstractSpliterator<Directory>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			/** The index of the next directory, including directories that could not be processed. */
+			private long directoryIndex = 0;
+
+			@Override
+			public boolean tryAdvance(final Consumer<? super Directory> action) {
+				boolean skipping = false; //whether lines are being skipped after an error has been reported
+				try {
+					while(true) { //look for the beginning of the next directory
+						try {
+							if(!lexer.nextLine()) { //if there are no more directories
+								return false;
+							}
+						} catch(final ParseEOFException parseEOFException) { //there is nothing left to recover
+							if(!skipping) {
+								errorSink.accept(new DirectoryParseError(directoryIndex, lexer, parseEOFException));
+							}
+							return false;
+						} catch(final ParseIOException parseIOException) { //the lexer has already skipped the offending line
+							if(!skipping) {
+								errorSink.accept(new DirectoryParseError(directoryIndex, lexer, parseIOException));
+								skipping = true;
+							}
+							continue;
+						}
+						if(lexer.isBlank()) { //whitespace between directories is allowed
+							continue;
+						}
+						if(lexer.isBeginOf(profileName)) { //process the directory this line begins
+							final Directory directory;
+							try {
+								directory = createDirectory(processDirectoryContentLines(lexer, true));
+							} catch(final ParseEOFException parseEOFException) { //there is nothing left to recover
+								errorSink.accept(new DirectoryParseError(directoryIndex++, lexer, parseEOFException));
+								return false;
+							} catch(final ParseIOException | RuntimeException exception) { //skip this directory
+								errorSink.accept(new DirectoryParseError(directoryIndex++, lexer, exception));
+								skipping = true;
+								continue;
+							}
+							++directoryIndex;
+							action.accept(directory);
+							return true;
+						}
+						if(!skipping) { //report the first stray content line
+							errorSink.accept(new DirectoryParseError(directoryIndex, lexer,
+									new ParseIOException("Content line outside of a " + profileName + " directory.", lexer.getLineIndex(), 0))); //TODO i18n
+							skipping = true;
+						}
+					}
+				} catch(final IOException ioException) {
+					throw new UncheckedIOException(ioException);
+				}
+			}
+		}, false);
+	}
+
+	/** The smallest section of a file, in bytes, that will be processed on its own when processing directories in parallel. */
+	public static final long MIN_PARALLEL_CHUNK_SIZE = 1024 * 1024;
+
+	/** The number of bytes read at a time when searching for the start of a directory. */
+	private static final int DIRECTORY_SCAN_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Processes all the directories of type <code>text/directory</code> in a file encoded in UTF-8, such as a large exported address book, using multiple
+	 * threads. The file is divided into chunks that each begin with a "begin:" content line of the given profile, and the chunks are processed concurrently.
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @param profileName The name of the profile, such as "VCARD", of the "begin:" content lines that start each directory.
+	 * @param pool The pool in which to process the chunks of the file.
+	 * @return The directories, in the order they appear in the file.
+	 * @throws IOException Thrown if there is an error reading the directories.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directories.
+	 * @see #processDirectoriesParallel(Path, String, ForkJoinPool, long)
+	 */
+	public List<Directory> processDirectoriesParallel(final Path path, final String profileName, final ForkJoinPool pool) throws IOException, ParseIOException {
+		return processDirectoriesParallel(path, profileName, pool, lexer -> {});
+	}
+
+	/**
+	 * Processes all the directories of type <code>text/directory</code> in a file encoded in UTF-8 using multiple threads, configuring the lexer of each chunk of
+	 * the file, such as to set a projection.
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @param profileName The name of the profile, such as "VCARD", of the "begin:" content lines that start each directory.
+	 * @param pool The pool in which to process the chunks of the file.
+	 * @param lexerConfigurer The consumer to configure the lexer of each chunk before it is used.
+	 * @return The directories, in the order they appear in the file.
+	 * @throws IOException Thrown if there is an error reading the directories.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directories.
+	 * @see #processDirectoriesParallel(Path, String, ForkJoinPool, long, Consumer)
+	 */
+	public List<Directory> processDirectoriesParallel(final Path path, final String profileName, final ForkJoinPool pool,
+			final Consumer<? super ContentLineLexer> lexerConfigurer) throws IOException, ParseIOException {
+		final long size = java.nio.file.Files.size(path);
+		final long chunkSize = Math.max(size / (pool.getParallelism() * 4L), MIN_PARALLEL_CHUNK_SIZE); //use several chunks per thread to even out the load
+		return processDirectoriesParallel(path, profileName, pool, chunkSize, lexerConfigurer);
+	}
+
+	/**
+	 * Processes all the directories of type <code>text/directory</code> in a file encoded in UTF-8 using multiple threads, dividing the file into chunks of
+	 * approximately the given size.
+	 * <p>
+	 * Each chunk begins at the start of a line consisting of "begin:" and the given profile name, compared without regard to case. Because a folded line always
+	 * continues with whitespace, a continuation line is never mistaken for the beginning of a directory; a line following a quoted-printable soft line break is
+	 * recognized by lexing the preceding lines; if those lines reach too far back to be lexed, the line is not used to begin a chunk. Each chunk is processed in
+	 * the given pool by its own {@link MappedContentLineLexer}. If a chunk has an error, that chunk is lexed again starting from the number of content lines in
+	 * the preceding chunks, so that the line numbers reported are relative to the beginning of the file.
+	 * </p>
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @param profileName The name of the profile, such as "VCARD", of the "begin:" content lines that start each directory.
+	 * @param pool The pool in which to process the chunks of the file.
+	 * @param chunkSize The approximate number of bytes in each chunk.
+	 * @return The directories, in the order they appear in the file.
+	 * @throws IllegalArgumentException if the given chunk size is not positive.
+	 * @throws IOException Thrown if there is an error reading the directories.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directories.
+	 */
+	public List<Directory> processDirectoriesParallel(final Path path, final String profileName, final ForkJoinPool pool, final long chunkSize)
+			throws IOException, ParseIOException {
+		return processDirectoriesParallel(path, profileName, pool, chunkSize, lexer -> {});
+	}
+
+	/**
+	 * Processes all the directories of type <code>text/directory</code> in a file encoded in UTF-8 using multiple threads, dividing the file into chunks of
+	 * approximately the given size and configuring the lexer of each chunk, such as to set a projection.
+	 * @param path The path of the file that contains the folded lines of the directories.
+	 * @param profileName The name of the profile, such as "VCARD", of the "begin:" content lines that start each directory.
+	 * @param pool The pool in which to process the chunks of the file.
+	 * @param chunkSize The approximate number of bytes in each chunk.
+	 * @param lexerConfigurer The consumer to configure the lexer of each chunk before it is used.
+	 * @return The directories, in the order they appear in the file.
+	 * @throws IllegalArgumentException if the given chunk size is not positive.
+	 * @throws IOException Thrown if there is an error reading the directories.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directories.
+	 * @see #processDirectoriesParallel(Path, String, ForkJoinPool, long)
+	 */
+	public List<Directory> processDirectoriesParallel(final Path path, final String profileName, final ForkJoinPool pool, final long chunkSize,
+			final Consumer<? super ContentLineLexer> lexerConfigurer) throws IOException, ParseIOException {
+		if(chunkSize <= 0) {
+			throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+		}
+		final byte[] beginBytes = (BEGIN_TYPE + NAME_VALUE_SEPARATOR_CHAR + profileName).toUpperCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+		try (final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = fileChannel.size();
+			final List<Long> chunkStarts = new ArrayList<>();
+			final List<ForkJoinTask<ProcessedChunk>> tasks = new ArrayList<>();
+			long start = 0; //the first chunk starts at the beginning of the file, even if there is something before the first directory
+			while(start < size) {
+				final long end = start + chunkSize < size ? findDirectoryStart(fileChannel, start + chunkSize, beginBytes) : size;
+				final long chunkStart = start;
+				chunkStarts.add(chunkStart);
+				tasks.add(pool.submit(() -> {
+					try {
+						return processChunk(fileChannel, chunkStart, end, 0, lexerConfigurer);
+					} catch(final IOException ioException) {
+						throw new UncheckedIOException(ioException);
+					}
+				}));
+				start = end;
+			}
+			final List<Directory> directories = new ArrayList<>();
+			long lineOffset = 0; //the number of content lines in the chunks already gathered
+			for(int chunkIndex = 0; chunkIndex < tasks.size(); chunkIndex++) { //gather the results in the order of the chunks
+				try {
+					final ProcessedChunk chunk = tasks.get(chunkIndex).get();
+					directories.addAll(chunk.getDirectories());
+					lineOffset += chunk.getLineCount();
+				} catch(final InterruptedException interruptedException) {
+					tasks.forEach(unfinishedTask -> unfinishedTask.cancel(false));
+					Thread.currentThread().interrupt();
+					throw (IOException)new InterruptedIOException("Interrupted while processing directories.").initCause(interruptedException);
+				} catch(final ExecutionException executionException) {
+					tasks.forEach(unfinishedTask -> unfinishedTask.cancel(false)); //don't keep processing a file that has an error
+					Throwable cause = executionException.getCause();
+					if(cause instanceof UncheckedIOException) {
+						cause = cause.getCause();
+					}
+					if(cause instanceof ParseIOException && lineOffset > 0) { //lex the chunk again from its line in the file, which will report the same error
+						final long chunkEnd = chunkIndex + 1 < chunkStarts.size() ? chunkStarts.get(chunkIndex + 1) : size;
+						processChunk(fileChannel, chunkStarts.get(chunkIndex), chunkEnd, lineOffset, lexerConfigurer);
+					}
+					if(cause instanceof IOException) {
+						throw (IOException)cause;
+					}
+					if(cause instanceof RuntimeException) {
+						throw (RuntimeException)cause;
+					}
+					if(cause instanceof Error) {
+						throw (Error)cause;
+					}
+					throw new IOException(cause);
+				}
+			}
+			return directories;
+		}
+	}
+
+	/**
+	 * Processes the directories in a section of a file encoded in UTF-8.
+	 * @param fileChannel The channel of the file that contains the folded lines of the directories.
+	 * @param start The file offset of the beginning of the section.
+	 * @param end The file offset one past the end of the section.
+	 * @param firstLineIndex The zero-based index in the file of the first content line of the section.
+	 * @param lexerConfigurer The consumer to configure the lexer before it is used.
+	 * @return The directories of the section, along with the number of content lines in the section.
+	 * @throws IOException Thrown if there is an error reading the directories.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directories.
+	 */
+	private ProcessedChunk processChunk(final FileChannel fileChannel, final long start, final long end, final long firstLineIndex,
+			final Consumer<? super ContentLineLexer> lexerConfigurer) throws IOException, ParseIOException {
+		final ContentLineLexer lexer = new MappedContentLineLexer(fileChannel, start, end);
+		lexer.setFirstLineIndex(firstLineIndex);
+		lexerConfigurer.accept(lexer);
+		final List<Directory> directories;
+		try (final Stream<Directory> directoryStream = processDirectories(lexer)) {
+			directories = directoryStream.collect(Collectors.toList());
+		} catch(final UncheckedIOException uncheckedIOException) {
+			throw uncheckedIOException.getCause();
+		}
+		return new ProcessedChunk(directories, lexer.getLineIndex() + 1 - firstLineIndex);
+	}
+
+	/** The directories processed from a section of a file. */
+	private static final class ProcessedChunk {
+
+		/** The directories, in the order they appear in the section. */
+		private final List<Directory> directories;
+
+		/** @return The directories, in the order they appear in the section. */
+		public List<Directory> getDirectories() {
+			return directories;
+		}
+
+		/** The number of unfolded content lines in the section. */
+		private final long lineCount;
+
+		/** @return The number of unfolded content lines in the section. */
+		public long getLineCount() {
+			return lineCount;
+		}
+
+		/**
+		 * Constructor.
+		 * @param directories The directories, in the order they appear in the section.
+		 * @param lineCount The number of unfolded content lines in the section.
+		 */
+		public ProcessedChunk(final List<Directory> directories, final long lineCount) {
+			this.directories = directories;
+			this.lineCount = lineCount;
+		}
+
+	}
+
+	/**
+	 * Finds the beginning of the first directory starting after the given file offset. A directory begins at a line starting with the given bytes, compared
+	 * without regard to ASCII case, followed by CR.
+	 * @param fileChannel The channel of the file to search.
+	 * @param offset The file offset at or after which the directory should begin; must be positive.
+	 * @param beginBytes The uppercase bytes of the "begin:" content line, without the ending CRLF.
+	 * @return The file offset of the beginning of the next directory, or the size of the file if there are no more directories.
+	 * @throws IOException if there is an error reading the file.
+	 */
+	protected static long findDirectoryStart(final FileChannel fileChannel, final long offset, final byte[] beginBytes) throws IOException {
+		final long size = fileChannel.size();
+		final ByteBuffer buffer = ByteBuffer.allocate(DIRECTORY_SCAN_BUFFER_SIZE);
+		final byte[] bytes = buffer.array();
+		long bufferOffset = offset - 1; //include the preceding byte so that a line starting exactly at the offset is found
+		while(bufferOffset < size) {
+			buffer.clear();
+			while(buffer.hasRemaining() && fileChannel.read(buffer, bufferOffset + buffer.position()) >= 0) {}
+			final int length = buffer.position();
+			final boolean isEnd = bufferOffset + length >= size; //whether the buffer reaches the end of the file
+			int index = 0;
+			for(; index < length; index++) {
+				if(bytes[index] != LF) {
+					continue;
+				}
+				final int lineStart = index + 1;
+				if(lineStart + beginBytes.length >= length && !isEnd) { //if we need more bytes to check this line, read them starting at the LF
+					break;
+				}
+				if(isLineStart(bytes, lineStart, length, beginBytes)
+						&& ((lineStart >= 3 && bytes[lineStart - 3] != ContentLineLexer.QUOTED_PRINTABLE_ESCAPE_CHAR) || isContentLineStart(fileChannel, bufferOffset + lineStart))) {
+					return bufferOffset + lineStart;
+				}
+			}
+			bufferOffset += index; //continue with the unchecked line, if any
+		}
+		return size;
+	}
+
+	/**
+	 * Determines whether a physical line of a file begins a content line, rather than continuing a quoted-printable value after a soft line break (vCard 2.1).
+	 * The preceding lines that end in '=' or that are folded are lexed, to see whether they form a complete content line ending before the given line.
+	 * @param fileChannel The channel of the file to search.
+	 * @param lineOffset The file offset of the beginning of a physical line.
+	 * @return <code>true</code> if the line is known to begin a content line, or <code>false</code> if the line continues a content line or if that cannot be
+	 *         determined within a reasonable number of preceding bytes.
+	 * @throws IOException if there is an error reading the file.
+	 */
+	private static boolean isContentLineStart(final FileChannel fileChannel, final long lineOffset) throws IOException {
+		final long windowOffset = Math.max(lineOffset - DIRECTORY_SCAN_BUFFER_SIZE, 0);
+		final ByteBuffer buffer = ByteBuffer.allocate((int)(lineOffset - windowOffset));
+		while(buffer.hasRemaining() && fileChannel.read(buffer, windowOffset + buffer.position()) >= 0) {}
+		final byte[] bytes = buffer.array();
+		final int end = buffer.position();
+		int start = end; //the beginning of the earliest line that may be part of the same content line
+		while(start >= 3 && bytes[start - 1] == LF && bytes[start - 2] == CR
+				&& (bytes[start - 3] == ContentLineLexer.QUOTED_PRINTABLE_ESCAPE_CHAR || (start < end && (bytes[start] == SP || bytes[start] == HTAB)))) {
+			int previousStart = start - 3;
+			while(previousStart > 0 && bytes[previousStart - 1] != LF) {
+				--previousStart;
+			}
+			if(previousStart == 0 && windowOffset > 0) { //if the line may begin before the bytes we have, don't risk splitting a content line
+				return false;
+			}
+			start = previousStart;
+		}
+		if(start == end) { //if the given line doesn't follow a possible soft line break
+			return true;
+		}
+		final ContentLineLexer lexer = new ByteContentLineLexer(ByteBuffer.wrap(bytes, start, end - start));
+		while(true) {
+			try {
+				if(!lexer.nextLine()) { //if the content lines end with the preceding line
+					return true;
+				}
+			} catch(final ParseEOFException parseEOFException) { //if the last content line continues into the given line
+				return false;
+			} catch(final ParseIOException parseIOException) { //the lexer has skipped the offending line
+			}
+		}
+	}
+
+	/**
+	 * Determines whether the given bytes start with the given uppercase bytes, ignoring ASCII case, followed by CR.
+	 * @param bytes The bytes to check.
+	 * @param start The index of the first byte to check.
+	 * @param end The index one past the last valid byte.
+	 * @param lineStartBytes The uppercase bytes with which the line should begin.
+	 * @return <code>true</code> if the bytes begin with the given bytes followed by CR.
+	 */
+	private static boolean isLineStart(final byte[] bytes, final int start, final int end, final byte[] lineStartBytes) {
+		if(start + lineStartBytes.length >= end) {
+			return false;
+		}
+		for(int i = 0; i < lineStartBytes.length; i++) {
+			byte b = bytes[start + i];
+			if(b >= 'a' && b <= 'z') {
+				b -= 'a' - 'A';
+			}
+			if(b != lineStartBytes[i]) {
+				return false;
+			}
+		}
+		return bytes[start + lineStartBytes.length] == CR;
+	}
+
+	/**
+	 * Creates a directory from the content lines of a directory of type <code>text/directory</code>. The first profile encountered that can create a directory
+	 * object will be used to create the directory object. Otherwise, the predefined profile will be used to create a default directory object containing the
+	 * content lines.
+	 * <p>
+	 * Any lazy content lines will be decoded first, and replaced with a content line for each value. Any error decoding a lazy value will be reported as an
+	 * {@link UncheckedIOException}.
+	 * </p>
+	 * @param contentLines The content lines that make up the directory.
+	 * @return An object representing the directory.
+	 */
+	public Directory createDirectory(ContentLine[] contentLines) {
+		contentLines = LazyContentLine.decode(contentLines); //profiles expect one content line for each value
 		final Set<String> checkedProfileNameSet = new HashSet<String>(); //create a set to store the profile names we check
-		final ContentLine[] contentLines = processContentLines(reader); //process the content lines
 		for(int i = 0; i < contentLines.length; ++i) { //look at each content line
 			final String profileName = contentLines[i].getProfile(); //get this line's profile name
 			if(profileName != null && !checkedProfileNameSet.contains(profileName)) { //if this content line is in a profile that we haven't checked
@@ -223,183 +792,332 @@ public Directory processDirectory(final Reader reader) throws IOException, Parse
 	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
 	 */
 	public ContentLine[] processContentLines(final Reader reader) throws IOException, ParseIOException {
-		profileStack = new LinkedList<String>(); //create a new profile stack
-		defaultProfile = null; //show that there is no default profile
-		useDefaultProfile = false; //don't use the default profile
+		return processContentLines(new CharContentLineLexer(reader));
+	}
+
+	/**
+	 * Retrieves content lines from a directory of type <code>text/directory</code>.
+	 * @param lexer The lexer of the lines of the directory.
+	 * @return An array of content lines in the directory.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public ContentLine[] processContentLines(final ContentLineLexer lexer) throws IOException, ParseIOException {
 		final List<ContentLine> contentLineList = new ArrayList<ContentLine>(); //create an array in which to told the content lines
-		ContentLine[] contentLines;
-		while((contentLines = processContentLine(reader)) != null) { //process one or more lines of contents, all of which should have the same type, while we haven't reached the end of the reader
+		processContentLines(lexer, contentLineList::add); //collect all the content lines
+		return contentLineList.toArray(new ContentLine[contentLineList.size()]); //return the content lines we processed				
+	}
+
+	/**
+	 * Processes content lines from a directory of type <code>text/directory</code>, reporting each to the given handler as soon as it is parsed. No content
+	 * lines are retained after they have been reported.
+	 * <p>
+	 * If the handler returns normally from {@link ContentLineHandler#error(ParseIOException)}, the offending line is skipped and processing continues with the
+	 * next line. Reaching the end of the reader unexpectedly always aborts processing.
+	 * </p>
+	 * @param reader The reader that contains the lines of the directory.
+	 * @param handler The handler to be notified of the content lines and profile blocks.
+	 * @throws IOException Thrown if there is an error reading the directory or the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public void processContentLines(final Reader reader, final ContentLineHandler handler) throws IOException, ParseIOException {
+		processContentLines(new CharContentLineLexer(reader), handler);
+	}
+
+	/**
+	 * Processes content lines from a directory of type <code>text/directory</code>, reporting each to the given handler as soon as it is parsed.
+	 * @param lexer The lexer of the lines of the directory.
+	 * @param handler The handler to be notified of the content lines and profile blocks.
+	 * @throws IOException Thrown if there is an error reading the directory or the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see #processContentLines(Reader, ContentLineHandler)
+	 */
+	public void processContentLines(final ContentLineLexer lexer, final ContentLineHandler handler) throws IOException, ParseIOException {
+		processContentLines(lexer, new ProfileContext(), handler); //keep track of the profile for this directory only
+	}
+
+	/**
+	 * Processes content lines from a directory of type <code>text/directory</code> using an existing profile state, reporting each to the given handler as soon
+	 * as it is parsed. This allows the lines of a single directory to be processed in several sections, such as when the lines arrive incrementally.
+	 * @param lexer The lexer of the lines of the directory.
+	 * @param context The profile state of the directory being processed, which will be updated.
+	 * @param handler The handler to be notified of the content lines and profile blocks.
+	 * @throws IOException Thrown if there is an error reading the directory or the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see #processContentLines(Reader, ContentLineHandler)
+	 * @see IncrementalDirectoryParser
+	 */
+	public void processContentLines(final ContentLineLexer lexer, final ProfileContext context, final ContentLineHandler handler)
+			throws IOException, ParseIOException {
+		while(true) {
+			final ContentLine[] contentLines;
+			try {
+				contentLines = processContentLine(lexer, context); //process one or more lines of contents, all of which should have the same type
+			} catch(final ParseEOFException parseEOFException) { //there is nothing left to recover
+				throw parseEOFException;
+			} catch(final ParseIOException parseIOException) { //the lexer has already skipped the offending line
+				handler.error(parseIOException); //let the handler decide whether to continue
+				continue;
+			}
+			if(contentLines == null) { //if we reached the end of the reader
+				break;
+			}
 			for(final ContentLine contentLine : contentLines) { //look at each line of content
-				//TODO del Log.trace("just processed content line: ", contentLine);	//TODO del
-				final String typeName = contentLine.getName(); //get the type
-				/*TODO del when works
-									if(NAME_TYPE.equalsIgnoreCase(typeName)) {	//if this is NAME
-										if(directory.getName()==null) {	//if the directory does not yet have a name
-											directory.setName((String)contentLine.getValue());	//get the directory name
-										}
-									}
-				*/
-				if(PROFILE_TYPE.equalsIgnoreCase(typeName)) { //if this is PROFILE
-					final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
-					contentLine.setProfile(profile); //a profile type should have the same profile as the one it sets
-					setProfile(profile); //set the profile to the new profile
-				} else if(BEGIN_TYPE.equalsIgnoreCase(typeName)) { //if this is BEGIN:xxx
-					final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
-					contentLine.setProfile(profile); //a beginning profile type should have the same profile as the one it sets
-					pushProfile(profile); //push the new profile
-				} else if(END_TYPE.equalsIgnoreCase(typeName)) { //if this is END:xxx
-					final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
-					contentLine.setProfile(profile); //an ending profile type should have the same profile to which it refers
-					try {
-						final String oldProfile = popProfile(); //pop the profile from the stack
-						//TODO make sure the old profile is what we expect
-					} catch(final NoSuchElementException noSuchElementException) { //if there are no more profiles on the stack
-						throw new ParseIOException(reader, "Profile \"" + profile + "\" END without BEGIN."); //throw an error indicating that there was no beginning to the profile
-					}
+				try {
+					processProfileContentLine(contentLine, context, lexer); //update the profile if needed
+				} catch(final ParseIOException parseIOException) { //the line itself has already been consumed
+					handler.error(parseIOException); //let the handler decide whether to continue
+					continue;
+				}
+				final String typeName = contentLine.getName();
+				if(BEGIN_TYPE.equalsIgnoreCase(typeName)) {
+					handler.beginProfile(contentLine.getProfile());
+					handler.contentLine(contentLine);
+				} else if(END_TYPE.equalsIgnoreCase(typeName)) {
+					handler.contentLine(contentLine);
+					handler.endProfile(contentLine.getProfile());
+				} else {
+					handler.contentLine(contentLine);
 				}
-				contentLineList.add(contentLine); //add this content line to the list of content lines
 			}
 		}
-		profileStack = null; //release the profile stack
-		defaultProfile = null; //show that there is no default profile
-		useDefaultProfile = false; //don't use the default profile
-		return contentLineList.toArray(new ContentLine[contentLineList.size()]); //return the content lines we processed				
+	}
+
+	/**
+	 * Retrieves the content lines of the next directory from a series of directories of type <code>text/directory</code>. The directory ends with the "end:"
+	 * content line that closes its outermost "begin:"/"end:" block, or at the end of the reader if the content lines are not enclosed in a block. Lines
+	 * containing only whitespace between directories are skipped.
+	 * <p>
+	 * This method will usually be called repeatedly with the same lexer, which should lex the lines of a reader that already unfolds lines.
+	 * </p>
+	 * @param lexer The lexer of the lines of the directories.
+	 * @return The content lines of the next directory, or <code>null</code> if there are no more directories.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see LineUnfoldReader
+	 */
+	public ContentLine[] processDirectoryContentLines(final ContentLineLexer lexer) throws IOException, ParseIOException {
+		return processDirectoryContentLines(lexer, false);
+	}
+
+	/**
+	 * Retrieves the content lines of the next directory from a series of directories of type <code>text/directory</code>, optionally starting with the content
+	 * line the lexer has already lexed.
+	 * @param lexer The lexer of the lines of the directories.
+	 * @param lexed Whether the current content line of the lexer, which must have been lexed without error, is the first content line of the directory.
+	 * @return The content lines of the next directory, or <code>null</code> if there are no more directories.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see #processDirectoryContentLines(ContentLineLexer)
+	 */
+	private ContentLine[] processDirectoryContentLines(final ContentLineLexer lexer, final boolean lexed) throws IOException, ParseIOException {
+		final ProfileContext context = new ProfileContext(); //keep track of the profile for this directory only
+		final List<ContentLine> contentLineList = new ArrayList<ContentLine>(); //only the lines of this directory will be collected
+		ContentLine[] contentLines = lexed ? processLexedContentLine(lexer, context) : processContentLine(lexer, context);
+		for(; contentLines != null; contentLines = processContentLine(lexer, context)) { //process lines until the end of the reader, unless we finish a directory first
+			for(final ContentLine contentLine : contentLines) {
+				processProfileContentLine(contentLine, context, lexer); //update the profile if needed
+				contentLineList.add(contentLine);
+			}
+			if(contentLines.length > 0 && context.isTopLevel() && END_TYPE.equalsIgnoreCase(contentLines[0].getName())) { //if we just closed the outermost block
+				break; //the directory is complete
+			}
+		}
+		return !contentLineList.isEmpty() ? contentLineList.toArray(new ContentLine[contentLineList.size()]) : null;
+	}
+
+	/**
+	 * Updates the current profile based upon a "profile:", "begin:", or "end:" content line, setting the profile of the content line itself as appropriate. Other
+	 * content lines are ignored.
+	 * @param contentLine The content line just processed.
+	 * @param context The profile state of the directory being processed.
+	 * @param lexer The lexer of the lines of the directory, used for error reporting.
+	 * @throws ParseIOException Thrown if an "end:" content line has no corresponding "begin:" content line.
+	 */
+	protected void processProfileContentLine(final ContentLine contentLine, final ProfileContext context, final ContentLineLexer lexer)
+			throws ParseIOException {
+		final String typeName = contentLine.getName(); //get the type
+		if(PROFILE_TYPE.equalsIgnoreCase(typeName)) { //if this is PROFILE
+			final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
+			contentLine.setProfile(profile); //a profile type should have the same profile as the one it sets
+			context.setProfile(profile); //set the profile to the new profile
+		} else if(BEGIN_TYPE.equalsIgnoreCase(typeName)) { //if this is BEGIN:xxx
+			final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
+			contentLine.setProfile(profile); //a beginning profile type should have the same profile as the one it sets
+			context.pushProfile(profile); //push the new profile
+		} else if(END_TYPE.equalsIgnoreCase(typeName)) { //if this is END:xxx
+			final String profile = ((LocaledText)contentLine.getValue()).getText(); //get the profile
+			contentLine.setProfile(profile); //an ending profile type should have the same profile to which it refers
+			try {
+				final String oldProfile = context.popProfile(); //pop the profile from the stack
+				//TODO make sure the old profile is what we expect
+			} catch(final NoSuchElementException noSuchElementException) { //if there are no more profiles on the stack
+				throw new ParseIOException("Profile \"" + profile + "\" END without BEGIN.", lexer.getLineIndex(), 0); //throw an error indicating that there was no beginning to the profile
+			}
+		}
 	}
 
 	/**
 	 * Retrieves one or more content lines from a directory, all of which will have the same type name. If the parsed content line has multiple values, a new
-	 * identical content line will be created for to contain each value, differing only in the value. If the content line has only whitespace, an empty array will
-	 * be returned. If there are no content lines before the end of the reader is reached, <code>null</code> will be returned.
-	 * @param reader The reader that contains the lines of the directory.
+	 * identical content line will be created for to contain each value, differing only in the value. If the content line has only whitespace or was skipped
+	 * because it is not wanted by the lexer, an empty array will be returned. If there are no content lines before the end of the reader is reached, <code>null</code> will be returned.
+	 * @param lexer The lexer of the lines of the directory.
+	 * @param context The profile state of the directory being processed.
 	 * @return A one or more content lines from the directory (an empty array if the line contained only whitespace), or <code>null</code> if there are no more
 	 *         content lines.
 	 * @throws IOException Thrown if there is an error reading the directory.
 	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
 	 */
-	public ContentLine[] processContentLine(final Reader reader) throws IOException, ParseIOException {
-		String profile = getProfile(); //get the current profile, if there is one
-		String group = null; //we'll store the group here
-		String name = null; //we'll store the name here
-		List<NameValuePair<String, String>> paramList = null; //we'll store parameters here, if we have any
-
-		String token = readUntil(reader, CONTENT_LINE_DELIMITER_CHARACTERS); //read the next line token; don't throw an exception if the end of the file is reached, because this could be an empty line
-		final int c = reader.read(); //get the delimiter character we encountered
-		if(c < 0) { //if we reached the end of the file
-			if(token.trim().length() > 0) { //if there is non-whitespace content before the end of the line, but none of the other delimiters we expect, there's a syntax error in the line
-				throw new ParseEOFException(reader); //show that we didn't expect to run out of data here
-			} else { //if this was an empty line
-				if(token.isEmpty()) { //if no characters were read before the end of the line
-					return null; //the end of the reader was reached
-				} else { //if only whitespace was read
-					return new ContentLine[0]; //return an empty content line indicator
-				}
-			}
+	public ContentLine[] processContentLine(final ContentLineLexer lexer, final ProfileContext context) throws IOException, ParseIOException {
+		if(!lexer.nextLine()) { //if we reached the end of the reader
+			return null;
 		}
-		char character = (char)c;
-		if(character == GROUP_NAME_SEPARATOR_CHAR) { //if we just read a group
-			//TODO check the syntax of the group
-			group = token; //save the group we read
-			//TODO del Log.trace("found group: ", group);
-			token = readUntilRequired(reader, GROUPLESS_CONTENT_LINE_DELIMITER_CHARACTERS); //read the next line token after the group, which should be the name
-			character = readRequired(reader); //get the delimiter character we encountered, and fall through to checking the name
+		return processLexedContentLine(lexer, context);
+	}
+
+	/**
+	 * Retrieves one or more content lines from the content line the lexer has just lexed, all of which will have the same type name.
+	 * @param lexer The lexer positioned at a content line lexed without error.
+	 * @param context The profile state of the directory being processed.
+	 * @return A one or more content lines from the directory, or an empty array if the line contained only whitespace or was skipped.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see #processContentLine(ContentLineLexer, ProfileContext)
+	 */
+	protected ContentLine[] processLexedContentLine(final ContentLineLexer lexer, final ProfileContext context) throws IOException, ParseIOException {
+		if(lexer.isBlank() || lexer.isSkipped()) { //if the line contained only whitespace or was not wanted
+			return new ContentLine[0]; //return an empty content line indicator
 		}
-		switch(character) { //see which delimiter character we encountered
-			case PARAM_SEPARATOR_CHAR: //if we just read a parameter separator
-			case NAME_VALUE_SEPARATOR_CHAR: //if we just read the character separates the name from the value
-				//TODO check the name
-				name = token; //this is the name
-				//		TODO del Log.trace("found name: ", name);
-				if(character == PARAM_SEPARATOR_CHAR) { //if this was the character separating the name from parameters, read the parameters
-					paramList = processParameters(reader); //process the parameters
-					confirm(reader, NAME_VALUE_SEPARATOR_CHAR); //read the ':' that we expect to come after the parameters
-					//					reader.readExpectedChar(NAME_VALUE_SEPARATOR_CHAR); //read the ':' that we expect to come after the parameters
-				} else { //if there were no parameters
-					paramList = new ArrayList<NameValuePair<String, String>>(); //create an empty list, since we didn't read any parameters
-				}
-				//		TODO del Log.trace("ready to process value");
-				final Object[] values = processValue(profile, group, name, paramList, reader); //process the value and get an object that represents the object
-				check(reader, CRLF); //there should always be a CRLF after the value
-				final ContentLine[] contentLines = new ContentLine[values.length]; //create an array of content lines that we'll fill with new content lines
-				for(int i = 0; i < values.length; ++i) { //look at each value
-					contentLines[i] = new ContentLine(profile, group, name, new ArrayList<NameValuePair<String, String>>(paramList), values[i]); //create a content line with this value, making a copy of the parameter list
-				}
-				return contentLines; //return the array of content lines we created and filled
-			case CR: //if we just read a carriage return
-				if(token.trim().length() > 0) { //if there is content before the CRLF, but none of the other delimiters we expect, there's a syntax error in the line
-					throw new ParseUnexpectedDataException(reader, Characters.of(PARAM_SEPARATOR_CHAR, NAME_VALUE_SEPARATOR_CHAR), character); //show that we didn't expect this character here
-				}
-				check(reader, LF); //there should always be an LF after a CR
-				return new ContentLine[0]; //return an empty content line indicator
-			case LF: //if we see an LF before a CR
-			default: //if we read anything else (there shouldn't be anything else unless there is a logic error)					
-				throw new ParseUnexpectedDataException(reader, Characters.of(PARAM_SEPARATOR_CHAR, NAME_VALUE_SEPARATOR_CHAR), character); //show that we didn't expect this character here
+		final String profile = context.getProfile(); //get the current profile, if there is one
+		//TODO check the group and name
+		final String group = lexer.getGroup();
+		final String name = lexer.getName();
+		final ParamList paramList = lexer.getParamList(); //all the values of the line will share the parameters
+		if(isLazyValues()) { //if values should be decoded later, keep a copy of the undecoded value
+			final CharBuffer value = lexer.decodeValue();
+			final char[] valueChars = Arrays.copyOfRange(value.array(), value.arrayOffset() + value.position(), value.arrayOffset() + value.limit());
+			return new ContentLine[] {
+					new LazyContentLine(this, profile, group, name, paramList, getValueType(profile, group, name, paramList), CharBuffer.wrap(valueChars))};
 		}
+		final Object[] values = processValue(profile, group, name, paramList, lexer); //process the value and get an object that represents the object
+		final ContentLine[] contentLines = new ContentLine[values.length]; //create an array of content lines that we'll fill with new content lines
+		for(int i = 0; i < values.length; ++i) { //look at each value
+			contentLines[i] = new ContentLine(profile, group, name, paramList, values[i]); //create a content line with this value, sharing the immutable parameter list
+		}
+		return contentLines; //return the array of content lines we created and filled
 	}
 
+	/**
+	 * The delimiter characters separating the main components of a content line with no group provided (';', ':', CR, and LF).
+	 * @deprecated Content lines are now lexed by a {@link ContentLineLexer}.
+	 */
+	@Deprecated
+	protected static final Characters GROUPLESS_CONTENT_LINE_DELIMITER_CHARACTERS = Characters.of(PARAM_SEPARATOR_CHAR, NAME_VALUE_SEPARATOR_CHAR, CR, LF);
+
+	/**
+	 * The delimiter characters separating the main components of a content line ('.', ';', ':', CR, and LF).
+	 * @deprecated Content lines are now lexed by a {@link ContentLineLexer}.
+	 */
+	@Deprecated
+	protected static final Characters CONTENT_LINE_DELIMITER_CHARACTERS = GROUPLESS_CONTENT_LINE_DELIMITER_CHARACTERS.add(GROUP_NAME_SEPARATOR_CHAR);
+
 	/**
 	 * After reading the parameter name, we expect either a parameter name-value separator ('=') indicating a value, the parameter separator (';') indicating more
 	 * parameters, or the line name/value separator (':'), indicating we've finished parameters.
+	 * @deprecated Content lines are now lexed by a {@link ContentLineLexer}.
 	 */
+	@Deprecated
 	protected static final Characters PARAM_NAME_DELIMITER_CHARACTERS = Characters.of(PARAM_NAME_VALUE_SEPARATOR_CHAR, PARAM_SEPARATOR_CHAR,
 			NAME_VALUE_SEPARATOR_CHAR);
 
 	/**
 	 * After reading the parameter value, we expect either a parameter separator (';') the parameter value separator (',') indicating more values, or the line
 	 * name/value separator (':'), indicating we've finished parameters.
+	 * @deprecated Content lines are now lexed by a {@link ContentLineLexer}.
 	 */
+	@Deprecated
 	protected static final Characters PARAM_VALUE_DELIMITER_CHARACTERS = Characters.of(PARAM_SEPARATOR_CHAR, PARAM_VALUE_SEPARATOR_CHAR,
 			NAME_VALUE_SEPARATOR_CHAR);
 
+	/** The characters that end a content line, used to read a single line for lexing. */
+	@Deprecated
+	private static final Characters LINE_END_CHARACTERS = Characters.of(CR);
+
+	/**
+	 * Retrieves one or more content lines from a directory, all of which will have the same type name. If the parsed content line has multiple values, a new
+	 * identical content line will be created for to contain each value, differing only in the value. If the content line has only whitespace, an empty array will
+	 * be returned. If there are no content lines before the end of the reader is reached, <code>null</code> will be returned.
+	 * <p>
+	 * A single line up to and including its CRLF is read from the reader and lexed using a {@link CharContentLineLexer}. Each call processes its line in a new
+	 * {@link ProfileContext}, so that calls on a shared processor are independent; the content lines therefore have no profile from any "begin:" line read by
+	 * an earlier call.
+	 * </p>
+	 * @param reader The reader that contains the lines of the directory.
+	 * @return A one or more content lines from the directory (an empty array if the line contained only whitespace), or <code>null</code> if there are no more
+	 *         content lines.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @deprecated Use {@link #processContentLine(ContentLineLexer, ProfileContext)}, which reads from a single lexer for the entire directory.
+	 */
+	@Deprecated
+	public ContentLine[] processContentLine(final Reader reader) throws IOException, ParseIOException {
+		final String line = readUntil(reader, LINE_END_CHARACTERS); //read the line; don't throw an exception if the end of the file is reached, because this could be an empty line
+		final boolean isLineEnded = reader.read() >= 0; //skip the CR, if any
+		if(!isLineEnded && line.isEmpty()) { //if no characters were read before the end of the reader
+			return null; //the end of the reader was reached
+		}
+		if(isLineEnded) {
+			check(reader, LF); //there should always be an LF after a CR
+		}
+		final ContentLineLexer lexer = new CharContentLineLexer(new StringReader(isLineEnded ? line + CRLF : line)); //the lexer reports a line missing its CRLF
+		return lexer.nextLine() ? processLexedContentLine(lexer, new ProfileContext()) : new ContentLine[0];
+	}
+
 	/**
 	 * Retrieves parameters from a line of content from a directory.
 	 * <p>
 	 * Whatever delimiter ended the value will be left in the reader.
 	 * </p>
+	 * <p>
+	 * The parameters up to the name/value separator (':') are read from the reader and lexed using a {@link CharContentLineLexer}.
+	 * </p>
 	 * @param reader The reader that contains the lines of the directory.
 	 * @throws IOException Thrown if there is an error reading the directory.
 	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
 	 * @return The parameters from the line of content.
 	 * @see NameValuePair
+	 * @deprecated Use {@link ContentLineLexer#getParamList()}.
 	 */
+	@Deprecated
 	public List<NameValuePair<String, String>> processParameters(final Reader reader) throws IOException, ParseIOException {
-		final List<NameValuePair<String, String>> paramList = new ArrayList<NameValuePair<String, String>>(); //create a list of parameters
-		char nextCharacter; //we'll store the last peeked delimiter here each time in the loop
-		do { //read each parameter
-			//read the parameter name
-			final String paramName = readUntilRequired(reader, PARAM_NAME_DELIMITER_CHARACTERS); //get the parameter name, which is usually everything up to the '=' character
-			//TODO check the param name for validity
-			nextCharacter = peekRequired(reader); //see what delimiter will come next
-			if(nextCharacter == PARAM_NAME_VALUE_SEPARATOR_CHAR) { //if there is at least one value waiting
-				do { //read the parameter value(s)
-					reader.skip(1); //skip the delimiter that got us here
-					final String paramValue; //we'll read the value and store it here
-					switch(peekRequired(reader)) { //see what character is first in the value
-						case DQUOTE: //if the string starts with a quote
-							paramValue = readEnclosedRequired(reader, DQUOTE, DQUOTE); //read the value within the quotes 
-							break;
-						default: //if the string doesn't end with a quote
-							paramValue = readUntilRequired(reader, PARAM_VALUE_DELIMITER_CHARACTERS); //read everything until the end of this parameter
-							break;
-					}
-					//			TODO del Log.trace("found param value: ", paramValue);
-					//TODO check the parameter value, here
-					paramList.add(new NameValuePair<String, String>(paramName, paramValue)); //add this name/value pair to our list of parameters
-					nextCharacter = peekRequired(reader); //see what delimiter will come next
-				} while(nextCharacter == PARAM_VALUE_SEPARATOR_CHAR); //keep getting parameter values while there are more parameter value separators
-			} else { //if there is no '='
-				paramList.add(new NameValuePair<String, String>(paramName, null)); //add a name/value pair with null as the value
-			}
-			if(nextCharacter == PARAM_SEPARATOR_CHAR) { //if the next character is the character that separates multiple parameters
-				reader.skip(1); //skip the parameter separator
+		final StringBuilder line = new StringBuilder().append('X').append(PARAM_SEPARATOR_CHAR); //lex the parameters as those of a content line with a placeholder name
+		boolean isQuoted = false;
+		char c;
+		while(((c = peekRequired(reader)) != NAME_VALUE_SEPARATOR_CHAR || isQuoted) && c != CR) { //leave the ':' in the reader; let the lexer report a premature line end
+			reader.skip(1);
+			if(c == DQUOTE) {
+				isQuoted = !isQuoted;
 			}
-		} while(nextCharacter != NAME_VALUE_SEPARATOR_CHAR); //keep reading parameters until we get to the '=' that separates the name from the value
+			line.append(c);
+		}
+		if(c == NAME_VALUE_SEPARATOR_CHAR) {
+			line.append(NAME_VALUE_SEPARATOR_CHAR);
+		}
+		line.append(CRLF);
+		final ContentLineLexer lexer = new CharContentLineLexer(new StringReader(line.toString()));
+		lexer.nextLine();
+		final List<NameValuePair<String, String>> paramList = new ArrayList<NameValuePair<String, String>>(lexer.getParamCount()); //create a list of parameters
+		for(int i = 0; i < lexer.getParamCount(); ++i) {
+			paramList.add(new NameValuePair<String, String>(lexer.getParamName(i), lexer.getParamValue(i)));
+		}
 		return paramList; //return the list of parameters we filled
 	}
 
 	/**
 	 * Processes the textual representation of a line's value and returns one or more object representing the value, as some value types support multiple values.
 	 * <p>
-	 * Whatever delimiter ended the value will be left in the reader.
+	 * Value factories are given a reader of the value followed by the ending CRLF, which must be all that remains after the value has been read. Text values
+	 * handled by the predefined profile are decoded directly from the characters of the lexer.
 	 * </p>
 	 * <p>
 	 * When attempting to find a <code>ValueFactory</code> to process a given value, an attempt is made to locate a value factory in this order:
@@ -418,18 +1136,57 @@ public List<NameValuePair<String, String>> processParameters(final Reader reader
 	 * @param group The group specification, or <code>null</code> if there is no group.
 	 * @param name The name of the information.
 	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @param lexer The lexer positioned at the content line containing the value.
+	 * @return An array of objects represent the value string.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 * @see NameValuePair
+	 */
+	protected Object[] processValue(final String profileName, final String group, final String name, final List<NameValuePair<String, String>> paramList,
+			final ContentLineLexer lexer) throws IOException, ParseIOException {
+		return processValue(profileName, group, name, paramList, getValueType(profileName, group, name, paramList), lexer.decodeValue());
+	}
+
+	/**
+	 * Processes the textual representation of a line's value and returns one or more object representing the value, as some value types support multiple values.
+	 * <p>
+	 * Whatever delimiter ended the value will be left in the reader.
+	 * </p>
+	 * <p>
+	 * The value is read from the reader up to its ending CR and processed in the same way as a value lexed by a {@link ContentLineLexer}. This method is no
+	 * longer called during processing, so overriding it has no effect.
+	 * </p>
+	 * @param profileName The profile of this content line, or <code>null</code> if there is no profile.
+	 * @param group The group specification, or <code>null</code> if there is no group.
+	 * @param name The name of the information.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
 	 * @param reader The reader that contains the lines of the directory.
 	 * @return An array of objects represent the value string.
 	 * @throws IOException Thrown if there is an error reading the directory.
 	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
 	 * @see NameValuePair
+	 * @deprecated Use {@link #processValue(String, String, String, List, ContentLineLexer)}.
 	 */
+	@Deprecated
 	protected Object[] processValue(final String profileName, final String group, final String name, final List<NameValuePair<String, String>> paramList,
 			final Reader reader) throws IOException, ParseIOException {
-		Object[] objects = null; //start out by assuming we can't process the value
-		final Profile profile = getProfile(profileName); //see if we have a profile registered with this profile name
+		final String value = readUntilRequired(reader, CR); //read the value, leaving the ending CR in the reader
+		return processValue(profileName, group, name, paramList, getValueType(profileName, group, name, paramList), CharBuffer.wrap((value + CRLF).toCharArray()));
+	}
+
+	/**
+	 * Determines the value type of a content line. If no value type is given explicitly in the parameters, the <code>Profile</code> registered for the profile
+	 * name, if any, is asked for the type, and then the predefined profile.
+	 * @param profileName The profile of this content line, or <code>null</code> if there is no profile.
+	 * @param group The group specification, or <code>null</code> if there is no group.
+	 * @param name The name of the information.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @return The value type of the content line, or <code>null</code> if the value type is not known.
+	 */
+	protected String getValueType(final String profileName, final String group, final String name, final List<NameValuePair<String, String>> paramList) {
 		String valueType = getParamValue(paramList, VALUE_PARAM_NAME); //get the value type parameter value
 		if(valueType == null) { //if the value type wasn't explicitly given
+			final Profile profile = getProfile(profileName); //see if we have a profile registered with this profile name
 			if(profile != null) { //if there is a profile for this profile name
 				valueType = profile.getValueType(profileName, group, name, paramList); //ask this profile's value factory for the value type
 			}
@@ -437,20 +1194,51 @@ protected Object[] processValue(final String profileName, final String group, fi
 				valueType = getPredefinedProfile().getValueType(profileName, group, name, paramList); //ask the predefined profile for the value type
 			}
 		}
+		return valueType;
+	}
+
+	/**
+	 * Processes the characters of a value of the given type, returning one or more objects representing the value.
+	 * @param profileName The profile of this content line, or <code>null</code> if there is no profile.
+	 * @param group The group specification, or <code>null</code> if there is no group.
+	 * @param name The name of the information.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @param valueType The value type of the content line, or <code>null</code> if the value type is not known.
+	 * @param value A buffer with an accessible array containing the value followed by the ending CRLF between its position and its limit.
+	 * @return An array of objects represent the value string.
+	 * @throws IOException Thrown if there is an error reading the value.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the value.
+	 * @see #processValue(String, String, String, List, ContentLineLexer)
+	 */
+	protected Object[] processValue(final String profileName, final String group, final String name, final List<NameValuePair<String, String>> paramList,
+			final String valueType, final CharBuffer value) throws IOException, ParseIOException {
+		final char[] valueArray = value.array();
+		final int valueStart = value.arrayOffset() + value.position();
+		final int valueEnd = value.arrayOffset() + value.limit() - CRLF.length(); //the ending CRLF is not part of the value
+		final Profile profile = getProfile(profileName); //see if we have a profile registered with this profile name
 		if(profile instanceof ValueFactory) { //if our profile is a value factory, use the profile as a value factory
-			objects = ((ValueFactory)profile).createValues(profileName, group, name, paramList, valueType, reader); //create objects for this profile
+			final Reader valueReader = new CharArrayReader(valueArray, valueStart, value.remaining());
+			final Object[] objects = ((ValueFactory)profile).createValues(profileName, group, name, paramList, valueType, valueReader); //create objects for this profile
+			if(objects != null) {
+				check(valueReader, CRLF); //there should always be a CRLF after the value
+				return objects;
+			}
 		}
-		if(objects == null && valueType != null) { //if no objects were created, but we know the value type
+		if(valueType != null) { //if no objects were created, but we know the value type
 			final ValueFactory valueFactory = getValueFactory(valueType); //see if we have a value factory registered with this value type
+			if(valueFactory == getPredefinedProfile() && TEXT_VALUE_TYPE.equalsIgnoreCase(valueType)) { //text can be decoded straight from the buffer
+				return PredefinedProfile.processTextValueList(valueArray, valueStart, valueEnd, paramList);
+			}
 			if(valueFactory != null) { //if there is a value factory for this value type
-				objects = valueFactory.createValues(profileName, group, name, paramList, valueType, reader); //create objects for this value type
+				final Reader valueReader = new CharArrayReader(valueArray, valueStart, value.remaining());
+				final Object[] objects = valueFactory.createValues(profileName, group, name, paramList, valueType, valueReader); //create objects for this value type
+				if(objects != null) {
+					check(valueReader, CRLF); //there should always be a CRLF after the value
+					return objects;
+				}
 			}
 		}
-		if(objects == null) { //if no objects were created
-			final String valueString = readUntilRequired(reader, CR); //everything before the carriage return will constitute the value
-			objects = new String[] {valueString}; //put the single value string in an array of strings and use that for the value objects
-		}
-		return objects; //return the value objects we processed
+		return new String[] {new String(valueArray, valueStart, valueEnd - valueStart)}; //if no objects were created, the literal contents of the value will constitute the value
 	}
 
 }
@@ -82,7 +82,7 @@ protected PredefinedProfile getPredefinedProfile() {
 		return predefinedProfile;
 	}
 
-	/** A map of profiles keyed to the lowercase version of the profile name. */
+	/** A map of profiles keyed to the folded version of the profile name. */
 	private final Map<String, Profile> profileMap = new HashMap<String, Profile>();
 
 	/**
@@ -91,7 +91,7 @@ protected PredefinedProfile getPredefinedProfile() {
 	 * @param profile The profile to be registered with this profile name.
 	 */
 	public void registerProfile(final String profileName, final Profile profile) {
-		profileMap.put(profileName.toLowerCase(), profile); //put the profile in the map, keyed to the lowercase version of the profile name
+		profileMap.put(foldName(profileName), profile); //put the profile in the map, keyed to the folded version of the profile name
 	}
 
 	/**
@@ -101,10 +101,10 @@ public void registerProfile(final String profileName, final Profile profile) {
 	 * @see #getPredefinedProfile
 	 */
 	protected Profile getProfile(final String profileName) {
-		return profileName != null ? profileMap.get(profileName.toLowerCase()) : getPredefinedProfile(); //get the profile keyed to the lowercase version of the profile name, or return the predefined profile if null was passed
+		return profileName != null ? profileMap.get(foldName(profileName)) : getPredefinedProfile(); //get the profile keyed to the folded version of the profile name, or return the predefined profile if null was passed
 	}
 
-	/** A map of value serializers keyed to the lowercase version of the value type. */
+	/** A map of value serializers keyed to the folded version of the value type. */
 	final Map<String, ValueSerializer> valueSerializerMap = new HashMap<String, ValueSerializer>();
 
 	/**
@@ -113,7 +113,7 @@ protected Profile getProfile(final String profileName) {
 	 * @param valueSerializer The value serializer to be registered with this value type.
 	 */
 	public void registerValueSerializer(final String valueType, final ValueSerializer valueSerializer) {
-		valueSerializerMap.put(valueType.toLowerCase(), valueSerializer); //put the value serializer in the map, keyed to the lowercase version of the type
+		valueSerializerMap.put(foldValueType(valueType), valueSerializer); //put the value serializer in the map, keyed to the folded version of the type
 	}
 
 	/**
@@ -122,7 +122,7 @@ public void registerValueSerializer(final String valueType, final ValueSerialize
 	 * @return A value serializer for this value type, or <code>null</code> if there is no value serializer registered for this value type.
 	 */
 	protected ValueSerializer getValueSerializer(final String valueType) {
-		return valueSerializerMap.get(valueType.toLowerCase()); //get the value serializer keyed to the lowercase version of this value type
+		return valueSerializerMap.get(foldValueType(valueType)); //get the value serializer keyed to the folded version of this value type
 	}
 
 	/** The profile last encountered in a "profile:" type content line. */
@@ -199,11 +199,29 @@ public DirectorySerializer() {
 	 * @param contentLines An array of content lines in the directory.
 	 * @param writer The writer to which the lines of the directory should be serialized.
 	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
 	 */
 	public void serializeContentLines(final ContentLine[] contentLines, final Writer writer) throws IOException {
 		serializeContentLines(contentLines, new LineFoldWriter(writer)); //create a new line fold writer and use that to serialize the directory
 	}
 
+	/**
+	 * Serializes content lines from a directory of type <code>text/directory</code> directly to UTF-8 bytes, folding lines by their lengths in octets. The
+	 * encoded bytes are written to the output stream in large blocks, and the output stream is flushed but not closed.
+	 * @param contentLines An array of content lines in the directory.
+	 * @param outputStream The output stream to which the lines of the directory should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
+	 * @see Utf8LineFoldWriter
+	 */
+	public void serializeContentLines(final ContentLine[] contentLines, final OutputStream outputStream) throws IOException {
+		final Utf8LineFoldWriter writer = new Utf8LineFoldWriter(outputStream);
+		serializeFoldedContentLines(contentLines, writer);
+		writer.flush();
+	}
+
 	/**
 	 * Combines the values of two content lines.
 	 * <p>
@@ -215,21 +233,81 @@ public void serializeContentLines(final ContentLine[] contentLines, final Writer
 	 * @throws IllegalArgumentException if the type of one of the content lines is not {@link LocaledText}.
 	 * @see LocaledText
 	 * @see #CONTENT_LINE_TEXT_COMBINE_STRING
+	 * @deprecated Override {@link #combineValues(List)} instead, which combines all the values for a name at once. For compatibility, if a subclass overrides
+	 *             this method, the default {@link #combineValues(List)} combines the values pairwise using this method.
 	 */
+	@Deprecated
 	protected ContentLine combineValues(final ContentLine contentLine1, final ContentLine contentLine2) {
-		final Object value1 = contentLine1.getValue();
-		final Object value2 = contentLine2.getValue();
-		final LocaledText newValue;
-		if(value1 instanceof LocaledText && value2 instanceof LocaledText) {
-			//combine the strings: value1+"\nP\n"+value2, where 'P' is the paragraph separator symbol
-			final String combinedStringValue = value1.toString() + CONTENT_LINE_TEXT_COMBINE_STRING + value2.toString();
-			newValue = new LocaledText(combinedStringValue, ((LocaledText)value1).getLocale()); //use the locale, if any, of the first value
-		} else {
-			throw new IllegalArgumentException("Cannot combine content lines for " + contentLine1.getName() + " with values of types "
-					+ contentLine1.getValue().getClass() + " and " + contentLine2.getValue().getClass() + ".");
+		return combineTextValues(Arrays.asList(contentLine1, contentLine2));
+	}
+
+	/** Whether the class of this serializer overrides the deprecated {@link #combineValues(ContentLine, ContentLine)}. */
+	private final boolean pairwiseCombineValuesOverridden = isPairwiseCombineValuesOverridden(getClass());
+
+	/**
+	 * Determines whether a class overrides the deprecated {@link #combineValues(ContentLine, ContentLine)}.
+	 * @param serializerClass The class of the serializer.
+	 * @return <code>true</code> if the class or one of its superclasses below this class declares the method.
+	 */
+	private static boolean isPairwiseCombineValuesOverridden(final Class<?> serializerClass) {
+		for(Class<?> type = serializerClass; type != DirectorySerializer.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod("combineValues", ContentLine.class, ContentLine.class);
+				return true;
+			} catch(final NoSuchMethodException noSuchMethodException) { //not declared in this class; check the superclass
+			}
 		}
-		//Log.warn("Combining", contentLine1.getName(), "content line values for", value1, "and", value2, "yielding", newValue);
-		return new ContentLine(contentLine1.getProfile(), contentLine1.getGroup(), contentLine1.getName(), contentLine1.getParamList(), newValue); //return a new content line with the new, combined value
+		return false;
+	}
+
+	/**
+	 * Combines the values of content lines into a single content line with the group, name, and parameters of the first content line. The values are combined
+	 * in a single pass, so that the time taken is proportional to the total length of the values. This is the method to override to customize how values are
+	 * combined.
+	 * <p>
+	 * This implementation only supports combining of values of type {@link LocaledText}. The strings are concatenated with a delimiter, using the locale of the
+	 * first value. If a subclass overrides the deprecated {@link #combineValues(ContentLine, ContentLine)}, the values are instead combined pairwise using that
+	 * method.
+	 * </p>
+	 * @param contentLines The content lines to combine, of which there must be at least one.
+	 * @return A new content line with the combined values of the original content lines.
+	 * @throws IllegalArgumentException if the type of one of the content lines is not {@link LocaledText}.
+	 * @see LocaledText
+	 * @see #CONTENT_LINE_TEXT_COMBINE_STRING
+	 */
+	@SuppressWarnings("deprecation")
+	protected ContentLine combineValues(final List<ContentLine> contentLines) {
+		if(pairwiseCombineValuesOverridden) { //honor a subclass that still customizes combining two values at a time
+			ContentLine combinedValueContentLine = contentLines.get(0);
+			for(int i = 1; i < contentLines.size(); ++i) {
+				combinedValueContentLine = combineValues(combinedValueContentLine, contentLines.get(i));
+			}
+			return combinedValueContentLine;
+		}
+		return combineTextValues(contentLines);
+	}
+
+	/**
+	 * Combines the text values of content lines into a single content line with the group, name, and parameters of the first content line.
+	 * @param contentLines The content lines to combine, of which there must be at least one.
+	 * @return A new content line with the combined values of the original content lines.
+	 * @throws IllegalArgumentException if the type of one of the content lines is not {@link LocaledText}.
+	 */
+	private static ContentLine combineTextValues(final List<ContentLine> contentLines) {
+		final ContentLine firstContentLine = contentLines.get(0);
+		final Object firstValue = firstContentLine.getValue();
+		final StringBuilder combinedStringValue = new StringBuilder(firstValue.toString());
+		for(int i = 1; i < contentLines.size(); ++i) {
+			final Object value = contentLines.get(i).getValue();
+			if(!(firstValue instanceof LocaledText) || !(value instanceof LocaledText)) {
+				throw new IllegalArgumentException("Cannot combine content lines for " + firstContentLine.getName() + " with values of types " + firstValue.getClass()
+						+ " and " + value.getClass() + ".");
+			}
+			//combine the strings: value1+"\n--\n"+value2, following the Usenet signature convention
+			combinedStringValue.append(CONTENT_LINE_TEXT_COMBINE_STRING).append(value.toString());
+		}
+		final LocaledText newValue = new LocaledText(combinedStringValue.toString(), ((LocaledText)firstValue).getLocale()); //use the locale, if any, of the first value
+		return new ContentLine(firstContentLine.getProfile(), firstContentLine.getGroup(), firstContentLine.getName(), firstContentLine.getParamList(), newValue); //return a new content line with the new, combined value
 	}
 
 	/**
@@ -237,44 +315,93 @@ protected ContentLine combineValues(final ContentLine contentLine1, final Conten
 	 * @param contentLineArray An array of content lines in the directory.
 	 * @param writer The writer to which the lines of the directory should be serialized.
 	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
 	 */
 	protected void serializeContentLines(final ContentLine[] contentLineArray, final LineFoldWriter writer) throws IOException {
-		final List<ContentLine> contentLines = new ArrayList<ContentLine>();
-		Collections.addAll(contentLines, contentLineArray);
-		//collapse named content lines if requested
-		for(final String singleValueName : getSingleValueNames()) {
-			ContentLine firstContentLine = null; //keep track of the first content line to combine values for
-			ContentLine combinedValueContentLine = null; //we'll combine values and place them here
-			final Iterator<ContentLine> contentLineIterator = contentLines.iterator();
-			while(contentLineIterator.hasNext()) {
-				final ContentLine contentLine = contentLineIterator.next();
-				if(contentLine.getName().equals(singleValueName)) { //if this is a content line to combine values for
-					if(firstContentLine == null) { //if this is the first content line with that name so far
-						firstContentLine = contentLine; //make note of this content line
-					} else { //if we already have other content lines with this name
-						if(combinedValueContentLine == null) { //if we haven't combined any values, yet
-							combinedValueContentLine = firstContentLine; //start with the first line
-						}
-						try {
-							combinedValueContentLine = combineValues(combinedValueContentLine, contentLine); //combine the new value with what we had before
-						} catch(final IllegalArgumentException illegalArgumentException) {
-							throw new UnsupportedOperationException(illegalArgumentException);
+		serializeFoldedContentLines(contentLineArray, writer);
+	}
+
+	/**
+	 * Serializes content lines from a directory of type <code>text/directory</code> to a writer that folds lines.
+	 * @param contentLineArray An array of content lines in the directory.
+	 * @param writer The writer, such as a {@link LineFoldWriter} or a {@link Utf8LineFoldWriter}, to which the lines of the directory should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
+	 * @see #combineValues(List)
+	 */
+	protected void serializeFoldedContentLines(final ContentLine[] contentLineArray, final Writer writer) throws IOException {
+		final Set<String> singleValueNames = getSingleValueNames();
+		final List<ContentLine> contentLines;
+		if(singleValueNames.isEmpty()) { //if no content lines need to be collapsed, serialize them as they are
+			contentLines = Arrays.asList(contentLineArray);
+		} else { //collapse named content lines in a single pass, grouping the content lines with each name
+			contentLines = new ArrayList<ContentLine>(contentLineArray.length);
+			Map<String, Integer> firstIndexes = null; //the index in the list of the first content line with each name; created when needed
+			Map<String, List<ContentLine>> contentLineGroups = null; //the content lines to combine, keyed to their name; created when needed
+			for(final ContentLine contentLine : contentLineArray) {
+				final String name = contentLine.getName();
+				if(singleValueNames.contains(name)) { //if this is a content line to combine values for
+					if(firstIndexes == null) {
+						firstIndexes = new LinkedHashMap<String, Integer>(); //in document order, so that any error is reported for the first name
+						contentLineGroups = new HashMap<String, List<ContentLine>>();
+					}
+					final Integer firstIndex = firstIndexes.get(name);
+					if(firstIndex == null) { //if this is the first content line with that name so far
+						firstIndexes.put(name, contentLines.size()); //make note of where this content line is
+					} else { //if we already have other content lines with this name, save this one for combining with the first
+						List<ContentLine> contentLineGroup = contentLineGroups.get(name);
+						if(contentLineGroup == null) { //if we haven't found values to combine, yet
+							contentLineGroup = new ArrayList<ContentLine>();
+							contentLineGroup.add(contentLines.get(firstIndex)); //start with the first line
+							contentLineGroups.put(name, contentLineGroup);
 						}
-						contentLineIterator.remove(); //remove this content line; it has been combined with a previous one
+						contentLineGroup.add(contentLine);
+						continue; //this content line will be combined with the first one
 					}
 				}
+				contentLines.add(contentLine);
 			}
-			if(combinedValueContentLine != null) { //if we combined any values
-				assert firstContentLine != null;
-				contentLines.set(contentLines.indexOf(firstContentLine), combinedValueContentLine); //replace the first content line with the combined value content line
+			if(contentLineGroups != null) {
+				for(final Map.Entry<String, Integer> firstIndexEntry : firstIndexes.entrySet()) {
+					final List<ContentLine> contentLineGroup = contentLineGroups.get(firstIndexEntry.getKey());
+					if(contentLineGroup == null) { //if there was only one content line with this name, there is nothing to combine
+						continue;
+					}
+					final ContentLine combinedValueContentLine;
+					try {
+						combinedValueContentLine = combineValues(contentLineGroup); //combine all the values at once
+					} catch(final IllegalArgumentException illegalArgumentException) {
+						throw new UnsupportedOperationException("Cannot combine the values of the " + firstIndexEntry.getKey() + " content lines.",
+								illegalArgumentException);
+					}
+					contentLines.set(firstIndexEntry.getValue(), combinedValueContentLine); //replace the first content line with the combined value content line
+				}
 			}
 		}
+		beginSerialization(); //prepare to keep track of profiles
+		try {
+			for(final ContentLine contentLine : contentLines) { //look at each processed content line
+				serializeContentLine(contentLine, writer); //serialize the content line
+			}
+		} finally {
+			endSerialization(); //release the profile information
+		}
+	}
+
+	/**
+	 * Prepares for serializing a directory by creating a new profile stack and removing any default profile. Every call must be balanced by a call to
+	 * {@link #endSerialization()}.
+	 */
+	protected void beginSerialization() {
 		profileStack = new LinkedList<String>(); //create a new profile stack
 		defaultProfile = null; //show that there is no default profile
 		useDefaultProfile = false; //don't use the default profile
-		for(final ContentLine contentLine : contentLines) { //look at each processed content line
-			serializeContentLine(contentLine, writer); //serialize the content line
-		}
+	}
+
+	/** Finishes serializing a directory by releasing the profile stack and removing any default profile. */
+	protected void endSerialization() {
 		profileStack = null; //release the profile stack
 		defaultProfile = null; //show that there is no default profile
 		useDefaultProfile = false; //don't use the default profile
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.globalmentor.text.ABNF.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Objects.*;
+
+import com.globalmentor.io.*;
+
+/**
+ * Parser of directories of type <code>text/directory</code> that is fed its input in chunks as the input becomes available, rather than blocking on a reader.
+ * <p>
+ * Each chunk given to {@link #feed(ByteBuffer)} or {@link #feed(CharBuffer)} is appended to the bytes left over from the previous chunks. Every content line
+ * that is known to be complete, because its CRLF is followed by something other than the space of a folded line and is not a quoted-printable soft line
+ * break, is then lexed and reported to the handler; the rest is kept until more input arrives. Line unfolding, parameters, and the profile stack are therefore unaffected by where the chunks happen to be
+ * divided. Once all the input has been fed, {@link #finish()} must be called to process the last content line.
+ * </p>
+ * <p>
+ * Because a parser never blocks, a single thread can parse many inputs at once, such as uploads arriving over non-blocking channels, using one parser for
+ * each input. This class is not thread-safe.
+ * </p>
+ * @author Garret Wilson
+ * @see DirectoryProcessor#processContentLines(ContentLineLexer, ProfileContext, ContentLineHandler)
+ */
+public class IncrementalDirectoryParser {
+
+	/** The processor of the content lines. */
+	private final DirectoryProcessor processor;
+
+	/** The handler to be notified of the content lines and profile blocks. */
+	private final ContentLineHandler handler;
+
+	/** The collector of directories, or <code>null</code> if content lines are reported directly. */
+	private final DirectoryCollector directoryCollector;
+
+	/** The profile state, kept between chunks. */
+	private final ProfileContext context = new ProfileContext();
+
+	/** The lexer of the complete content lines in the buffer. */
+	private final ByteContentLineLexer lexer = new ByteContentLineLexer(ByteBuffer.allocate(0));
+
+	/**
+	 * Returns the lexer used for the content lines, which may be configured before any input is fed, such as to set a projection.
+	 * @return The lexer of the content lines.
+	 * @see ContentLineLexer#setProjection(Collection)
+	 * @see ContentLineLexer#setExclusion(Collection)
+	 */
+	public ContentLineLexer getLexer() {
+		return lexer;
+	}
+
+	/** The encoder for characters fed to the parser; reused for each chunk. */
+	private final CharsetEncoder encoder = UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** The UTF-8 bytes not yet lexed. */
+	private byte[] bytes = new byte[ContentLineLexer.DEFAULT_BUFFER_SIZE];
+
+	/** The number of bytes not yet lexed. */
+	private int length = 0;
+
+	/** The offset in the input of the first byte not yet lexed. */
+	private long offset = 0;
+
+	/** The index before which the bytes have already been searched for the end of a content line. */
+	private int scanned = 0;
+
+	/** The index of the beginning of the first content line not yet known to be complete. */
+	private int lineStart = 0;
+
+	/** A high surrogate character that ended the last chunk of characters, or <code>0</code> if there is none. */
+	private char pendingHighSurrogate = 0;
+
+	/** Whether all the input has been fed. */
+	private boolean finished = false;
+
+	/**
+	 * Processor and handler constructor.
+	 * @param processor The processor of the content lines.
+	 * @param handler The handler to be notified of the content lines and profile blocks.
+	 * @throws NullPointerException if the given processor and/or handler is <code>null</code>.
+	 */
+	public IncrementalDirectoryParser(final DirectoryProcessor processor, final ContentLineHandler handler) {
+		this(processor, requireNonNull(handler), null);
+	}
+
+	/**
+	 * Processor, handler, and directory collector constructor.
+	 * @param processor The processor of the content lines.
+	 * @param handler The handler to be notified of the content lines and profile blocks.
+	 * @param directoryCollector The collector of directories, which is also the handler, or <code>null</code> if content lines are reported directly.
+	 */
+	private IncrementalDirectoryParser(final DirectoryProcessor processor, final ContentLineHandler handler, final DirectoryCollector directoryCollector) {
+		this.processor = requireNonNull(processor);
+		this.handler = handler;
+		this.directoryCollector = directoryCollector;
+	}
+
+	/**
+	 * Creates a parser that reports each directory as soon as its last content line has been parsed. A directory ends with the "end:" content line that closes
+	 * its outermost "begin:"/"end:" block; any content lines not enclosed in a block are reported as a directory when the parser is finished.
+	 * @param processor The processor of the content lines, which will also create the directories.
+	 * @param directoryConsumer The consumer to receive each directory.
+	 * @return A new parser of directories.
+	 * @throws NullPointerException if the given processor and/or consumer is <code>null</code>.
+	 * @see DirectoryProcessor#createDirectory(ContentLine[])
+	 */
+	public static IncrementalDirectoryParser forDirectories(final DirectoryProcessor processor, final Consumer<? super Directory> directoryConsumer) {
+		final DirectoryCollector directoryCollector = new DirectoryCollector(processor, directoryConsumer);
+		return new IncrementalDirectoryParser(processor, directoryCollector, directoryCollector);
+	}
+
+	/**
+	 * Feeds the next chunk of UTF-8 encoded input to the parser, reporting any content lines that have been completed. All the remaining bytes of the buffer will
+	 * be consumed.
+	 * @param buffer The buffer containing the next bytes of the input.
+	 * @throws IllegalStateException if the parser has already been finished.
+	 * @throws IOException Thrown if the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public void feed(final ByteBuffer buffer) throws IOException, ParseIOException {
+		checkNotFinished();
+		final int count = buffer.remaining();
+		ensureCapacity(length + count);
+		buffer.get(bytes, length, count);
+		length += count;
+		processCompleteLines();
+	}
+
+	/**
+	 * Feeds the next chunk of characters of the input to the parser, reporting any content lines that have been completed. All the remaining characters of the
+	 * buffer will be consumed. A surrogate pair may be divided between chunks.
+	 * @param buffer The buffer containing the next characters of the input.
+	 * @throws IllegalStateException if the parser has already been finished.
+	 * @throws IOException Thrown if the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public void feed(final CharBuffer buffer) throws IOException, ParseIOException {
+		checkNotFinished();
+		if(pendingHighSurrogate != 0 && buffer.hasRemaining()) { //complete any surrogate pair begun in the last chunk
+			encode(CharBuffer.wrap(new char[] {pendingHighSurrogate, buffer.get()}));
+			pendingHighSurrogate = 0;
+		}
+		final int limit = buffer.limit();
+		if(buffer.hasRemaining() && Character.isHighSurrogate(buffer.get(limit - 1))) { //keep a trailing high surrogate for the next chunk
+			pendingHighSurrogate = buffer.get(limit - 1);
+			buffer.limit(limit - 1);
+			encode(buffer);
+			buffer.limit(limit).position(limit);
+		} else {
+			encode(buffer);
+		}
+		processCompleteLines();
+	}
+
+	/**
+	 * Indicates that all the input has been fed, and processes the last content line. A directory not ended by an "end:" content line will be reported at this
+	 * point, if directories are being collected.
+	 * @throws IllegalStateException if the parser has already been finished.
+	 * @throws IOException Thrown if the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory, including if the input ended in the middle of a content line.
+	 */
+	public void finish() throws IOException, ParseIOException {
+		checkNotFinished();
+		finished = true;
+		if(pendingHighSurrogate != 0) { //an unpaired high surrogate will be replaced
+			encode(CharBuffer.wrap(new char[] {pendingHighSurrogate}));
+			pendingHighSurrogate = 0;
+		}
+		process(length);
+		if(directoryCollector != null) {
+			directoryCollector.flush();
+		}
+	}
+
+	/** @throws IllegalStateException if the parser has already been finished. */
+	private void checkNotFinished() {
+		if(finished) {
+			throw new IllegalStateException("Parser has already been finished.");
+		}
+	}
+
+	/**
+	 * Makes sure the buffer of bytes can hold the given number of bytes, keeping the current bytes.
+	 * @param capacity The number of bytes needed.
+	 */
+	private void ensureCapacity(final int capacity) {
+		if(capacity > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+		}
+	}
+
+	/**
+	 * Encodes characters as UTF-8, appending them to the bytes not yet lexed.
+	 * @param chars The characters to encode, none of which will remain.
+	 */
+	private void encode(final CharBuffer chars) {
+		ensureCapacity(length + chars.remaining() * 3); //UTF-8 never needs more than three bytes for each UTF-16 code unit
+		final ByteBuffer out = ByteBuffer.wrap(bytes, length, bytes.length - length);
+		encoder.reset();
+		encoder.encode(chars, out, true);
+		encoder.flush(out);
+		length = out.position();
+	}
+
+	/**
+	 * Lexes all the content lines known to be complete, and keeps the rest. A content line is complete if its CRLF is followed by a character other than a space,
+	 * which would indicate a folded line, and is not a quoted-printable soft line break as determined by the lexer from the parameters of the content line.
+	 * @throws IOException Thrown if the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	private void processCompleteLines() throws IOException, ParseIOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		lexer.setBuffer(buffer, lineStart, length, offset); //let the lexer examine the parameters of incomplete lines
+		int end = 0; //the end of the last complete line
+		for(int cr = scanned; (cr = ByteContentLineLexer.indexOfCR(buffer, cr, length - 2)) >= 0; ++cr) {
+			if(bytes[cr + 1] == LF && bytes[cr + 2] != SP && !lexer.isSourceSoftLineBreak(lineStart, cr)) {
+				end = lineStart = cr + 2;
+			}
+		}
+		scanned = Math.max(length - 2, 0); //the last two bytes cannot be examined until we know what follows them
+		if(end > 0) {
+			process(end);
+		}
+	}
+
+	/**
+	 * Lexes and processes the content lines in the given number of bytes, and then discards those bytes.
+	 * @param end The number of bytes to lex, which must contain only complete content lines unless all the input has been fed.
+	 * @throws IOException Thrown if the handler aborts processing.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	private void process(final int end) throws IOException, ParseIOException {
+		lexer.setBuffer(ByteBuffer.wrap(bytes), 0, end, offset); //lex the lines in place; every value is copied before the bytes are discarded
+		try {
+			processor.processContentLines(lexer, context, handler);
+		} finally {
+			System.arraycopy(bytes, end, bytes, 0, length - end);
+			offset += end;
+			length -= end;
+			scanned = Math.max(scanned - end, 0);
+			lineStart = Math.max(lineStart - end, 0);
+		}
+	}
+
+	/**
+	 * A handler that collects the content lines of each directory and reports the directory when its outermost "begin:"/"end:" block ends.
+	 * @author Garret Wilson
+	 */
+	private static class DirectoryCollector implements ContentLineHandler {
+
+		/** The processor that will create the directories. */
+		private final DirectoryProcessor processor;
+
+		/** The consumer to receive each directory. */
+		private final Consumer<? super Directory> directoryConsumer;
+
+		/** The content lines of the current directory. */
+		private final List<ContentLine> contentLineList = new ArrayList<ContentLine>();
+
+		/** The number of "begin:"/"end:" blocks currently open. */
+		private int depth = 0;
+
+		/**
+		 * Constructor.
+		 * @param processor The processor that will create the directories.
+		 * @param directoryConsumer The consumer to receive each directory.
+		 * @throws NullPointerException if the given processor and/or consumer is <code>null</code>.
+		 */
+		public DirectoryCollector(final DirectoryProcessor processor, final Consumer<? super Directory> directoryConsumer) {
+			this.processor = requireNonNull(processor);
+			this.directoryConsumer = requireNonNull(directoryConsumer);
+		}
+
+		@Override
+		public void beginProfile(final String profile) throws IOException {
+			++depth;
+		}
+
+		@Override
+		public void contentLine(final ContentLine contentLine) throws IOException {
+			contentLineList.add(contentLine);
+		}
+
+		@Override
+		public void endProfile(final String profile) throws IOException {
+			if(--depth == 0) { //if the outermost block has ended, the directory is complete
+				flush();
+			}
+		}
+
+		/** Reports the collected content lines, if any, as a directory. */
+		public void flush() {
+			if(!contentLineList.isEmpty()) {
+				final ContentLine[] contentLines = contentLineList.toArray(new ContentLine[contentLineList.size()]);
+				contentLineList.clear();
+				directoryConsumer.accept(processor.createDirectory(contentLines));
+			}
+		}
+
+	}
+
+}
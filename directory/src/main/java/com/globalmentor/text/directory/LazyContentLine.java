@@ -0,0 +1,139 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.util.*;
+
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * A content line that holds its value undecoded until the value is first requested.
+ * <p>
+ * A lazy content line is created by a {@link DirectoryProcessor} for each line when it is configured to use lazy values. Because some value types produce
+ * several values from a single line, {@link #getValues()} returns all the values of the line, while {@link #getValue()} returns only the first. An error
+ * decoding the value is reported as an {@link UncheckedIOException} when the value is requested.
+ * </p>
+ * @author Garret Wilson
+ * @see DirectoryProcessor#DirectoryProcessor(boolean)
+ */
+public class LazyContentLine extends ContentLine {
+
+	/** The processor that will decode the value. */
+	private final DirectoryProcessor processor;
+
+	/** The value type of the content line, or <code>null</code> if the value type is not known. */
+	private final String valueType;
+
+	/** @return The value type of the content line, or <code>null</code> if the value type is not known. */
+	public String getValueType() {
+		return valueType;
+	}
+
+	/** The undecoded value, followed by CRLF. */
+	private final CharBuffer rawValue;
+
+	/** @return The literal, undecoded value of the content line. */
+	public String getRawValue() {
+		return new String(rawValue.array(), rawValue.arrayOffset() + rawValue.position(), rawValue.remaining() - 2); //don't include the CRLF
+	}
+
+	/** The decoded values, or <code>null</code> if the value has not yet been decoded. */
+	private volatile Object[] values = null;
+
+	/** @return Whether the value has been decoded. */
+	public boolean isDecoded() {
+		return values != null;
+	}
+
+	/**
+	 * Creates a lazy content line.
+	 * @param processor The processor that will decode the value.
+	 * @param profile The profile of this content line, or <code>null</code> if there is no profile.
+	 * @param group The group specification, or <code>null</code> if there is no group.
+	 * @param name The name of the information.
+	 * @param paramList The list of parameters.
+	 * @param valueType The value type of the content line, or <code>null</code> if the value type is not known.
+	 * @param rawValue A buffer with an accessible array containing the undecoded value followed by CRLF, which will not be copied.
+	 */
+	LazyContentLine(final DirectoryProcessor processor, final String profile, final String group, final String name,
+			final List<NameValuePair<String, String>> paramList, final String valueType, final CharBuffer rawValue) {
+		super(profile, group, name, paramList, null);
+		this.processor = processor;
+		this.valueType = valueType;
+		this.rawValue = rawValue;
+	}
+
+	/**
+	 * Returns all the values of the content line, decoding them if they have not already been decoded.
+	 * @return The values of the content line.
+	 * @throws UncheckedIOException if there was an error decoding the value.
+	 */
+	public Object[] getValues() {
+		Object[] values = this.values;
+		if(values == null) { //decoding the same value twice in separate threads does no harm
+			try {
+				values = processor.processValue(getProfile(), getGroup(), getName(), getParamList(), valueType, rawValue.duplicate());
+			} catch(final IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+			this.values = values;
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This version decodes the value when first called, and returns the first value if the line contains several values.
+	 * </p>
+	 * @throws UncheckedIOException if there was an error decoding the value.
+	 * @see #getValues()
+	 */
+	@Override
+	public Object getValue() {
+		final Object[] values = getValues();
+		return values.length > 0 ? values[0] : null;
+	}
+
+	/**
+	 * Decodes any lazy content lines, replacing each with a content line for each of its values.
+	 * @param contentLines The content lines, some of which may be lazy.
+	 * @return The content lines with all values decoded, which will be the given array if none of the content lines are lazy.
+	 * @throws UncheckedIOException if there was an error decoding a value.
+	 */
+	static ContentLine[] decode(final ContentLine[] contentLines) {
+		List<ContentLine> contentLineList = null; //only create a new list if there are lazy content lines
+		for(int i = 0; i < contentLines.length; ++i) {
+			final ContentLine contentLine = contentLines[i];
+			if(contentLine instanceof LazyContentLine) {
+				if(contentLineList == null) {
+					contentLineList = new ArrayList<ContentLine>(contentLines.length);
+					contentLineList.addAll(Arrays.asList(contentLines).subList(0, i));
+				}
+				for(final Object value : ((LazyContentLine)contentLine).getValues()) {
+					contentLineList.add(new ContentLine(contentLine.getProfile(), contentLine.getGroup(), contentLine.getName(), contentLine.getParamList(), value));
+				}
+			} else if(contentLineList != null) {
+				contentLineList.add(contentLine);
+			}
+		}
+		return contentLineList != null ? contentLineList.toArray(new ContentLine[contentLineList.size()]) : contentLines;
+	}
+
+}
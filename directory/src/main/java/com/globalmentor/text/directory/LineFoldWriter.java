@@ -49,36 +49,107 @@ public LineFoldWriter(final Writer writer) {
 	 * <p>
 	 * Line folding is performed by adding a CRLF+SP after each run of 75 characters, the length recommended by RFC 2425.
 	 * </p>
+	 * <p>
+	 * Rather than examining each character, the characters up to the next CR or LF are counted as a whole against the characters remaining on the line, and any
+	 * fold points within them are determined arithmetically, so that characters are written to the underlying writer in runs.
+	 * </p>
 	 * @param cbuf The array of characters.
 	 * @param off The offset from which to start writing characters.
 	 * @param len The number of characters to write.
 	 * @throws IOException Thrown if an I/O error occurs.
 	 */
 	public void write(final char cbuf[], final int off, final int len) throws IOException {
+		final int end = off + len;
 		int writeBeginIndex = off; //when we actually write something, we'll start writing where they asked us to start
-		for(int i = 0; i < len; ++i) { //look at each character to write
-			final int bufferIndex = off + i; //make a note of where we are in the buffer
-			switch(cbuf[bufferIndex]) { //see which character this is
-				case CR: //we'll assume a CR is the end of the line
-					lineLength = 0; //reset the length of the line
-					break;
-				case LF: //we'll assume LF is part of a CRLF and ignore it
-					break;
-				default: //every other character makes the line longer
-					++lineLength; //make the line longer
-					break;
+		int index = off;
+		while(index < end) {
+			int lineBreakIndex = index; //find the next CR or LF
+			while(lineBreakIndex < end && cbuf[lineBreakIndex] != CR && cbuf[lineBreakIndex] != LF) {
+				++lineBreakIndex;
 			}
-			if(lineLength > LONG_LINE_LENGTH) { //if we're ready to write a character, and writing this character would be past a full line
-				writer.write(cbuf, writeBeginIndex, bufferIndex - writeBeginIndex); //write everything up to but not including this character
+			while(lineBreakIndex - index > LONG_LINE_LENGTH - lineLength) { //while the characters would go past a full line
+				final int foldIndex = index + (LONG_LINE_LENGTH - lineLength); //the first character that would be past a full line
+				writer.write(cbuf, writeBeginIndex, foldIndex - writeBeginIndex); //write everything up to but not including that character
 				writer.write(CRLF); //write CRLF
 				writer.write(SP); //write a space
-				lineLength = 1; //show that if we were to write this character it would be all by itself on a new line
-				writeBeginIndex = bufferIndex; //next time we'll start writing at this character
+				writeBeginIndex = foldIndex; //next time we'll start writing at that character
+				index = foldIndex;
+				lineLength = 0; //that character will be counted at the start of the new line
+			}
+			lineLength += lineBreakIndex - index; //the remaining characters fit on the line
+			if(lineBreakIndex < end && cbuf[lineBreakIndex] == CR) { //we'll assume a CR is the end of the line; we'll assume LF is part of a CRLF and ignore it
+				lineLength = 0; //reset the length of the line
 			}
+			index = lineBreakIndex + 1;
 		}
-		if(writeBeginIndex < off + len) { //if we have data we haven't written
-			writer.write(cbuf, writeBeginIndex, (off + len) - writeBeginIndex); //write the remaining data
+		if(writeBeginIndex < end) { //if we have data we haven't written
+			writer.write(cbuf, writeBeginIndex, end - writeBeginIndex); //write the remaining data
+		}
+	}
+
+	/**
+	 * Write a portion of a string.
+	 * <p>
+	 * Line folding is performed in the same way as for {@link #write(char[], int, int)}, but without copying the characters of the string.
+	 * </p>
+	 * @param str The string.
+	 * @param off The offset from which to start writing characters.
+	 * @param len The number of characters to write.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	@Override
+	public void write(final String str, final int off, final int len) throws IOException {
+		final int end = off + len;
+		int writeBeginIndex = off;
+		int index = off;
+		while(index < end) {
+			int lineBreakIndex = index; //find the next CR or LF
+			while(lineBreakIndex < end && str.charAt(lineBreakIndex) != CR && str.charAt(lineBreakIndex) != LF) {
+				++lineBreakIndex;
+			}
+			while(lineBreakIndex - index > LONG_LINE_LENGTH - lineLength) { //while the characters would go past a full line
+				final int foldIndex = index + (LONG_LINE_LENGTH - lineLength);
+				writer.write(str, writeBeginIndex, foldIndex - writeBeginIndex);
+				writer.write(CRLF);
+				writer.write(SP);
+				writeBeginIndex = foldIndex;
+				index = foldIndex;
+				lineLength = 0;
+			}
+			lineLength += lineBreakIndex - index;
+			if(lineBreakIndex < end && str.charAt(lineBreakIndex) == CR) {
+				lineLength = 0;
+			}
+			index = lineBreakIndex + 1;
+		}
+		if(writeBeginIndex < end) {
+			writer.write(str, writeBeginIndex, end - writeBeginIndex);
+		}
+	}
+
+	/**
+	 * Write a single character.
+	 * @param c The character to write.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	@Override
+	public void write(final int c) throws IOException {
+		switch(c) {
+			case CR: //we'll assume a CR is the end of the line
+				lineLength = 0;
+				break;
+			case LF: //we'll assume LF is part of a CRLF and ignore it
+				break;
+			default:
+				if(lineLength >= LONG_LINE_LENGTH) { //if this character would be past a full line
+					writer.write(CRLF);
+					writer.write(SP);
+					lineLength = 0;
+				}
+				++lineLength;
+				break;
 		}
+		writer.write(c);
 	}
 
 	/**
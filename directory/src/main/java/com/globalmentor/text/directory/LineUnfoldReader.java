@@ -45,7 +45,8 @@ public LineUnfoldReader(final Reader reader) {
 	 * {@inheritDoc}
 	 * <p>
 	 * This implementation processes newly buffered data by unfolding lines as specified in RFC 2425. Specifically, any CRLF combination followed by a space is
-	 * removed.
+	 * removed. The buffer is searched for CR four characters at a time, and each run of characters between removed sequences is moved as a block rather than
+	 * character by character.
 	 * </p>
 	 * @param newDataBeginIndex The starting index of the newly fetched data.
 	 * @throws IOException if an I/O error occurs.
@@ -56,26 +57,37 @@ protected void processBufferedData(final int newDataBeginIndex) throws IOExcepti
 		super.processBufferedData(newDataBeginIndex); //do the default processing of the data (this currently does nothing)
 		final char[] buffer = getBuffer(); //get a reference to our buffer
 		final int bufferEndIndex = getFetchBufferIndex(); //find out the effective end of our new data
-		int sourceIndex, destIndex; //we'll start looking at the beginning of the new data
-		//start at the beginning of the data and go to the end, copying data backwards to erase characters if needed
-		for(sourceIndex = newDataBeginIndex, destIndex = newDataBeginIndex; sourceIndex < bufferEndIndex; ++sourceIndex, ++destIndex) {
-			if(buffer[sourceIndex] == CR) { //if we find a CR, see what is after it
-				if(sourceIndex < bufferEndIndex - 2 && buffer[sourceIndex + 1] == LF && buffer[sourceIndex + 2] == SP) { //if this is CRLF+SP
-					sourceIndex += 3; //skip the entire CRLF+SP
-				} else if(sourceIndex < bufferEndIndex - 1 && buffer[sourceIndex + 1] == LINE_SEPARATOR_CHAR) { //if this is CR+LINE_SEPARATOR (an oddity of Nokia VCards)
-					sourceIndex += 1; //skip just the CR; leave the LINE_SEPARATOR, as it is a non-standard indication of a line break in the middle of a field
-				}
+		int destIndex = newDataBeginIndex; //where the next run of characters will be moved
+		int runBeginIndex = newDataBeginIndex; //the beginning of the run of characters not yet moved
+		int sourceIndex = newDataBeginIndex;
+		while((sourceIndex = indexOfCR(buffer, sourceIndex, bufferEndIndex)) >= 0) { //find each CR and see what is after it
+			final int removeCount; //the number of characters to remove at the CR
+			if(sourceIndex < bufferEndIndex - 2 && buffer[sourceIndex + 1] == LF && buffer[sourceIndex + 2] == SP) { //if this is CRLF+SP
+				removeCount = 3; //skip the entire CRLF+SP
+			} else if(sourceIndex < bufferEndIndex - 1 && buffer[sourceIndex + 1] == LINE_SEPARATOR_CHAR) { //if this is CR+LINE_SEPARATOR (an oddity of Nokia VCards)
+				removeCount = 1; //skip just the CR; leave the LINE_SEPARATOR, as it is a non-standard indication of a line break in the middle of a field
+			} else { //a CR ending a line stays
+				++sourceIndex;
+				continue;
 			}
-			if(sourceIndex < bufferEndIndex) { //if we haven't reached the end
-				if(sourceIndex != destIndex) { //if we've collapsed at least one CRLF+SP, we'll be copying information
-					buffer[destIndex] = buffer[sourceIndex]; //copy this byte
-				}
+			final int runLength = sourceIndex - runBeginIndex;
+			if(destIndex != runBeginIndex) { //if we've collapsed at least one sequence, we'll be moving the run
+				System.arraycopy(buffer, runBeginIndex, buffer, destIndex, runLength);
 			}
+			destIndex += runLength;
+			sourceIndex += removeCount;
+			runBeginIndex = sourceIndex;
 		}
+		final int runLength = bufferEndIndex - runBeginIndex; //move the last run
+		if(destIndex != runBeginIndex) {
+			System.arraycopy(buffer, runBeginIndex, buffer, destIndex, runLength);
+		}
+		destIndex += runLength;
 		final int uncertainCharacterCount; //we'll determine if there are characters at the end of which we are doubtful of whether they form a CRLF+SP
-		if(buffer[bufferEndIndex - 2] == CR && buffer[bufferEndIndex + 1] == LF) { //if the buffer ends in CRLF
+		final int newDataLength = bufferEndIndex - newDataBeginIndex; //only look at the new data; any uncertain characters from before were fetched again
+		if(newDataLength >= 2 && buffer[bufferEndIndex - 2] == CR && buffer[bufferEndIndex - 1] == LF) { //if the buffer ends in CRLF
 			uncertainCharacterCount = 2; //there are two characters we're uncertain about
-		} else if(buffer[bufferEndIndex - 1] == CR) { //if the buffer ends in CR
+		} else if(newDataLength >= 1 && buffer[bufferEndIndex - 1] == CR) { //if the buffer ends in CR
 			uncertainCharacterCount = 1; //there is one character's we're uncertain about
 		} else {
 			uncertainCharacterCount = 0;
@@ -89,4 +101,50 @@ protected void processBufferedData(final int newDataBeginIndex) throws IOExcepti
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This version makes available any characters at the end of the data that were held back because they might have begun a fold, once there is no more data
+	 * to determine otherwise.
+	 * </p>
+	 */
+	@Override
+	protected int fetchBuffer() throws IOException {
+		final int fetchCount = super.fetchBuffer();
+		if(isLastBuffer() && getFetchBufferIndex() < getBufferEndIndex()) { //if there is no more data, no uncertain characters can begin a fold
+			setFetchBufferIndex(getBufferEndIndex());
+		}
+		return fetchCount;
+	}
+
+	/** A long word with every 16-bit lane set to CR. */
+	private static final long CR_WORD = 0x0001000100010001L * CR;
+
+	/** A long word with the high bit of every 16-bit lane cleared. */
+	private static final long LOW_BITS_WORD = 0x7FFF7FFF7FFF7FFFL;
+
+	/**
+	 * Finds the next CR in a range of a buffer. Four characters at a time are packed into a long word, locating any CR in the word using arithmetic on all its
+	 * characters at once; only the characters at the end of the range not filling a word are examined individually.
+	 * @param buffer The buffer to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index one past the last character to search.
+	 * @return The index of the next CR, or -1 if there is no CR in the range.
+	 */
+	static int indexOfCR(final char[] buffer, int start, final int end) {
+		for(; start + 4 <= end; start += 4) {
+			final long word = (buffer[start] | (long)buffer[start + 1] << 16 | (long)buffer[start + 2] << 32 | (long)buffer[start + 3] << 48) ^ CR_WORD; //CR characters become zero
+			final long crBits = ~(((word & LOW_BITS_WORD) + LOW_BITS_WORD) | word | LOW_BITS_WORD); //the high bit of each zero character, and nothing else
+			if(crBits != 0) {
+				return start + (Long.numberOfTrailingZeros(crBits) >>> 4);
+			}
+		}
+		for(; start < end; ++start) {
+			if(buffer[start] == CR) {
+				return start;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.util.Objects.*;
+
+/**
+ * Lexer of UTF-8 content lines that maps a file into memory rather than reading it.
+ * <p>
+ * The file is mapped in segments, each of which starts at the beginning of the first content line not yet lexed, so files larger than can be mapped in a
+ * single buffer are supported, and content lines are never copied out of the mapping unless they are folded. A segment grows as needed to hold the longest
+ * content line.
+ * </p>
+ * <p>
+ * A lexer may be limited to a range of the file, allowing separate sections of the same file to be lexed independently, such as by different threads.
+ * </p>
+ * <p>
+ * This lexer does not close the file channel.
+ * </p>
+ * @author Garret Wilson
+ * @see FileChannel#map(FileChannel.MapMode, long, long)
+ */
+public class MappedContentLineLexer extends ByteContentLineLexer {
+
+	/** The default size of each mapped segment. */
+	public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/** The largest segment that can be mapped in a single buffer. */
+	private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+	/** The channel of the file being lexed. */
+	private final FileChannel fileChannel;
+
+	/** @return The channel of the file being lexed. */
+	protected FileChannel getFileChannel() {
+		return fileChannel;
+	}
+
+	/** The size of each mapped segment. */
+	private final long segmentSize;
+
+	/** The offset in the file of the end of the range being lexed, or <code>-1</code> if the entire file is being lexed. */
+	private final long end;
+
+	/** The offset in the file of the beginning of the current segment. */
+	private long segmentOffset;
+
+	/**
+	 * File channel constructor with a default segment size.
+	 * @param fileChannel The channel of a file containing UTF-8 content lines, which will be lexed from the beginning of the file.
+	 * @throws NullPointerException if the given file channel is <code>null</code>.
+	 */
+	public MappedContentLineLexer(final FileChannel fileChannel) {
+		this(fileChannel, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * File channel and segment size constructor. The file will not be mapped until content lines are requested.
+	 * @param fileChannel The channel of a file containing UTF-8 content lines, which will be lexed from the beginning of the file.
+	 * @param segmentSize The number of bytes to map at a time.
+	 * @throws NullPointerException if the given file channel is <code>null</code>.
+	 * @throws IllegalArgumentException if the given segment size is not positive or is too large to be mapped.
+	 */
+	public MappedContentLineLexer(final FileChannel fileChannel, final long segmentSize) {
+		this(fileChannel, 0, -1, segmentSize);
+	}
+
+	/**
+	 * File channel and range constructor with a default segment size. The range should begin at the start of a content line, and line numbers will be reported
+	 * relative to the start of the range.
+	 * @param fileChannel The channel of a file containing UTF-8 content lines.
+	 * @param start The offset in the file of the first byte to lex.
+	 * @param end The offset in the file one past the last byte to lex.
+	 * @throws NullPointerException if the given file channel is <code>null</code>.
+	 * @throws IllegalArgumentException if the given start is negative or is greater than the given end.
+	 */
+	public MappedContentLineLexer(final FileChannel fileChannel, final long start, final long end) {
+		this(fileChannel, start, end, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * File channel, range, and segment size constructor. The file will not be mapped until content lines are requested.
+	 * @param fileChannel The channel of a file containing UTF-8 content lines.
+	 * @param start The offset in the file of the first byte to lex.
+	 * @param end The offset in the file one past the last byte to lex, or <code>-1</code> if the file should be lexed to its end.
+	 * @param segmentSize The number of bytes to map at a time.
+	 * @throws NullPointerException if the given file channel is <code>null</code>.
+	 * @throws IllegalArgumentException if the given range is invalid, or if the given segment size is not positive or is too large to be mapped.
+	 */
+	public MappedContentLineLexer(final FileChannel fileChannel, final long start, final long end, final long segmentSize) {
+		super(ByteBuffer.allocate(0)); //the first segment will be mapped when data is first needed
+		this.fileChannel = requireNonNull(fileChannel);
+		if(start < 0 || (end != -1 && end < start)) {
+			throw new IllegalArgumentException("Invalid range " + start + " to " + end);
+		}
+		if(segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+		}
+		this.segmentOffset = start;
+		this.end = end;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation maps a new segment of the file starting at the first byte not yet lexed. If the unlexed bytes already fill a segment, the new segment
+	 * will be twice as large.
+	 * </p>
+	 */
+	@Override
+	protected boolean fill() throws IOException {
+		final long start = segmentOffset + getPosition(); //the file offset of the first byte not yet lexed
+		final long mappedEnd = segmentOffset + getLimit();
+		final long size = end != -1 ? end : fileChannel.size(); //stop at the end of the range, if any
+		if(mappedEnd >= size) { //if the entire rest of the range is already mapped
+			return false;
+		}
+		final long unlexedCount = mappedEnd - start;
+		if(unlexedCount >= MAX_SEGMENT_SIZE) {
+			throw new IOException("Content line at file offset " + start + " is too long to be mapped.");
+		}
+		final long length = Math.min(Math.min(Math.max(segmentSize, unlexedCount * 2), MAX_SEGMENT_SIZE), size - start);
+		final ByteBuffer segment = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		segmentOffset = start;
+		setBuffer(segment, 0, (int)length, start);
+		return true;
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.util.*;
+
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * An immutable, compact list of the parameters of a content line.
+ * <p>
+ * A parameter list created by a {@link DirectoryProcessor} is shared by all the content lines created from the values of a single line, such as each of the
+ * categories of a <code>CATEGORIES</code> line. Each parameter name is indexed by a hash of its case-folded form, so that parameters can be looked up by name
+ * without regard to case and without creating any strings.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class ParamList extends AbstractList<NameValuePair<String, String>> implements RandomAccess {
+
+	/** The shared list with no parameters. */
+	@SuppressWarnings("unchecked")
+	public static final ParamList EMPTY = new ParamList(new NameValuePair[0]);
+
+	/** The parameter name/value pairs. */
+	private final NameValuePair<String, String>[] params;
+
+	/** The hashes of the case-folded parameter names, in the same order as the parameters. */
+	private final int[] nameHashes;
+
+	/**
+	 * Parameters constructor. The array is not copied.
+	 * @param params The parameter name/value pairs.
+	 */
+	private ParamList(final NameValuePair<String, String>[] params) {
+		this.params = params;
+		nameHashes = new int[params.length];
+		for(int i = params.length - 1; i >= 0; --i) {
+			nameHashes[i] = foldedHash(params[i].getName());
+		}
+	}
+
+	/**
+	 * Returns a parameter list containing the given parameters.
+	 * @param params The parameter name/value pairs.
+	 * @return A parameter list containing the given parameters, which may be the given list if it is already a parameter list.
+	 */
+	public static ParamList of(final List<NameValuePair<String, String>> params) {
+		if(params instanceof ParamList) { //parameter lists are immutable and can be shared
+			return (ParamList)params;
+		}
+		if(params.isEmpty()) {
+			return EMPTY;
+		}
+		@SuppressWarnings("unchecked")
+		final NameValuePair<String, String>[] paramArray = params.toArray(new NameValuePair[params.size()]);
+		return new ParamList(paramArray);
+	}
+
+	/**
+	 * Returns a parameter list containing the given parameters.
+	 * @param params The parameter name/value pairs, which will not be copied and must not be modified afterwards.
+	 * @return A parameter list containing the given parameters.
+	 */
+	static ParamList wrap(final NameValuePair<String, String>[] params) {
+		return params.length > 0 ? new ParamList(params) : EMPTY;
+	}
+
+	@Override
+	public NameValuePair<String, String> get(final int index) {
+		return params[index];
+	}
+
+	@Override
+	public int size() {
+		return params.length;
+	}
+
+	/**
+	 * Determines the index of the first parameter with the given name.
+	 * @param paramName The name of the parameter, which will be matched against available parameters in a case insensitive way.
+	 * @param fromIndex The index at which to start searching.
+	 * @return The index of the first matching parameter at or after the given index, or <code>-1</code> if there is no matching parameter.
+	 */
+	public int indexOfParam(final String paramName, final int fromIndex) {
+		final int hash = foldedHash(paramName);
+		for(int i = fromIndex; i < params.length; ++i) {
+			if(nameHashes[i] == hash) { //only compare the names if the hashes match
+				final String name = params[i].getName();
+				if(name == paramName || name.equalsIgnoreCase(paramName)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Retrieves the first value of a parameter with the given name.
+	 * @param paramName The name of the parameter, which will be matched against available parameters in a case insensitive way.
+	 * @return The value of the first matching parameter, or <code>null</code> if there is no matching parameter.
+	 */
+	public String getParamValue(final String paramName) {
+		final int index = indexOfParam(paramName, 0);
+		return index >= 0 ? params[index].getValue() : null;
+	}
+
+	/**
+	 * Retrieves the values of all parameters with the given name.
+	 * @param paramName The name of the parameter, which will be matched against available parameters in a case insensitive way.
+	 * @return The values of all matching parameters.
+	 */
+	public List<String> getParamValues(final String paramName) {
+		int index = indexOfParam(paramName, 0);
+		if(index < 0) {
+			return new ArrayList<String>(0);
+		}
+		final List<String> paramValueList = new ArrayList<String>(params.length - index);
+		do {
+			paramValueList.add(params[index].getValue());
+			index = indexOfParam(paramName, index + 1);
+		} while(index >= 0);
+		return paramValueList;
+	}
+
+	/**
+	 * Calculates a hash of a name that is the same regardless of the ASCII case of its characters.
+	 * @param name The name to hash.
+	 * @return The hash of the name folded to lowercase.
+	 */
+	private static int foldedHash(final String name) {
+		int hash = 0;
+		for(int i = 0, length = name.length(); i < length; ++i) {
+			char c = name.charAt(i);
+			if(c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			hash = 31 * hash + c;
+		}
+		return hash;
+	}
+
+}
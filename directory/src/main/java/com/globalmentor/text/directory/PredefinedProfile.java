@@ -18,8 +18,7 @@
 
 import java.io.*;
 import java.net.*;
-import java.time.Instant;
-import java.time.LocalTime;
+import java.time.temporal.*;
 import java.util.*;
 
 import static com.globalmentor.io.ReaderParser.*;
@@ -72,11 +71,11 @@ public PredefinedProfile() {
 	 * <dt>{@value Directory#TEXT_VALUE_TYPE}</dt>
 	 * <dd>{@link LocaledText}</dd>
 	 * <dt>{@value Directory#DATE_VALUE_TYPE}</dt>
-	 * <dd>{@link Date}</dd>
-	 * <dt>{@value Directory#TIME_VALUE_TYPE}E</dt>
-	 * <dd>{@link Date}</dd>
+	 * <dd>{@link TemporalAccessor}</dd>
+	 * <dt>{@value Directory#TIME_VALUE_TYPE}</dt>
+	 * <dd>{@link Temporal}</dd>
 	 * <dt>{@value Directory#DATE_TIME_VALUE_TYPE}</dt>
-	 * <dd>{@link Date}</dd>
+	 * <dd>{@link TemporalAccessor}</dd>
 	 * <dt>{@value Directory#INTEGER_VALUE_TYPE}</dt>
 	 * <dd>{@link Integer}</dd>
 	 * <dt>{@value Directory#BOOLEAN_VALUE_TYPE}</dt>
@@ -92,7 +91,7 @@ public PredefinedProfile() {
 	 * @see Directory#DATE_VALUE_TYPE
 	 * @see Directory#TIME_VALUE_TYPE
 	 * @see Directory#DATE_TIME_VALUE_TYPE
-	 * @see Date
+	 * @see DateTimeValues
 	 * @see Directory#INTEGER_VALUE_TYPE
 	 * @see Integer
 	 * @see Directory#BOOLEAN_VALUE_TYPE
@@ -107,11 +106,11 @@ public Object[] createValues(final String profile, final String group, final Str
 		} else if(URI_VALUE_TYPE.equalsIgnoreCase(valueType)) { //uri
 			return new Object[] {processURIValue(reader)}; //process the URI value type			
 		} else if(DATE_VALUE_TYPE.equalsIgnoreCase(valueType)) { //date
-			return new Object[] {Instant.parse(readUntilRequired(reader, CR))}; //TODO check against spec; support variations; test
+			return new Object[] {DateTimeValues.parseDate(readUntilRequired(reader, CR))};
 		} else if(TIME_VALUE_TYPE.equalsIgnoreCase(valueType)) { //time
-			return new Object[] {LocalTime.parse(readUntilRequired(reader, CR))}; //TODO check against spec; support variations; test
+			return new Object[] {DateTimeValues.parseTime(readUntilRequired(reader, CR))};
 		} else if(DATE_TIME_VALUE_TYPE.equalsIgnoreCase(valueType)) { //date-time
-			return new Object[] {LocalTime.parse(readUntilRequired(reader, CR))}; //TODO check against spec; support variations; test
+			return new Object[] {DateTimeValues.parseDateOrDateTime(readUntilRequired(reader, CR))}; //some producers give only a date, such as for REV
 		}
 		return null; //show that we can't create a value
 	}
@@ -141,10 +140,71 @@ public static LocaledText[] processTextValueList(final Reader reader, final List
 			localeTextList.add(new LocaledText(string, locale)); //add the text to our list			
 			delimiter = peekRequired(reader); //see what character is next
 			//		TODO del Log.trace("next delimiter: ", delimiter);	//TODO del			
+			if(delimiter == VALUE_SEPARATOR_CHAR) { //skip the value separator so that the next value can be read
+				reader.skip(1);
+			}
 		} while(delimiter == VALUE_SEPARATOR_CHAR); //keep getting strings while we are still running into value separators
 		return localeTextList.toArray(new LocaledText[localeTextList.size()]); //convert the list of locale text objects to an array and return the array
 	}
 
+	/**
+	 * Processes a text value list directly from a range of characters containing the entire value, without the ending CRLF.
+	 * <p>
+	 * This method recognizes the same escape sequences and encodings as {@link #processTextValueList(Reader, List)}.
+	 * </p>
+	 * @param chars The characters containing the value.
+	 * @param start The index of the beginning of the value.
+	 * @param end The index one past the end of the value.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @return An array of locale text objects representing the values.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the value.
+	 */
+	public static LocaledText[] processTextValueList(final char[] chars, final int start, final int end, final List<NameValuePair<String, String>> paramList)
+			throws ParseIOException {
+		final Locale locale = getLanguageParamValue(paramList); //get the language, if any
+		//check for the non-standard base64 encoding used by producers such as Nokia
+		final String encoding = getParamValue(paramList, ENCODING_PARAM_NAME); //see if an encoding is indicated
+		if(B_ENCODING_TYPE.equalsIgnoreCase(encoding) || BASE64_ENCODING_TYPE.equalsIgnoreCase(encoding)) { //if the text is encoded as binary, it won't separate values using commas or escape characters
+			final byte[] bytes = Base64.getDecoder().decode(new String(chars, start, end - start)); //decode the text into bytes
+			return new LocaledText[] {new LocaledText(new String(bytes, UTF_8), locale)}; //hope that the bytes represent UTF-8; using base64 for text is non-standard and undocumented
+		}
+		final List<LocaledText> localeTextList = new ArrayList<LocaledText>(); //create a new list to hold the locale text objects we find
+		final StringBuilder stringBuilder = new StringBuilder(); //only used for values with escape sequences
+		int segmentStart = start; //the beginning of the characters not yet collected
+		for(int i = start; i <= end; ++i) {
+			if(i == end || chars[i] == VALUE_SEPARATOR_CHAR) { //if we reached the end of a value
+				final String string;
+				if(stringBuilder.length() == 0) { //if there were no escape sequences, create the string directly
+					string = new String(chars, segmentStart, i - segmentStart);
+				} else {
+					string = stringBuilder.append(chars, segmentStart, i - segmentStart).toString();
+					stringBuilder.setLength(0);
+				}
+				localeTextList.add(new LocaledText(string, locale)); //add the text to our list
+				segmentStart = i + 1;
+			} else if(chars[i] == TEXT_ESCAPE_CHAR) { //if this is an escape character ('\\')
+				stringBuilder.append(chars, segmentStart, i - segmentStart); //collect the characters before the escape sequence
+				final char escapedChar = ++i < end ? chars[i] : CR; //get the character after the escape character
+				switch(escapedChar) { //see what character comes after this one
+					case TEXT_LINE_BREAK_ESCAPED_LOWERCASE_CHAR: //"\n"
+					case TEXT_LINE_BREAK_ESCAPED_UPPERCASE_CHAR: //"\N"
+						stringBuilder.append('\n'); //append a single newline character
+						break;
+					case TEXT_ESCAPE_CHAR:
+					case VALUE_SEPARATOR_CHAR:
+					case ';': //accept "\;" from VCard structured types, even though it is not mentioned in RFC 2425
+						stringBuilder.append(escapedChar); //escaped backslashes and commas get appended normally
+						break;
+					default: //if something else was escaped, we don't recognize it
+						throw new ParseUnexpectedDataException(
+								Characters.of('\\', ',', TEXT_LINE_BREAK_ESCAPED_LOWERCASE_CHAR, TEXT_LINE_BREAK_ESCAPED_UPPERCASE_CHAR), escapedChar, -1, i - start); //show that we didn't expect this character here				
+				}
+				segmentStart = i + 1;
+			}
+		}
+		return localeTextList.toArray(new LocaledText[localeTextList.size()]); //convert the list of locale text objects to an array and return the array
+	}
+
 	/** The delimiters that can divide a text value: '\\' ',' and CR. */
 	protected static final Characters TEXT_VALUE_DELIMITER_CHARACTERS = Characters.of(TEXT_ESCAPE_CHAR, VALUE_SEPARATOR_CHAR, CR);
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import java.util.*;
+
+/**
+ * The state of the current profile while processing or serializing the content lines of a single directory of type <code>text/directory</code>. The profile
+ * is determined by the last "profile:" content line and by any enclosing "begin:"/"end:" blocks.
+ * <p>
+ * A new context is created for each directory, allowing processors and serializers themselves to be shared. This class is not thread-safe.
+ * </p>
+ * @author Garret Wilson
+ */
+public class ProfileContext {
+
+	/** The profile last encountered in a "profile:" type content line. */
+	private String defaultProfile = null;
+
+	/** Whether the default profile was the last profile encountered. */
+	private boolean useDefaultProfile = false;
+
+	/** The stack of profiles encountered in a "begin:"/"end:" blocks. */
+	private final Deque<String> profileStack = new ArrayDeque<String>();
+
+	/**
+	 * Sets the profile to be used for subsequent content lines. If in the middle of a profile "begin:"/"end:" block, the profile of that block will be suspended
+	 * until the block ends or another block begins.
+	 * @param profile The new profile of the directory.
+	 */
+	public void setProfile(final String profile) {
+		defaultProfile = profile; //save the profile
+		useDefaultProfile = true; //show that we should use the default profile
+	}
+
+	/**
+	 * @return The current profile, either the last set profile, the profile of the current "begin:"/"end:" block, or <code>null</code> if there is no profile, in
+	 *         that order.
+	 */
+	public String getProfile() {
+		if(useDefaultProfile && defaultProfile != null) { //if we should use the default profile and there is a profile set
+			return defaultProfile; //return the last set profile
+		} else if(!profileStack.isEmpty()) { //if we're in a profile "begin:"/"end:" block
+			return profileStack.getLast(); //return the profile of the current block
+		} else { //if no profile is set, and we're not in a profile "begin:"/"end:" block
+			return defaultProfile; //if there's no profile "begin:"/"end:" block, we'll have to use the default profile, even if it is null
+		}
+	}
+
+	/** @return <code>true</code> if there is no open "begin:"/"end:" block. */
+	public boolean isTopLevel() {
+		return profileStack.isEmpty();
+	}
+
+	/**
+	 * Pushes the given profile on the stack, and removes the set profile, if any. Suspends the currently set profile, if any.
+	 * @param profile The profile of the new "begin:"/"end:" block block.
+	 */
+	public void pushProfile(final String profile) {
+		profileStack.addLast(profile); //push the profile onto the stack
+		useDefaultProfile = false; //suspend use of the default profile
+	}
+
+	/**
+	 * Removes the profile from the top of the stack. Suspends the currently set profile, if any.
+	 * @return The profile from the top of the stack.
+	 * @throws NoSuchElementException Thrown if there are no more profiles on the stack.
+	 */
+	public String popProfile() {
+		useDefaultProfile = false; //suspend use of the default profile
+		return profileStack.removeLast(); //pop the profile from the stack
+	}
+
+}
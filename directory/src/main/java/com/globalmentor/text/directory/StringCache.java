@@ -0,0 +1,100 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory;
+
+/**
+ * A fixed-size cache of short strings that repeat often in directories, such as type names, parameter names and values, and short values, allowing an equal
+ * string already seen to be reused rather than keeping a duplicate.
+ * <p>
+ * Each string is kept in a slot determined by its hash code, replacing any string already in that slot, so the cache never grows and strings that repeat
+ * most often tend to remain. Because strings are immutable, a cache may be shared among threads without synchronization; a thread may at worst miss a string
+ * another thread has just cached, resulting only in a duplicate.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class StringCache {
+
+	/** The maximum length of a string that will be cached; longer strings rarely repeat and are returned unchanged. */
+	public static final int MAX_LENGTH = 32;
+
+	/** The cached strings, indexed by slot. */
+	private final String[] strings;
+
+	/** The mask for determining a slot from a hash code. */
+	private final int slotMask;
+
+	/**
+	 * Capacity constructor.
+	 * @param capacity The number of strings the cache can hold, which will be rounded up to a power of two.
+	 * @throws IllegalArgumentException if the capacity is not positive or is too large.
+	 */
+	public StringCache(final int capacity) {
+		if(capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity);
+		}
+		final int slotCount = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1; //round up to a power of two
+		strings = new String[slotCount];
+		slotMask = slotCount - 1;
+	}
+
+	/**
+	 * Determines the slot for a string with the given hash code.
+	 * @param hashCode The hash code of the string, as calculated by {@link String#hashCode()}.
+	 * @return The slot of the string.
+	 */
+	int getSlot(final int hashCode) {
+		return (hashCode ^ (hashCode >>> 16)) & slotMask; //spread the high bits so that similar short strings don't collide
+	}
+
+	/**
+	 * @param slot The slot of the string.
+	 * @return The string cached in the given slot, or <code>null</code> if there is none.
+	 */
+	String get(final int slot) {
+		return strings[slot];
+	}
+
+	/**
+	 * Caches a string in the given slot, replacing any string already there.
+	 * @param slot The slot of the string.
+	 * @param string The string to cache.
+	 */
+	void set(final int slot, final String string) {
+		strings[slot] = string;
+	}
+
+	/**
+	 * Returns a cached string equal to the given string, if there is one; otherwise caches and returns the given string. Strings longer than {@link #MAX_LENGTH}
+	 * are returned unchanged without being cached.
+	 * @param string The string to look up, or <code>null</code>.
+	 * @return A string equal to the given string, or <code>null</code> if the given string is <code>null</code>.
+	 */
+	public String intern(final String string) {
+		if(string == null || string.length() > MAX_LENGTH) {
+			return string;
+		}
+		final int slot = getSlot(string.hashCode());
+		final String cachedString = strings[slot];
+		if(string.equals(cachedString)) {
+			return cachedString;
+		}
+		strings[slot] = string;
+		return string;
+	}
+
+}
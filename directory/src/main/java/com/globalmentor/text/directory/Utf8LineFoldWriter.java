@@ -0,0 +1,231 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory;
+
+import static com.globalmentor.text.ABNF.*;
+import static com.globalmentor.text.directory.Directory.*;
+
+import java.io.*;
+
+/**
+ * Writer that encodes a directory of type <code>text/directory</code> directly into UTF-8 bytes, folding lines as defined in "RFC 2425: A MIME Content-Type
+ * for Directory Information".
+ * <p>
+ * Line folding is performed by adding a CRLF+SP before any character that would make a line longer than 75 octets, the length recommended by RFC 2425. Unlike
+ * {@link LineFoldWriter}, line lengths are counted in encoded octets rather than in characters, including the space beginning a continuation line, and the
+ * bytes encoding a single character are never split across lines.
+ * </p>
+ * <p>
+ * Encoded bytes are accumulated in an internal buffer that is written to the output stream only when full or when flushed, so the output stream needs no
+ * buffering of its own. An unpaired surrogate character is encoded as <code>'?'</code>, as would be done by an {@link OutputStreamWriter}. This writer is not
+ * thread safe.
+ * </p>
+ * @author Garret Wilson
+ * @see LineFoldWriter
+ */
+public class Utf8LineFoldWriter extends Writer {
+
+	/** The default size of the buffer of encoded bytes. */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/** The maximum number of bytes written for a single character, including a preceding fold. */
+	private static final int MAX_CHARACTER_BYTE_COUNT = 4 + 3;
+
+	/** The byte written in place of an unpaired surrogate character. */
+	private static final byte REPLACEMENT_BYTE = '?';
+
+	/** The output stream to which encoded bytes are written. */
+	private final OutputStream outputStream;
+
+	/** The buffer of encoded bytes not yet written to the output stream. */
+	private final byte[] buffer;
+
+	/** The number of encoded bytes in the buffer. */
+	private int bufferLength = 0;
+
+	/** The number of octets in the current line. */
+	private int lineLength = 0;
+
+	/** A high surrogate character waiting for its low surrogate, or <code>0</code> if there is none. */
+	private char pendingHighSurrogate = 0;
+
+	/**
+	 * Output stream constructor using a default buffer size.
+	 * @param outputStream The output stream to which the encoded directory will be written.
+	 */
+	public Utf8LineFoldWriter(final OutputStream outputStream) {
+		this(outputStream, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Output stream and buffer size constructor.
+	 * @param outputStream The output stream to which the encoded directory will be written.
+	 * @param bufferSize The size of the buffer of encoded bytes.
+	 * @throws IllegalArgumentException if the buffer size is too small to hold a folded character.
+	 */
+	public Utf8LineFoldWriter(final OutputStream outputStream, final int bufferSize) {
+		if(bufferSize < MAX_CHARACTER_BYTE_COUNT) {
+			throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+		}
+		this.outputStream = outputStream;
+		this.buffer = new byte[bufferSize];
+	}
+
+	@Override
+	public void write(final int c) throws IOException {
+		writeChar((char)c);
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len) throws IOException {
+		final int end = off + len;
+		for(int i = off; i < end; ++i) {
+			final char c = cbuf[i];
+			if(c < 0x80 && c > CR && pendingHighSurrogate == 0 && lineLength < LONG_LINE_LENGTH && bufferLength < buffer.length) { //fast path for ASCII text not ending the line
+				buffer[bufferLength++] = (byte)c;
+				++lineLength;
+			} else {
+				writeChar(c);
+			}
+		}
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len) throws IOException {
+		final int end = off + len;
+		for(int i = off; i < end; ++i) {
+			final char c = str.charAt(i);
+			if(c < 0x80 && c > CR && pendingHighSurrogate == 0 && lineLength < LONG_LINE_LENGTH && bufferLength < buffer.length) { //fast path for ASCII text not ending the line
+				buffer[bufferLength++] = (byte)c;
+				++lineLength;
+			} else {
+				writeChar(c);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a single character, folding the line first if needed.
+	 * @param c The character to write.
+	 * @throws IOException if there is an error writing to the output stream.
+	 */
+	protected void writeChar(final char c) throws IOException {
+		if(buffer.length - bufferLength < MAX_CHARACTER_BYTE_COUNT) { //make sure there is room for the character and a fold
+			flushBuffer();
+		}
+		if(pendingHighSurrogate != 0) { //if the previous character was a high surrogate
+			final char highSurrogate = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			if(Character.isLowSurrogate(c)) {
+				final int codePoint = Character.toCodePoint(highSurrogate, c);
+				fold(4);
+				buffer[bufferLength++] = (byte)(0xF0 | (codePoint >> 18));
+				buffer[bufferLength++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[bufferLength++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[bufferLength++] = (byte)(0x80 | (codePoint & 0x3F));
+				return;
+			}
+			fold(1);
+			buffer[bufferLength++] = REPLACEMENT_BYTE; //the high surrogate was unpaired
+		}
+		if(c < 0x80) {
+			if(c == CR) { //we'll assume a CR is the end of the line
+				buffer[bufferLength++] = (byte)c;
+				lineLength = 0;
+			} else if(c == LF) { //we'll assume LF is part of a CRLF and ignore it
+				buffer[bufferLength++] = (byte)c;
+			} else {
+				fold(1);
+				buffer[bufferLength++] = (byte)c;
+			}
+		} else if(c < 0x800) {
+			fold(2);
+			buffer[bufferLength++] = (byte)(0xC0 | (c >> 6));
+			buffer[bufferLength++] = (byte)(0x80 | (c & 0x3F));
+		} else if(Character.isHighSurrogate(c)) {
+			pendingHighSurrogate = c; //wait for the low surrogate
+		} else if(Character.isLowSurrogate(c)) { //a low surrogate with no high surrogate
+			fold(1);
+			buffer[bufferLength++] = REPLACEMENT_BYTE;
+		} else {
+			fold(3);
+			buffer[bufferLength++] = (byte)(0xE0 | (c >> 12));
+			buffer[bufferLength++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+			buffer[bufferLength++] = (byte)(0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * Folds the line if writing the given number of octets would make it too long, and counts the octets as part of the line. The buffer must have room for the
+	 * fold.
+	 * @param byteCount The number of octets about to be written.
+	 */
+	private void fold(final int byteCount) {
+		if(lineLength + byteCount > LONG_LINE_LENGTH) { //if the octets would go past a full line, continue on a new line
+			buffer[bufferLength++] = CR;
+			buffer[bufferLength++] = LF;
+			buffer[bufferLength++] = SP;
+			lineLength = 1; //the line starts with the space
+		}
+		lineLength += byteCount;
+	}
+
+	/**
+	 * Writes all encoded bytes in the buffer to the output stream, without flushing the output stream.
+	 * @throws IOException if there is an error writing to the output stream.
+	 */
+	protected void flushBuffer() throws IOException {
+		if(bufferLength > 0) {
+			outputStream.write(buffer, 0, bufferLength);
+			bufferLength = 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Any high surrogate character still waiting for its low surrogate is kept until more characters are written.
+	 * </p>
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		outputStream.flush();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Any high surrogate character still waiting for its low surrogate is written as <code>'?'</code>.
+	 * </p>
+	 */
+	@Override
+	public void close() throws IOException {
+		if(pendingHighSurrogate != 0) {
+			pendingHighSurrogate = 0;
+			if(buffer.length - bufferLength < MAX_CHARACTER_BYTE_COUNT) {
+				flushBuffer();
+			}
+			fold(1);
+			buffer[bufferLength++] = REPLACEMENT_BYTE;
+		}
+		flushBuffer();
+		outputStream.close();
+	}
+
+}
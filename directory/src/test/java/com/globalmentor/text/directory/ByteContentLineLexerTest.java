@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link ByteContentLineLexer}.
+ * @author Garret Wilson
+ */
+public class ByteContentLineLexerTest {
+
+	/** Tests that lexing UTF-8 bytes directly, including unfolding, produces the same content lines as lexing decoded characters. */
+	@Test
+	public void testMatchesCharacters() throws IOException {
+		final String directory = "BEGIN:VCARD\r\nVERSION:2.1\r\nN;CHARSET=UTF-8:Doe;Jane\r\nFN:Ms. Jane L\u00edvia\r\n  Doe\r\n" //
+				+ "item1.EMAIL;TYPE=INTERNET,\"pref\":jane@example.com\r\nNOTE:First line\r\u2028S\u00e9cond line\r\nEND:VCARD\r\n";
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		final ContentLine[] charContentLines = directoryProcessor.processContentLines(new LineUnfoldReader(new StringReader(directory)));
+		final ContentLine[] byteContentLines = directoryProcessor.processContentLines(new ByteContentLineLexer(new ByteArrayInputStream(directory.getBytes(UTF_8))));
+		assertThat(byteContentLines.length, is(charContentLines.length));
+		for(int i = 0; i < charContentLines.length; ++i) {
+			assertThat(byteContentLines[i].getGroup(), is(charContentLines[i].getGroup()));
+			assertThat(byteContentLines[i].getName(), is(charContentLines[i].getName()));
+			assertThat(byteContentLines[i].getParamList(), is(charContentLines[i].getParamList()));
+			assertThat(byteContentLines[i].getValue().toString(), is(charContentLines[i].getValue().toString()));
+		}
+		assertThat(byteContentLines[3].getValue().toString(), is("Ms. Jane L\u00edvia Doe"));
+		assertThat(byteContentLines[4].getGroup(), is("item1"));
+		assertThat(byteContentLines[5].getValue().toString(), is("First line\u2028S\u00e9cond line"));
+	}
+
+	/** Tests that folds at every position within a word and around buffer boundaries are unfolded the same by the byte lexer and the unfolding reader. */
+	@Test
+	public void testUnfoldAtEveryPosition() throws IOException {
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		for(int prefixLength = 0; prefixLength < 24; ++prefixLength) {
+			final StringBuilder prefix = new StringBuilder();
+			for(int i = 0; i < prefixLength; ++i) {
+				prefix.append((char)('a' + i));
+			}
+			final String directory = "NOTE:" + prefix + "\r\n " + prefix + "\r\n \r\n x\r\u2028y\r\nFN:" + prefix + "\r\n";
+			final String note = prefix + "" + prefix + "x\u2028y";
+			final ContentLine[] charContentLines = directoryProcessor.processContentLines(new LineUnfoldReader(new StringReader(directory)));
+			final ContentLine[] byteContentLines = directoryProcessor
+					.processContentLines(new ByteContentLineLexer(new ByteArrayInputStream(directory.getBytes(UTF_8)), 16));
+			assertThat(charContentLines[0].getValue().toString(), is(note));
+			assertThat(byteContentLines[0].getValue().toString(), is(note));
+			assertThat(byteContentLines[1].getValue().toString(), is(prefix.toString()));
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link ContentLineLexer}.
+ * @author Garret Wilson
+ */
+public class ContentLineLexerTest {
+
+	/** Tests that a line ending in '=' only continues on the next line if its parameters actually indicate quoted-printable encoding. */
+	@Test
+	public void testSoftLineBreaks() throws IOException {
+		final String directory = "X-QUOTED-PRINTABLE-NOTE:a=\r\nFN:Jane Doe\r\nNOTE;X-FOO=QUOTED-PRINTABLE:b=\r\nFN:John Doe\r\n" //
+				+ "PHOTO;ENCODING=b;TYPE=JPEG;X-LABEL=\"QUOTED-PRINTABLE\":/9j/AA==\r\nFN:Richard Roe\r\n" //
+				+ "NOTE;ENCODING=QUOTED-PRINTABLE:c=\r\nd\r\nNOTE;CHARSET=UTF-8;quoted-printable:e=\r\nf\r\n";
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		for(final ContentLine[] contentLines : new ContentLine[][] {directoryProcessor.processContentLines(new StringReader(directory)),
+				directoryProcessor.processContentLines(new ByteContentLineLexer(new ByteArrayInputStream(directory.getBytes(UTF_8))))}) {
+			assertThat(contentLines.length, is(8));
+			assertThat(contentLines[0].getValue().toString(), is("a="));
+			assertThat(contentLines[1].getValue().toString(), is("Jane Doe"));
+			assertThat(contentLines[2].getValue().toString(), is("b="));
+			assertThat(contentLines[3].getValue().toString(), is("John Doe"));
+			assertThat(contentLines[4].getValue().toString(), is("/9j/AA=="));
+			assertThat(contentLines[5].getValue().toString(), is("Richard Roe"));
+			assertThat(contentLines[6].getValue().toString(), is("cd"));
+			assertThat(contentLines[7].getValue().toString(), is("ef"));
+		}
+	}
+
+	/** Tests that literal non-ASCII characters in a quoted-printable value are decoded along with the escaped bytes using the charset of the value. */
+	@Test
+	public void testQuotedPrintableLiterals() throws IOException {
+		final ContentLine[] contentLines = new DirectoryProcessor()
+				.processContentLines(new StringReader("NOTE;CHARSET=ISO-8859-1;ENCODING=QUOTED-PRINTABLE:Caf\u00E9 =E9t\u00E9\r\n" //
+						+ "NOTE;ENCODING=QUOTED-PRINTABLE:\u65E5=E6=9C=AC \uD83D\uDE00=\r\n!\r\n"));
+		assertThat(contentLines.length, is(2));
+		assertThat(contentLines[0].getValue().toString(), is("Caf\u00E9 \u00E9t\u00E9"));
+		assertThat(contentLines[1].getValue().toString(), is("\u65E5\u672C \uD83D\uDE00!"));
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.time.*;
+
+import org.junit.jupiter.api.*;
+
+import com.globalmentor.io.ParseIOException;
+
+/**
+ * Tests of {@link DateTimeValues}.
+ * @author Garret Wilson
+ */
+public class DateTimeValuesTest {
+
+	/** Tests parsing dates and times in the basic, extended, and truncated forms, with and without UTC offsets. */
+	@Test
+	public void testParse() throws IOException {
+		for(final String date : asList("1970-01-02", "19700102", "19700102T000000", "1970-01-02T00:00:00")) {
+			assertThat(DateTimeValues.parseDateOrDateTime(date).query(LocalDate::from), is(LocalDate.of(1970, 1, 2)));
+		}
+		assertThat(DateTimeValues.parseDate("--0102"), is(MonthDay.of(1, 2)));
+		assertThat(DateTimeValues.parseDate("--01-02"), is(MonthDay.of(1, 2)));
+		assertThat(DateTimeValues.parseDate("1970-01"), is(YearMonth.of(1970, 1)));
+		assertThat(DateTimeValues.parseDate("1970"), is(Year.of(1970)));
+		assertThat(DateTimeValues.parseTime("102203"), is(LocalTime.of(10, 22, 3)));
+		assertThat(DateTimeValues.parseTime("10:22"), is(LocalTime.of(10, 22)));
+		assertThat(DateTimeValues.parseTime("10:22:03.5Z"), is(OffsetTime.of(10, 22, 3, 500_000_000, ZoneOffset.UTC)));
+		assertThat(DateTimeValues.parseDateTime("19951031T222710Z"), is(OffsetDateTime.of(1995, 10, 31, 22, 27, 10, 0, ZoneOffset.UTC)));
+		assertThat(DateTimeValues.parseDateTime("1995-10-31T22:27:10-05:00"), is(OffsetDateTime.of(1995, 10, 31, 22, 27, 10, 0, ZoneOffset.ofHours(-5))));
+		assertThat(DateTimeValues.parseDateTime("19951031T2227+0530"), is(OffsetDateTime.of(1995, 10, 31, 22, 27, 0, 0, ZoneOffset.ofHoursMinutes(5, 30))));
+		assertThat(DateTimeValues.parseDateOrDateTime("1995-10-31"), is(LocalDate.of(1995, 10, 31)));
+		for(final String invalid : asList("", "sometime", "1970-13-01", "1970-01-0x", "19700102T", "1970-01T10:00", "25:00", "10:22:03+5", "10:2203")) {
+			assertThrows(ParseIOException.class, () -> DateTimeValues.parseDateOrDateTime(invalid), invalid);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import com.globalmentor.io.*;
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * Tests of {@link DirectoryProcessor}.
+ * @author Garret Wilson
+ */
+public class DirectoryProcessorTest {
+
+	/** Tests that the deprecated reader methods read a single content line or its parts, leaving the rest in the reader. */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testProcessReader() throws IOException {
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		final Reader reader = new StringReader("item1.CATEGORIES;VALUE=text;TYPE=work:friends,family\r\n  \r\nFN:Jane Doe\r\n");
+		final ContentLine[] contentLines = directoryProcessor.processContentLine(reader);
+		assertThat(contentLines.length, is(2));
+		assertThat(contentLines[0].getGroup(), is("item1"));
+		assertThat(contentLines[0].getName(), is("CATEGORIES"));
+		assertThat(contentLines[0].getParamValue("type"), is("work"));
+		assertThat(contentLines[1].getValue().toString(), is("family"));
+		assertThat(directoryProcessor.processContentLine(reader).length, is(0));
+		assertThat(directoryProcessor.processContentLine(reader)[0].getValue().toString(), is("Jane Doe"));
+		assertThat(directoryProcessor.processContentLine(reader), is(nullValue()));
+		assertThrows(ParseEOFException.class, () -> directoryProcessor.processContentLine(new StringReader("FN:Jane Doe")));
+
+		final Reader paramReader = new StringReader("TYPE=work,home;LABEL=\"a:b;c\";PREF:value\r\n");
+		assertThat(directoryProcessor.processParameters(paramReader), is(asList(new NameValuePair<>("TYPE", "work"), new NameValuePair<>("TYPE", "home"),
+				new NameValuePair<>("LABEL", "a:b;c"), new NameValuePair<String, String>("PREF", null))));
+		assertThat((char)paramReader.read(), is(':'));
+		final Object[] values = directoryProcessor.processValue(null, null, "NOTE", asList(), paramReader);
+		assertThat(values.length, is(1));
+		assertThat(values[0].toString(), is("value"));
+		assertThat((char)paramReader.read(), is('\r'));
+	}
+
+	/** Tests that the deprecated reader method keeps no profile state in the processor between calls, and that the deprecated profile methods fail. */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testProcessReaderKeepsNoProfileState() throws IOException {
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		final Reader reader = new StringReader("BEGIN:VCARD\r\nFN:Jane Doe\r\nEND:VCARD\r\n");
+		assertThat(directoryProcessor.processContentLine(reader)[0].getName(), is("BEGIN"));
+		assertThat(directoryProcessor.processContentLine(reader)[0].getProfile(), is(nullValue()));
+		assertThrows(UnsupportedOperationException.class, () -> directoryProcessor.pushProfile("VCARD"));
+		assertThrows(UnsupportedOperationException.class, () -> directoryProcessor.getProfile());
+	}
+
+	/** Handler that records each notification as a string, and records errors rather than aborting processing. */
+	private static class RecordingContentLineHandler implements ContentLineHandler {
+
+		/** The notifications received, in order. */
+		private final List<String> events = new ArrayList<>();
+
+		/** @return The notifications received, in order. */
+		public List<String> getEvents() {
+			return events;
+		}
+
+		@Override
+		public void beginProfile(final String profile) {
+			events.add("beginProfile " + profile);
+		}
+
+		@Override
+		public void contentLine(final ContentLine contentLine) {
+			events.add(contentLine.toString());
+		}
+
+		@Override
+		public void endProfile(final String profile) {
+			events.add("endProfile " + profile);
+		}
+
+		@Override
+		public void error(final ParseIOException parseIOException) {
+			events.add("error");
+		}
+
+	}
+
+	/** Tests that nested profile blocks are reported in order, with each block enclosing its own "begin:" and "end:" content lines. */
+	@Test
+	public void testHandlerNestedProfiles() throws IOException {
+		final RecordingContentLineHandler handler = new RecordingContentLineHandler();
+		new DirectoryProcessor().processContentLines(
+				new CharContentLineLexer(new StringReader("BEGIN:VCARD\r\nFN:Jane Doe\r\nBEGIN:X-ITEM\r\nNOTE:item\r\nEND:X-ITEM\r\nNOTE:card\r\nEND:VCARD\r\n")),
+				new ProfileContext(), handler);
+		assertThat(handler.getEvents(),
+				is(asList("beginProfile VCARD", "[VCARD] BEGIN:VCARD", "[VCARD] FN:Jane Doe", "beginProfile X-ITEM", "[X-ITEM] BEGIN:X-ITEM", "[X-ITEM] NOTE:item",
+						"[X-ITEM] END:X-ITEM", "endProfile X-ITEM", "[VCARD] NOTE:card", "[VCARD] END:VCARD", "endProfile VCARD")));
+	}
+
+	/** Tests that a malformed content line is reported to the handler, and that processing continues with the following content lines. */
+	@Test
+	public void testHandlerErrorContinues() throws IOException {
+		final RecordingContentLineHandler handler = new RecordingContentLineHandler();
+		new DirectoryProcessor().processContentLines(
+				new CharContentLineLexer(new StringReader("BEGIN:VCARD\r\nFN:Jane Doe\r\nbad line\r\nNOTE:after\r\nEND:VCARD\r\nEND:VCARD\r\n")),
+				new ProfileContext(), handler);
+		assertThat(handler.getEvents(), is(asList("beginProfile VCARD", "[VCARD] BEGIN:VCARD", "[VCARD] FN:Jane Doe", "error", "[VCARD] NOTE:after",
+				"[VCARD] END:VCARD", "endProfile VCARD", "error")));
+	}
+
+	/** Tests that data ending within a content line is still reported as an exception, even though the handler accepts other errors. */
+	@Test
+	public void testHandlerEOFRethrown() throws IOException {
+		final RecordingContentLineHandler handler = new RecordingContentLineHandler();
+		assertThrows(ParseEOFException.class, () -> new DirectoryProcessor()
+				.processContentLines(new CharContentLineLexer(new StringReader("BEGIN:VCARD\r\nFN:Jane Doe")), new ProfileContext(), handler));
+		assertThat(handler.getEvents(), is(asList("beginProfile VCARD", "[VCARD] BEGIN:VCARD")));
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static com.globalmentor.text.directory.Directory.*;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import com.globalmentor.model.LocaledText;
+
+/**
+ * Tests of {@link DirectorySerializer}.
+ * @author Garret Wilson
+ */
+public class DirectorySerializerTest {
+
+	/** The name of the profile used for testing. */
+	private static final String TEST_PROFILE_NAME = "X-TEST";
+
+	/** A profile in which all the types used for testing have text values. */
+	private static final Profile TEST_PROFILE = new AbstractProfile() {
+		{
+			registerValueType("NOTE", TEXT_VALUE_TYPE);
+			registerValueType("CATEGORIES", TEXT_VALUE_TYPE);
+			registerValueType("TITLE", TEXT_VALUE_TYPE);
+		}
+
+		@Override
+		public Directory createDirectory(final ContentLine[] contentLines) {
+			return null;
+		}
+	};
+
+	/** Tests combining many values for several single-value names in place of the first content line with each name. */
+	@Test
+	public void testCombineManyValues() throws IOException {
+		final List<ContentLine> contentLines = new ArrayList<>();
+		contentLines.add(new ContentLine(BEGIN_TYPE, new LocaledText(TEST_PROFILE_NAME)));
+		final StringBuilder expectedNote = new StringBuilder();
+		final StringBuilder expectedCategories = new StringBuilder();
+		for(int i = 0; i < 500; ++i) {
+			contentLines.add(createContentLine(TEST_PROFILE_NAME, null, "NOTE", new LocaledText("Note " + i, i == 0 ? Locale.US : null)));
+			expectedNote.append(i > 0 ? DirectorySerializer.CONTENT_LINE_TEXT_COMBINE_STRING : "").append("Note ").append(i);
+			if(i % 100 == 0) {
+				contentLines.add(createContentLine(TEST_PROFILE_NAME, null, "CATEGORIES", new LocaledText("category" + i)));
+				expectedCategories.append(i > 0 ? DirectorySerializer.CONTENT_LINE_TEXT_COMBINE_STRING : "").append("category").append(i);
+			}
+			contentLines.add(createContentLine(TEST_PROFILE_NAME, null, "TITLE", new LocaledText("Title " + i)));
+		}
+		contentLines.add(new ContentLine(END_TYPE, new LocaledText(TEST_PROFILE_NAME)));
+		final DirectorySerializer directorySerializer = new DirectorySerializer();
+		directorySerializer.setSerializationSingleValueNames("NOTE", "CATEGORIES", "FN");
+		directorySerializer.registerProfile(TEST_PROFILE_NAME, TEST_PROFILE);
+		final StringWriter writer = new StringWriter();
+		directorySerializer.serializeContentLines(contentLines.toArray(new ContentLine[contentLines.size()]), writer);
+		final String[] lines = writer.toString().replace("\r\n ", "").split("\r\n");
+		assertThat(lines.length, is(2 + 1 + 1 + 500));
+		assertThat(lines[1], startsWith("NOTE;language=en-US:Note 0\\n--\\nNote 1\\n"));
+		assertThat(lines[2], is("CATEGORIES:category0\\n--\\ncategory100\\n--\\ncategory200\\n--\\ncategory300\\n--\\ncategory400"));
+		assertThat(lines[3], is("TITLE:Title 0"));
+		assertThat(lines[lines.length - 2], is("TITLE:Title 499"));
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		directoryProcessor.registerProfile(TEST_PROFILE_NAME, TEST_PROFILE);
+		final ContentLine[] readContentLines = directoryProcessor.processContentLines(new LineUnfoldReader(new StringReader(writer.toString())));
+		assertThat(readContentLines[1].getValue(), is(new LocaledText(expectedNote.toString(), Locale.US)));
+		assertThat(readContentLines[2].getValue(), is(new LocaledText(expectedCategories.toString())));
+		assertThat(asList(readContentLines).stream().filter(contentLine -> contentLine.getName().equals("TITLE")).count(), is(500L));
+	}
+
+	/** Tests that values of single-value names that cannot be combined are reported, naming the first such property in the document. */
+	@Test
+	public void testCombineUnsupportedValues() {
+		final ContentLine[] contentLines = new ContentLine[] {new ContentLine(BEGIN_TYPE, new LocaledText(TEST_PROFILE_NAME)),
+				new ContentLine(TEST_PROFILE_NAME, null, "X-COUNT", Integer.valueOf(1)), new ContentLine(TEST_PROFILE_NAME, null, "X-SIZE", Integer.valueOf(3)),
+				new ContentLine(TEST_PROFILE_NAME, null, "X-SIZE", Integer.valueOf(4)), new ContentLine(TEST_PROFILE_NAME, null, "X-COUNT", Integer.valueOf(2)),
+				new ContentLine(END_TYPE, new LocaledText(TEST_PROFILE_NAME))};
+		final DirectorySerializer directorySerializer = new DirectorySerializer();
+		directorySerializer.setSerializationSingleValueNames("X-SIZE", "X-COUNT");
+		directorySerializer.registerProfile(TEST_PROFILE_NAME, TEST_PROFILE);
+		final UnsupportedOperationException exception = assertThrows(UnsupportedOperationException.class,
+				() -> directorySerializer.serializeContentLines(contentLines, new StringWriter()));
+		assertThat(exception.getMessage(), containsString("X-COUNT"));
+		assertThat(exception.getCause(), is(instanceOf(IllegalArgumentException.class)));
+	}
+
+	/** Tests that a subclass overriding the deprecated pairwise combining of values is still used to combine values. */
+	@Test
+	public void testCombinePairwiseOverride() throws IOException {
+		final DirectorySerializer directorySerializer = new DirectorySerializer() {
+			@Override
+			@SuppressWarnings("deprecation")
+			protected ContentLine combineValues(final ContentLine contentLine1, final ContentLine contentLine2) {
+				final ContentLine contentLine = super.combineValues(contentLine1, contentLine2);
+				return new ContentLine(contentLine.getProfile(), contentLine.getGroup(), contentLine.getName(), contentLine.getParamList(),
+						new LocaledText("(" + contentLine.getValue() + ")"));
+			}
+		};
+		directorySerializer.setSerializationSingleValueNames("NOTE");
+		directorySerializer.registerProfile(TEST_PROFILE_NAME, TEST_PROFILE);
+		final StringWriter writer = new StringWriter();
+		directorySerializer.serializeContentLines(new ContentLine[] {new ContentLine(BEGIN_TYPE, new LocaledText(TEST_PROFILE_NAME)),
+				createContentLine(TEST_PROFILE_NAME, null, "NOTE", new LocaledText("a")), createContentLine(TEST_PROFILE_NAME, null, "NOTE", new LocaledText("b")),
+				createContentLine(TEST_PROFILE_NAME, null, "NOTE", new LocaledText("c")), new ContentLine(END_TYPE, new LocaledText(TEST_PROFILE_NAME))}, writer);
+		assertThat(writer.toString().split("\r\n")[1], is("NOTE:((a\\n--\\nb)\\n--\\nc)"));
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.util.Collections.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * Tests of {@link Directory}.
+ * @author Garret Wilson
+ */
+public class DirectoryTest {
+
+	/** Tests that language parameter values produce the correct locales, reusing locales for repeated values, however many languages have been seen. */
+	@Test
+	public void testGetLanguageParamValue() {
+		final Locale locale = Directory.getLanguageParamValue(singletonList(new NameValuePair<>("LANGUAGE", "fr-CA")));
+		assertThat(locale, is(Locale.CANADA_FRENCH));
+		assertThat(Directory.getLanguageParamValue(singletonList(new NameValuePair<>("language", "fr-CA"))), is(sameInstance(locale)));
+		for(char first = 'a'; first <= 'z'; ++first) { //more languages than can be cached
+			for(char second = 'a'; second <= 'z'; ++second) {
+				final String language = new String(new char[] {first, second});
+				assertThat(Directory.getLanguageParamValue(singletonList(new NameValuePair<>("LANGUAGE", language))), is(new Locale(language)));
+			}
+		}
+		assertThat(Directory.getLanguageParamValue(singletonList(new NameValuePair<>("LANGUAGE", "fr-CA"))), is(Locale.CANADA_FRENCH));
+		assertThat(Directory.getLanguageParamValue(singletonList(new NameValuePair<>("LANGUAGE", " "))), is(nullValue()));
+		assertThat(Directory.getLanguageParamValue(singletonList(new NameValuePair<>("TYPE", "work"))), is(nullValue()));
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link IncrementalDirectoryParser}.
+ * @author Garret Wilson
+ */
+public class IncrementalDirectoryParserTest {
+
+	/** Tests that a directory is reported once its "end:" content line is complete, even if a preceding base64 value ends in '=' padding. */
+	@Test
+	public void testPaddedBase64() throws IOException {
+		final List<Directory> directories = new ArrayList<>();
+		final IncrementalDirectoryParser parser = IncrementalDirectoryParser.forDirectories(new DirectoryProcessor(), directories::add);
+		parser.feed(CharBuffer.wrap("BEGIN:VCARD\r\nVERSION:3.0\r\nPHOTO;ENCODING=b;TYPE=JPEG:/9j/AA==\r\n"));
+		assertThat(directories, is(empty()));
+		parser.feed(CharBuffer.wrap("END:VCARD\r\nX"));
+		assertThat(directories.size(), is(1));
+	}
+
+	/** Tests that a line ending in '=' is only kept back as a possible soft line break if it is actually quoted-printable. */
+	@Test
+	public void testSoftLineBreaks() throws IOException {
+		final List<String> values = new ArrayList<>();
+		final IncrementalDirectoryParser parser = new IncrementalDirectoryParser(new DirectoryProcessor(),
+				contentLine -> values.add(contentLine.getValue().toString()));
+		parser.feed(CharBuffer.wrap("X-QUOTED-PRINTABLE-NOTE:a=\r\nN"));
+		assertThat(values, contains("a="));
+		parser.feed(CharBuffer.wrap("OTE;ENCODING=QUOTED-PRINTABLE:b=\r\nc=\r\nd"));
+		assertThat(values, contains("a="));
+		parser.feed(CharBuffer.wrap("\r\nFN:e\r\n"));
+		parser.finish();
+		assertThat(values, contains("a=", "bcd", "e"));
+	}
+
+}
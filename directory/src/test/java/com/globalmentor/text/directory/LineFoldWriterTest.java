@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link LineFoldWriter}.
+ * @author Garret Wilson
+ */
+public class LineFoldWriterTest {
+
+	/** Tests that folding lines written in fragments of any size, as arrays, strings, or single characters, matches folding character by character. */
+	@Test
+	public void testFragments() throws IOException {
+		final Random random = new Random(2425);
+		final StringBuilder text = new StringBuilder();
+		while(text.length() < 5000) {
+			final int runLength = random.nextInt(4) == 0 ? random.nextInt(300) : random.nextInt(20);
+			for(int i = 0; i < runLength; ++i) {
+				text.append((char)('a' + random.nextInt(26)));
+			}
+			text.append(random.nextBoolean() ? "\r\n" : random.nextBoolean() ? "\n" : "");
+		}
+		final StringBuilder expected = new StringBuilder(); //fold character by character
+		int lineLength = 0;
+		for(int i = 0; i < text.length(); ++i) {
+			final char c = text.charAt(i);
+			if(c == '\r') {
+				lineLength = 0;
+			} else if(c != '\n' && ++lineLength > Directory.LONG_LINE_LENGTH) {
+				expected.append("\r\n ");
+				lineLength = 1;
+			}
+			expected.append(c);
+		}
+		final StringWriter stringWriter = new StringWriter();
+		try (final LineFoldWriter writer = new LineFoldWriter(stringWriter)) {
+			int index = 0;
+			while(index < text.length()) {
+				final int fragmentLength = Math.min(random.nextInt(100), text.length() - index);
+				switch(random.nextInt(3)) {
+					case 0:
+						writer.write(text.toString().toCharArray(), index, fragmentLength);
+						break;
+					case 1:
+						writer.write(text.toString(), index, fragmentLength);
+						break;
+					default:
+						for(int i = index; i < index + fragmentLength; ++i) {
+							writer.write(text.charAt(i));
+						}
+						break;
+				}
+				index += fragmentLength;
+			}
+		}
+		assertThat(stringWriter.toString(), is(expected.toString()));
+	}
+
+}
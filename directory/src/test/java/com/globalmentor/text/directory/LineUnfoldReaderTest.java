@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static com.globalmentor.text.ABNF.*;
+import static com.globalmentor.text.directory.LineUnfoldReader.indexOfCR;
+import static java.util.Arrays.fill;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link LineUnfoldReader}.
+ * @author Garret Wilson
+ */
+public class LineUnfoldReaderTest {
+
+	/**
+	 * Reads all the characters from a line unfold reader over the given string, with the underlying reader providing at most the given number of characters
+	 * at a time.
+	 * @param string The string to unfold.
+	 * @param maxReadLength The maximum number of characters the underlying reader returns from each read.
+	 * @return The unfolded string.
+	 * @throws IOException if there is an error reading.
+	 */
+	private static String unfold(final String string, final int maxReadLength) throws IOException {
+		final Reader reader = new FilterReader(new StringReader(string)) {
+			@Override
+			public int read(final char[] buffer, final int offset, final int length) throws IOException {
+				return super.read(buffer, offset, Math.min(length, maxReadLength));
+			}
+		};
+		final StringBuilder stringBuilder = new StringBuilder();
+		try (final Reader lineUnfoldReader = new LineUnfoldReader(reader)) {
+			final char[] buffer = new char[64];
+			int length;
+			while((length = lineUnfoldReader.read(buffer)) >= 0) {
+				stringBuilder.append(buffer, 0, length);
+			}
+		}
+		return stringBuilder.toString();
+	}
+
+	/** Tests that folds are removed wherever they fall among the reads of the underlying reader, and that other line breaks remain. */
+	@Test
+	public void testUnfold() throws IOException {
+		final String folded = "FN:Jane\r\n  Doe\r\nNOTE:a\r\n \r\n b\r\nNOTE:c\r\u2028d\r\nURL:x\r\n";
+		final String unfolded = "FN:Jane Doe\r\nNOTE:ab\r\nNOTE:c\u2028d\r\nURL:x\r\n";
+		for(int maxReadLength = 1; maxReadLength <= folded.length(); ++maxReadLength) {
+			assertThat("Maximum read length " + maxReadLength, unfold(folded, maxReadLength), is(unfolded));
+		}
+	}
+
+	/**
+	 * Tests finding CR in every position of ranges of various lengths and offsets, among characters that differ from CR only in their upper bits or that would
+	 * overflow into the next character when searched several characters at a time.
+	 */
+	@Test
+	public void testIndexOfCR() {
+		final char[] fillers = {'a', '\n', '\f', '\u000E', '\u010D', '\u800D', '\uFFFF', '\u0000'};
+		for(final char filler : fillers) {
+			for(int start = 0; start < 4; ++start) {
+				for(int end = start; end <= 16; ++end) {
+					final char[] buffer = new char[20];
+					fill(buffer, filler);
+					buffer[buffer.length - 1] = CR; //a CR after the range should not be found
+					assertThat(indexOfCR(buffer, start, end), is(-1));
+					for(int crIndex = start; crIndex < end; ++crIndex) {
+						fill(buffer, crIndex, end, CR); //only the first of several CRs should be found
+						assertThat(indexOfCR(buffer, start, end), is(crIndex));
+						fill(buffer, crIndex, end, filler);
+					}
+				}
+			}
+		}
+	}
+
+}
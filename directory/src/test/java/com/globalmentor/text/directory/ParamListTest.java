@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link ParamList}.
+ * @author Garret Wilson
+ */
+public class ParamListTest {
+
+	/** Tests that the content lines created from the values of a single line share parameters that can be looked up regardless of case. */
+	@Test
+	public void testShared() throws IOException {
+		final ContentLine[] contentLines = new DirectoryProcessor()
+				.processContentLines(new StringReader("CATEGORIES;VALUE=text;LANGUAGE=en;type=work;TYPE=home:friends,family,coworkers\r\n"));
+		assertThat(contentLines.length, is(3));
+		assertThat(contentLines[1].getParamList(), is(sameInstance(contentLines[0].getParamList())));
+		assertThat(contentLines[2].getParamValue(Directory.LANGUAGE_PARAM_NAME), is("en"));
+		assertThat(Directory.getParamValues(contentLines[0].getParamList(), "type"), is(asList("work", "home")));
+		assertThrows(UnsupportedOperationException.class, () -> Directory.addParam(contentLines[0].getParamList(), "type", "pref"));
+	}
+
+}
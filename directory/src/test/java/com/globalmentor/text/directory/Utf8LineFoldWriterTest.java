@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests of {@link Utf8LineFoldWriter}.
+ * @author Garret Wilson
+ */
+public class Utf8LineFoldWriterTest {
+
+	/** Tests that lines are folded by octets without splitting encoded characters, and that the folded lines unfold to the original. */
+	@Test
+	public void testFoldByOctets() throws IOException {
+		final StringBuilder note = new StringBuilder();
+		for(int i = 0; i < 40; ++i) {
+			note.append("Caf\u00E9 \u65E5\u672C \uD83D\uDE00 ").append(i).append(' ');
+		}
+		final String line = "NOTE:" + note + "\r\n";
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (final Writer writer = new Utf8LineFoldWriter(outputStream)) {
+			writer.write(line);
+		}
+		final byte[] bytes = outputStream.toByteArray();
+		int lineStart = 0;
+		for(int i = 0; i < bytes.length; ++i) {
+			if(bytes[i] == '\r') {
+				assertThat(i - lineStart, is(lessThanOrEqualTo(Directory.LONG_LINE_LENGTH)));
+				assertThat(bytes[i + 1], is((byte)'\n'));
+				if(i + 2 < bytes.length && bytes[i + 2] == ' ') { //the first byte after a fold must not continue an encoded character
+					assertThat(bytes[i + 3] & 0xC0, is(not(0x80)));
+				}
+				lineStart = i + 2;
+			}
+		}
+		assertThat(new String(bytes, UTF_8).replace("\r\n ", ""), is(line));
+	}
+
+	/** Tests that a surrogate pair divided between writes is encoded as a single character, and that unpaired surrogates are replaced. */
+	@Test
+	public void testSurrogates() throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (final Writer writer = new Utf8LineFoldWriter(outputStream, 8)) {
+			writer.write("a\uD83D");
+			writer.flush();
+			writer.write("\uDE00b\uDE00\uD83D");
+		}
+		assertThat(new String(outputStream.toByteArray(), UTF_8), is("a\uD83D\uDE00b??"));
+	}
+
+}
@@ -17,7 +17,6 @@
 package com.globalmentor.text.directory.vcard;
 
 import static com.globalmentor.collections.Lists.*;
-import static com.globalmentor.collections.Sets.*;
 import static com.globalmentor.text.TextFormatter.*;
 import static java.util.Arrays.*;
 
@@ -56,6 +55,9 @@ public enum Type {
 	/** The default delivery address type. */
 	public static final Set<Type> DEFAULT_TYPES = EnumSet.of(Type.INTL, Type.POSTAL, Type.PARCEL, Type.WORK);
 
+	/** The lookup of address types. */
+	static final TypeLookup<Type> TYPE_LOOKUP = new TypeLookup<Type>(Type.class, "address");
+
 	/** The delivery address types. */
 	private final Set<Type> types;
 
@@ -198,7 +200,7 @@ public Address(final String postOfficeBox, final List<String> extendedAddresses,
 		this.region = region;
 		this.postalCode = postalCode;
 		this.countryName = countryName;
-		this.types = immutableSetOf(types);
+		this.types = TYPE_LOOKUP.toSharedSet(types);
 		this.locale = locale;
 	}
 
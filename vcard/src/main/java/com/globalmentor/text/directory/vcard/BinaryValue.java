@@ -0,0 +1,87 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.text.directory.vcard;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Objects.*;
+
+/**
+ * An inline binary value, such as a photo, kept in its base64-encoded form so that it can be decoded as a stream only if and when it is needed.
+ * <p>
+ * The encoded value is held as ASCII bytes rather than as a string. Its string form is the encoded value, so that it will be serialized unchanged.
+ * </p>
+ * @author Garret Wilson
+ * @see VCard#BINARY_VALUE_TYPE
+ */
+public class BinaryValue {
+
+	/** The ASCII bytes of the base64-encoded value. */
+	private final byte[] encodedBytes;
+
+	/**
+	 * Encoded bytes constructor.
+	 * @param encodedBytes The ASCII bytes of the base64-encoded value, which will not be copied.
+	 * @throws NullPointerException if the given bytes are <code>null</code>.
+	 */
+	public BinaryValue(final byte[] encodedBytes) {
+		this.encodedBytes = requireNonNull(encodedBytes);
+	}
+
+	/** @return The number of bytes in the base64-encoded value. */
+	public int getEncodedLength() {
+		return encodedBytes.length;
+	}
+
+	/**
+	 * Opens a stream of the decoded value. Each stream decodes the value as it is read, so that a large value may be written elsewhere without ever being decoded
+	 * in its entirety in memory.
+	 * @return A new input stream of the decoded bytes of the value.
+	 * @see Base64#getMimeDecoder()
+	 */
+	public InputStream openStream() {
+		return Base64.getMimeDecoder().wrap(new ByteArrayInputStream(encodedBytes)); //the MIME decoder ignores any whitespace remaining from folding
+	}
+
+	/**
+	 * Opens a channel of the decoded value, decoding the value as it is read.
+	 * @return A new channel of the decoded bytes of the value.
+	 * @see #openStream()
+	 */
+	public ReadableByteChannel openChannel() {
+		return Channels.newChannel(openStream());
+	}
+
+	/**
+	 * Decodes the entire value.
+	 * @return The decoded bytes of the value.
+	 * @throws IllegalArgumentException if the value is not valid base64.
+	 */
+	public byte[] toByteArray() {
+		return Base64.getMimeDecoder().decode(encodedBytes);
+	}
+
+	/** @return The base64-encoded value. */
+	@Override
+	public String toString() {
+		return new String(encodedBytes, US_ASCII);
+	}
+
+}
@@ -16,12 +16,10 @@
 
 package com.globalmentor.text.directory.vcard;
 
-import static java.util.Collections.*;
 import static java.util.Objects.*;
 
 import java.util.*;
 
-import com.globalmentor.collections.Sets;
 import com.globalmentor.text.TextFormatter;
 
 /**
@@ -47,6 +45,9 @@ public enum Type {
 	/** The default email type. */
 	public static final Type DEFAULT_TYPE = Type.INTERNET;
 
+	/** The lookup of email types. */
+	static final TypeLookup<Type> TYPE_LOOKUP = new TypeLookup<Type>(Type.class, "email");
+
 	/** The email address. */
 	private final String address;
 
@@ -60,7 +61,7 @@ public String getAddress() {
 
 	/** @return The email addressing type. */
 	public Set<Type> getTypes() {
-		return unmodifiableSet(types);
+		return types; //the types are already immutable
 	}
 
 	/** The locale that represents the language of the text, or <code>null</code> if no language is indicated. */
@@ -99,7 +100,7 @@ public Email(final String address, final Set<Type> types) {
 	 */
 	public Email(final String address, final Set<Type> types, final Locale locale) {
 		this.address = requireNonNull(address, "Email address cannot be null.");
-		this.types = Sets.immutableSetOf(types);
+		this.types = TYPE_LOOKUP.toSharedSet(types);
 		this.locale = locale;
 	}
 
@@ -16,8 +16,6 @@
 
 package com.globalmentor.text.directory.vcard;
 
-import static com.globalmentor.collections.Sets.*;
-
 import java.util.*;
 import com.globalmentor.model.LocaledText;
 
@@ -87,7 +85,7 @@ public Label(final String text, final Set<Address.Type> addressTypes) throws Nul
 	 */
 	public Label(final LocaledText localeText, final Set<Address.Type> addressTypes) throws NullPointerException {
 		super(localeText); //construct the locale text
-		this.addressTypes = immutableSetOf(addressTypes);
+		this.addressTypes = Address.TYPE_LOOKUP.toSharedSet(addressTypes);
 	}
 
 	/**
@@ -99,7 +97,7 @@ public Label(final LocaledText localeText, final Set<Address.Type> addressTypes)
 	 */
 	public Label(final String text, final Set<Address.Type> addressTypes, final Locale locale) throws NullPointerException {
 		super(text, locale); //construct the locale text
-		this.addressTypes = immutableSetOf(addressTypes);
+		this.addressTypes = Address.TYPE_LOOKUP.toSharedSet(addressTypes);
 	}
 
 }
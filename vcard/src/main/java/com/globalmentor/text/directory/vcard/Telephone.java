@@ -16,7 +16,6 @@
 
 package com.globalmentor.text.directory.vcard;
 
-import static com.globalmentor.collections.Sets.*;
 import static com.globalmentor.text.TextFormatter.*;
 
 import java.util.EnumSet;
@@ -70,6 +69,9 @@ public enum Type {
 	/** The default telephone type. */
 	public static final Type DEFAULT_TYPE = Type.VOICE;
 
+	/** The lookup of telephone types. */
+	static final TypeLookup<Type> TYPE_LOOKUP = new TypeLookup<Type>(Type.class, "telephone");
+
 	/** The intended use. */
 	private final Set<Type> types;
 
@@ -98,7 +100,7 @@ public Telephone(final TelephoneNumber telephoneNumber, final Set<Type> types) t
 	 */
 	public Telephone(final String cc, final String ndc, final String sn, final Set<Type> types) throws ArgumentSyntaxException {
 		super(cc, ndc, sn); //construct the parent class
-		this.types = immutableSetOf(types); //set the telephone types
+		this.types = TYPE_LOOKUP.toSharedSet(types); //set the telephone types
 	}
 
 	/**
@@ -123,7 +125,7 @@ public Telephone(final String string) throws ArgumentSyntaxException {
 	 */
 	public Telephone(final String string, final Set<Type> types) throws ArgumentSyntaxException {
 		super(string); //construct the parent class
-		this.types = immutableSetOf(types); //set the telephone types
+		this.types = TYPE_LOOKUP.toSharedSet(types); //set the telephone types
 	}
 
 	/** @return A string to represent the telephone type. */
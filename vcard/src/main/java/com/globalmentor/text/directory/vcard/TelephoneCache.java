@@ -0,0 +1,172 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory.vcard;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.globalmentor.text.ArgumentSyntaxException;
+
+/**
+ * A bounded cache of parsed telephones, keyed by the telephone number strings from which they were parsed, so that numbers appearing on many cards, such as
+ * company switchboard numbers, are parsed only once.
+ * <p>
+ * Because a {@link Telephone} is immutable, a cached telephone is returned as-is when the same number is given with the same types. A number given with
+ * different types is parsed again and replaces the cached telephone. Since the type sets of parsed telephones are shared, types are nearly always compared by
+ * identity.
+ * </p>
+ * <p>
+ * The cache is divided into segments by the hash codes of the number strings, each segment evicting its least recently used telephone when full, so that
+ * threads parsing in parallel rarely contend for the same segment. Parsing occurs outside any lock. The number of hits and misses are counted for monitoring
+ * the effectiveness of the cache.
+ * </p>
+ * @author Garret Wilson
+ */
+public class TelephoneCache {
+
+	/** The number of segments into which the cache is divided. */
+	private static final int SEGMENT_COUNT = 16;
+
+	/** The segments of the cache, each an access-ordered map guarded by itself. */
+	private final Map<String, Telephone>[] segments;
+
+	/** The maximum number of telephones to cache. */
+	private final int maximumSize;
+
+	/** The number of lookups that found a cached telephone. */
+	private final LongAdder hitCount = new LongAdder();
+
+	/** The number of lookups that required a telephone number to be parsed. */
+	private final LongAdder missCount = new LongAdder();
+
+	/**
+	 * Maximum size constructor.
+	 * @param maximumSize The maximum number of telephones to cache.
+	 * @throws IllegalArgumentException if the maximum size is not positive.
+	 */
+	@SuppressWarnings("unchecked")
+	public TelephoneCache(final int maximumSize) {
+		if(maximumSize <= 0) {
+			throw new IllegalArgumentException("Invalid maximum size " + maximumSize);
+		}
+		this.maximumSize = maximumSize;
+		final int segmentMaximumSize = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+		segments = new Map[SEGMENT_COUNT];
+		for(int i = 0; i < SEGMENT_COUNT; ++i) {
+			segments[i] = new LinkedHashMap<String, Telephone>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, Telephone> eldest) {
+					return size() > segmentMaximumSize;
+				}
+			};
+		}
+	}
+
+	/** @return The maximum number of telephones to cache. */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns a telephone for the given telephone number string and types, parsing the string only if a telephone for it with the same types is not cached.
+	 * @param string The string to be parsed into a telephone number.
+	 * @param types The intended use.
+	 * @return A telephone for the given string and types.
+	 * @throws ArgumentSyntaxException if the string is not a valid telephone number.
+	 * @see Telephone#Telephone(String, Set)
+	 */
+	public Telephone getTelephone(final String string, final Set<Telephone.Type> types) throws ArgumentSyntaxException {
+		final Map<String, Telephone> segment = getSegment(string);
+		final Telephone cachedTelephone;
+		synchronized(segment) {
+			cachedTelephone = segment.get(string);
+		}
+		if(cachedTelephone != null && (cachedTelephone.getTypes() == types || cachedTelephone.getTypes().equals(types))) {
+			hitCount.increment();
+			return cachedTelephone;
+		}
+		missCount.increment();
+		final Telephone telephone = new Telephone(string, types); //parse the telephone outside the lock
+		synchronized(segment) {
+			segment.put(string, telephone);
+		}
+		return telephone;
+	}
+
+	/**
+	 * Determines the segment for a telephone number string.
+	 * @param string The telephone number string.
+	 * @return The segment in which a telephone for the string would be cached.
+	 */
+	private Map<String, Telephone> getSegment(final String string) {
+		final int hashCode = string.hashCode();
+		return segments[(hashCode ^ (hashCode >>> 16)) & (SEGMENT_COUNT - 1)];
+	}
+
+	/** @return The number of telephones currently cached. */
+	public int size() {
+		int size = 0;
+		for(final Map<String, Telephone> segment : segments) {
+			synchronized(segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/** Removes all cached telephones. The hit and miss counts are not reset. */
+	public void clear() {
+		for(final Map<String, Telephone> segment : segments) {
+			synchronized(segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/** @return The number of lookups that found a cached telephone. */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/** @return The number of lookups that required a telephone number to be parsed. */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/** @return The ratio of lookups that found a cached telephone to all lookups, or <code>0.0</code> if there have been no lookups. */
+	public double getHitRate() {
+		final long hitCount = getHitCount();
+		final long requestCount = hitCount + getMissCount();
+		return requestCount != 0 ? (double)hitCount / requestCount : 0.0;
+	}
+
+	/** Resets the hit and miss counts to zero. */
+	public void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+}
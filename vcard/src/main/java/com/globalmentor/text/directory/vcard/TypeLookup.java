@@ -0,0 +1,201 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory.vcard;
+
+import static com.globalmentor.text.directory.vcard.VCard.*;
+import static java.util.Collections.*;
+
+import java.util.*;
+
+import com.globalmentor.model.NameValuePair;
+
+/**
+ * Resolves the type tokens of a vCard property, such as <code>home</code> or <code>VOICE</code>, to the constants of a type enum, and provides shared
+ * immutable sets of types.
+ * <p>
+ * Tokens are looked up case-insensitively without creating new strings. Because only a few combinations of types appear in practice, sets of types are cached
+ * by their combination, so that the many properties with the same types share a single immutable set. The cache has a fixed size and may be shared among
+ * threads without synchronization; a thread may at worst miss a set another thread has just cached, resulting only in a duplicate set.
+ * </p>
+ * @param <T> The type enum.
+ * @author Garret Wilson
+ */
+final class TypeLookup<T extends Enum<T>> {
+
+	/** The number of sets of types cached. */
+	private static final int SET_CACHE_SIZE = 64;
+
+	/** The class of the type enum. */
+	private final Class<T> typeClass;
+
+	/** The type constants, indexed by ordinal. */
+	private final T[] types;
+
+	/** The description of the type, such as "telephone", for error messages. */
+	private final String description;
+
+	/** The type constants, keyed by their names in uppercase and lowercase. */
+	private final Map<String, T> typesByToken;
+
+	/** The cached sets of types, indexed by a hash of their combination. */
+	private final CachedSet<?>[] cachedSets = new CachedSet<?>[SET_CACHE_SIZE];
+
+	/**
+	 * Type class constructor.
+	 * @param typeClass The class of the type enum, which must have no more than 64 constants.
+	 * @param description The description of the type, such as "telephone", for error messages.
+	 * @throws IllegalArgumentException if the type enum has more than 64 constants.
+	 */
+	TypeLookup(final Class<T> typeClass, final String description) {
+		this.typeClass = typeClass;
+		this.types = typeClass.getEnumConstants();
+		if(types.length > Long.SIZE) {
+			throw new IllegalArgumentException("Type enum " + typeClass.getName() + " has too many constants for lookup.");
+		}
+		this.description = description;
+		final Map<String, T> typesByToken = new HashMap<String, T>(types.length * 4);
+		for(final T type : types) { //types nearly always appear in either uppercase or lowercase
+			typesByToken.put(type.name(), type);
+			typesByToken.put(type.name().toLowerCase(Locale.ROOT), type);
+		}
+		this.typesByToken = typesByToken;
+	}
+
+	/**
+	 * Looks up the type with the given token, ignoring case.
+	 * @param token The token of the type.
+	 * @return The type with the given token, or <code>null</code> if the token is not recognized.
+	 */
+	public T get(final String token) {
+		final T type = typesByToken.get(token);
+		if(type != null) {
+			return type;
+		}
+		for(final T candidateType : types) { //check for a token in mixed case
+			if(candidateType.name().equalsIgnoreCase(token)) {
+				return candidateType;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determines the types indicated by the parameters of a property. Types are given by {@value VCard#TYPE_PARAM_NAME} parameters; if there are none,
+	 * bare parameter names are used instead, as some producers such as Nokia provide types as bare names instead of in the form <code>TYPE=XXX</code>.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @return A shared immutable set of the indicated types.
+	 * @throws IllegalArgumentException if one of the indicated types is not recognized.
+	 */
+	public Set<T> getTypes(final List<NameValuePair<String, String>> paramList) {
+		long typeBits = 0;
+		boolean hasTypeParam = false;
+		for(final NameValuePair<String, String> param : paramList) {
+			if(TYPE_PARAM_NAME.equalsIgnoreCase(param.getName())) {
+				typeBits |= getTypeBit(param.getValue());
+				hasTypeParam = true;
+			}
+		}
+		if(!hasTypeParam) { //if no types were given, see if bare parameter names were given
+			for(final NameValuePair<String, String> param : paramList) {
+				if(param.getValue() == null) {
+					typeBits |= getTypeBit(param.getName());
+				}
+			}
+		}
+		return getSet(typeBits);
+	}
+
+	/**
+	 * Determines the bit representing the type with the given token.
+	 * @param token The token of the type.
+	 * @return The bit representing the type.
+	 * @throws IllegalArgumentException if the token is not recognized.
+	 */
+	private long getTypeBit(final String token) {
+		final T type = token != null ? get(token) : null;
+		if(type == null) {
+			throw new IllegalArgumentException("Unrecognized " + description + " type: " + token);
+		}
+		return 1L << type.ordinal();
+	}
+
+	/**
+	 * Returns a shared immutable set containing the same types as the given collection.
+	 * @param types The types to include.
+	 * @return A shared immutable set of the given types.
+	 */
+	public Set<T> toSharedSet(final Collection<? extends T> types) {
+		long typeBits = 0;
+		for(final T type : types) {
+			typeBits |= 1L << type.ordinal();
+		}
+		return getSet(typeBits);
+	}
+
+	/**
+	 * Returns a shared immutable set of the types represented by the given bits.
+	 * @param typeBits The bits of the types to include, each type being represented by the bit at its ordinal.
+	 * @return A shared immutable set of the given types.
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<T> getSet(final long typeBits) {
+		if(typeBits == 0) {
+			return emptySet();
+		}
+		final int index = Long.hashCode(typeBits * 0x9E3779B97F4A7C15L) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SET_CACHE_SIZE)); //spread the bits
+		final CachedSet<T> cachedSet = (CachedSet<T>)cachedSets[index];
+		if(cachedSet != null && cachedSet.typeBits == typeBits) {
+			return cachedSet.set;
+		}
+		final EnumSet<T> set = EnumSet.noneOf(typeClass);
+		for(final T type : types) {
+			if((typeBits & (1L << type.ordinal())) != 0) {
+				set.add(type);
+			}
+		}
+		final Set<T> immutableSet = unmodifiableSet(set);
+		cachedSets[index] = new CachedSet<T>(typeBits, immutableSet);
+		return immutableSet;
+	}
+
+	/**
+	 * An immutable set of types along with the bits representing its types.
+	 * @param <T> The type enum.
+	 * @author Garret Wilson
+	 */
+	private static final class CachedSet<T> {
+
+		/** The bits representing the types of the set. */
+		final long typeBits;
+
+		/** The immutable set of types. */
+		final Set<T> set;
+
+		/**
+		 * Constructor.
+		 * @param typeBits The bits representing the types of the set.
+		 * @param set The immutable set of types.
+		 */
+		CachedSet(final long typeBits, final Set<T> set) {
+			this.typeBits = typeBits;
+			this.set = set;
+		}
+
+	}
+
+}
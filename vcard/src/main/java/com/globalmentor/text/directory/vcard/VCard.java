@@ -288,6 +288,9 @@ public class VCard extends Directory {
 	 */
 	public static final String KEY_TYPE = "KEY";
 
+	/** The types that normally contain inline binary values, which may be large. */
+	public static final Set<String> BINARY_TYPES = unmodifiableSet(new HashSet<String>(Arrays.asList(PHOTO_TYPE, LOGO_TYPE, SOUND_TYPE, KEY_TYPE)));
+
 	//value types
 
 	/**
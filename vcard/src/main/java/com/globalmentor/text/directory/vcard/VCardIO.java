@@ -18,14 +18,18 @@
 
 import java.io.*;
 import java.net.*;
-import java.util.Set;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.globalmentor.io.*;
 import com.globalmentor.text.directory.*;
 
 import static com.globalmentor.collections.Sets.*;
 import static com.globalmentor.text.directory.vcard.VCard.*;
-import static java.nio.charset.StandardCharsets.*;
 import static java.util.Collections.*;
 
 /**
@@ -63,13 +67,90 @@ public void setSerializationSingleValueNames(final String... singleValueNames) {
 	/** The profile to handle vCards. */
 	protected static final VCardProfile VCARD_PROFILE = new VCardProfile();
 
+	/** The processor for reading vCards, shared among all threads. */
+	protected static final DirectoryProcessor VCARD_PROCESSOR = new DirectoryProcessor();
+
+	static {
+		VCARD_PROCESSOR.registerProfile(VCARD_PROFILE_NAME, VCARD_PROFILE); //register the vCard profile with the vCard processor
+	}
+
+	/** The cache of parsed telephones, or <code>null</code> if telephone numbers should always be parsed. */
+	private TelephoneCache telephoneCache = null;
+
+	/** @return The cache of parsed telephones used when reading vCards, or <code>null</code> if telephone numbers are always parsed. */
+	public TelephoneCache getTelephoneCache() {
+		return telephoneCache;
+	}
+
+	/** The processor for reading vCards using the telephone cache of this object, or <code>null</code> if there is no telephone cache. */
+	private DirectoryProcessor cachingProcessor = null;
+
+	/**
+	 * Sets the cache of parsed telephones used when reading vCards. A cache is useful when reading many vCards in which telephone numbers, such as switchboard
+	 * numbers, repeat. The cache is used only by this object, and may be monitored for its effectiveness or cleared.
+	 * @param telephoneCache The cache of parsed telephones, or <code>null</code> if telephone numbers should always be parsed.
+	 * @see VCardProfile#setTelephoneCache(TelephoneCache)
+	 */
+	public void setTelephoneCache(final TelephoneCache telephoneCache) {
+		this.telephoneCache = telephoneCache;
+		if(telephoneCache != null) { //use a vCard profile and processor of our own, so that the cache isn't shared with other instances
+			final VCardProfile vcardProfile = new VCardProfile();
+			vcardProfile.setTelephoneCache(telephoneCache);
+			final DirectoryProcessor processor = new DirectoryProcessor();
+			processor.registerProfile(VCARD_PROFILE_NAME, vcardProfile);
+			cachingProcessor = processor;
+		} else {
+			cachingProcessor = null;
+		}
+	}
+
+	/**
+	 * Returns the processor for reading vCards based upon the settings of this object.
+	 * @return The processor using the telephone cache of this object if there is one, or otherwise the processor shared among all threads.
+	 * @see #getTelephoneCache()
+	 */
+	protected DirectoryProcessor getProcessor() {
+		return cachingProcessor != null ? cachingProcessor : VCARD_PROCESSOR;
+	}
+
+	/** Whether properties with binary values are skipped when reading. */
+	private boolean binaryValuesSkipped = false;
+
+	/** @return Whether properties that normally have large binary values, such as photos, are skipped without being parsed when reading. */
+	public boolean isBinaryValuesSkipped() {
+		return binaryValuesSkipped;
+	}
+
+	/**
+	 * Sets whether properties that normally have large binary values are skipped without being parsed when reading. If so, the vCards read will not contain the
+	 * types {@value VCard#PHOTO_TYPE}, {@value VCard#LOGO_TYPE}, {@value VCard#SOUND_TYPE}, or {@value VCard#KEY_TYPE}. Otherwise any base64-encoded binary
+	 * values will be read as {@link BinaryValue} instances, which may be decoded as streams.
+	 * @param binaryValuesSkipped <code>true</code> if binary properties should be skipped.
+	 * @see VCard#BINARY_TYPES
+	 */
+	public void setBinaryValuesSkipped(final boolean binaryValuesSkipped) {
+		this.binaryValuesSkipped = binaryValuesSkipped;
+	}
+
+	/**
+	 * Configures a lexer used for reading vCards based upon the settings of this object.
+	 * @param <L> The type of lexer.
+	 * @param lexer The lexer to configure.
+	 * @return The given lexer.
+	 * @see #isBinaryValuesSkipped()
+	 */
+	protected <L extends ContentLineLexer> L configureLexer(final L lexer) {
+		if(isBinaryValuesSkipped()) {
+			lexer.setExclusion(BINARY_TYPES);
+		}
+		return lexer;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public VCard read(final InputStream inputStream, final URI baseURI) throws IOException {
-		final DirectoryProcessor directoryProcessor = new DirectoryProcessor(); //create a new directory processor
-		directoryProcessor.registerProfile(VCARD_PROFILE_NAME, VCARD_PROFILE); //register the vCard profile with the vCard processor
-		final Reader reader = new InputStreamReader(inputStream, UTF_8); //assume the vCard is stored in UTF-8
-		final Directory directory = directoryProcessor.processDirectory(reader, baseURI); //process the directory
+		final DirectoryProcessor processor = getProcessor();
+		final Directory directory = processor.createDirectory(processor.processContentLines(configureLexer(new ByteContentLineLexer(inputStream)))); //process the directory, assuming the vCard is stored in UTF-8
 		//TODO del Log.trace("parsed directory: ", directory);
 		if(!(directory instanceof VCard)) { //if the directory is not a VCard
 			throw new IOException("Directory " + directory.getDisplayName() + " is not a vCard."); //TODO i18n
@@ -77,16 +158,226 @@ public VCard read(final InputStream inputStream, final URI baseURI) throws IOExc
 		return (VCard)directory; //cast the directory to a vCard and return it 
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * Reads a vCard from a file. The file is mapped into memory rather than read through a stream, and is assumed to be stored in UTF-8.
+	 * @param path The path of the file from which to read the vCard.
+	 * @return The vCard read from the file.
+	 * @throws IOException if there is an error reading the vCard or the file does not contain a vCard.
+	 * @see MappedContentLineLexer
+	 */
+	public VCard read(final Path path) throws IOException {
+		final DirectoryProcessor processor = getProcessor();
+		final Directory directory;
+		try (final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			directory = processor.createDirectory(processor.processContentLines(configureLexer(new MappedContentLineLexer(fileChannel)))); //process the directory
+		}
+		if(!(directory instanceof VCard)) { //if the directory is not a VCard
+			throw new IOException("Directory " + directory.getDisplayName() + " is not a vCard."); //TODO i18n
+		}
+		return (VCard)directory; //cast the directory to a vCard and return it 
+	}
+
+	/**
+	 * Lazily reads all the vCards from an input stream containing one or more concatenated vCards, such as an exported address book.
+	 * <p>
+	 * Each vCard is parsed only when the stream reaches it, so memory use depends on the largest single vCard rather than on the size of the input. The
+	 * returned stream reports I/O and parsing errors as {@link UncheckedIOException}, including any directory that is not a vCard. The input stream is not
+	 * closed. The vCards are assumed to be stored in UTF-8.
+	 * </p>
+	 * @param inputStream The input stream from which to read the vCards.
+	 * @return A sequential stream of the vCards in the order they appear in the input.
+	 * @see DirectoryProcessor#processDirectories(ContentLineLexer)
+	 */
+	public Stream<VCard> readAll(final InputStream inputStream) {
+		return readAll(inputStream, null);
+	}
+
+	/**
+	 * Lazily reads all the vCards from a file containing one or more concatenated vCards, such as a multi-gigabyte exported address book. The file is mapped
+	 * into memory in segments rather than read through a stream, and is assumed to be stored in UTF-8.
+	 * <p>
+	 * The returned stream holds the file open, and must be closed when no longer needed. It reports I/O and parsing errors as {@link UncheckedIOException},
+	 * including any directory that is not a vCard.
+	 * </p>
+	 * @param path The path of the file from which to read the vCards.
+	 * @return A sequential stream of the vCards in the order they appear in the file.
+	 * @throws IOException if there is an error opening the file.
+	 * @see MappedContentLineLexer
+	 */
+	public Stream<VCard> readAll(final Path path) throws IOException {
+		return readAll(path, null);
+	}
+
+	/**
+	 * Lazily reads all the vCards from an input stream containing one or more concatenated vCards, reading only the properties with the given type names. All
+	 * other properties are skipped without being parsed, so the vCards will contain only the given properties. The vCards are assumed to be stored in UTF-8.
+	 * @param inputStream The input stream from which to read the vCards.
+	 * @param typeNames The type names of the properties to read, such as {@value VCard#FN_TYPE} and {@value VCard#EMAIL_TYPE}, or <code>null</code> if all
+	 *          properties should be read.
+	 * @return A sequential stream of the vCards in the order they appear in the input.
+	 * @see #readAll(InputStream)
+	 * @see ContentLineLexer#setProjection(Collection)
+	 */
+	public Stream<VCard> readAll(final InputStream inputStream, final Set<String> typeNames) {
+		final ContentLineLexer lexer = configureLexer(new ByteContentLineLexer(inputStream));
+		lexer.setProjection(typeNames);
+		return toVCards(getProcessor().processDirectories(lexer));
+	}
+
+	/**
+	 * Lazily reads all the vCards from a file containing one or more concatenated vCards, reading only the properties with the given type names. All other
+	 * properties are skipped without being parsed, so the vCards will contain only the given properties. The file is assumed to be stored in UTF-8.
+	 * <p>
+	 * The returned stream holds the file open, and must be closed when no longer needed.
+	 * </p>
+	 * @param path The path of the file from which to read the vCards.
+	 * @param typeNames The type names of the properties to read, such as {@value VCard#FN_TYPE} and {@value VCard#EMAIL_TYPE}, or <code>null</code> if all
+	 *          properties should be read.
+	 * @return A sequential stream of the vCards in the order they appear in the file.
+	 * @throws IOException if there is an error opening the file.
+	 * @see #readAll(Path)
+	 * @see ContentLineLexer#setProjection(Collection)
+	 */
+	public Stream<VCard> readAll(final Path path, final Set<String> typeNames) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+		final ContentLineLexer lexer = configureLexer(new MappedContentLineLexer(fileChannel));
+		lexer.setProjection(typeNames);
+		return toVCards(getProcessor().processDirectories(lexer)).onClose(() -> {
+			try {
+				fileChannel.close();
+			} catch(final IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+	}
+
+	/**
+	 * Lazily and leniently reads all the vCards from an input stream containing one or more concatenated vCards. Any vCard that cannot be parsed is skipped, and
+	 * reading resumes at the next "BEGIN:VCARD" line. The vCards are assumed to be stored in UTF-8.
+	 * @param inputStream The input stream from which to read the vCards.
+	 * @param errorSink The consumer to receive a description of each error, including the byte offset, line index, and vCard index at which it occurred.
+	 * @return A sequential stream of the vCards read without error, in the order they appear in the input.
+	 * @see DirectoryProcessor#processDirectoriesLenient(ContentLineLexer, String, Consumer)
+	 */
+	public Stream<VCard> readAllLenient(final InputStream inputStream, final Consumer<? super DirectoryParseError> errorSink) {
+		return toVCards(getProcessor().processDirectoriesLenient(configureLexer(new ByteContentLineLexer(inputStream)), VCARD_PROFILE_NAME, errorSink));
+	}
+
+	/**
+	 * Lazily and leniently reads all the vCards from a file containing one or more concatenated vCards. Any vCard that cannot be parsed is skipped, and reading
+	 * resumes at the next "BEGIN:VCARD" line. The file is mapped into memory in segments, and is assumed to be stored in UTF-8.
+	 * <p>
+	 * The returned stream holds the file open, and must be closed when no longer needed.
+	 * </p>
+	 * @param path The path of the file from which to read the vCards.
+	 * @param errorSink The consumer to receive a description of each error, including the file offset, line index, and vCard index at which it occurred.
+	 * @return A sequential stream of the vCards read without error, in the order they appear in the file.
+	 * @throws IOException if there is an error opening the file.
+	 * @see DirectoryProcessor#processDirectoriesLenient(ContentLineLexer, String, Consumer)
+	 */
+	public Stream<VCard> readAllLenient(final Path path, final Consumer<? super DirectoryParseError> errorSink) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+		return toVCards(getProcessor().processDirectoriesLenient(configureLexer(new MappedContentLineLexer(fileChannel)), VCARD_PROFILE_NAME, errorSink))
+				.onClose(() -> {
+					try {
+						fileChannel.close();
+					} catch(final IOException ioException) {
+						throw new UncheckedIOException(ioException);
+					}
+				});
+	}
+
+	/**
+	 * Converts a stream of directories to a stream of vCards.
+	 * @param directories The stream of directories.
+	 * @return A stream of the directories as vCards, which reports any directory that is not a vCard as an {@link UncheckedIOException}.
+	 */
+	private static Stream<VCard> toVCards(final Stream<Directory> directories) {
+		return directories.map(directory -> {
+			if(!(directory instanceof VCard)) { //if the directory is not a VCard
+				throw new UncheckedIOException(new IOException("Directory " + directory.getDisplayName() + " is not a vCard.")); //TODO i18n
+			}
+			return (VCard)directory;
+		});
+	}
+
+	/**
+	 * Reads all the vCards from a file containing one or more concatenated vCards using all the threads of the common pool. The file is divided into chunks at
+	 * the "BEGIN:VCARD" lines, and the chunks are parsed concurrently. The file is assumed to be stored in UTF-8.
+	 * @param path The path of the file from which to read the vCards.
+	 * @return The vCards in the order they appear in the file.
+	 * @throws IOException if there is an error reading the vCards or the file contains a directory that is not a vCard.
+	 * @see ForkJoinPool#commonPool()
+	 * @see DirectoryProcessor#processDirectoriesParallel(Path, String, ForkJoinPool, Consumer)
+	 */
+	public List<VCard> readAllParallel(final Path path) throws IOException {
+		return readAllParallel(path, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Reads all the vCards from a file containing one or more concatenated vCards, parsing sections of the file concurrently in the given pool. The file is
+	 * divided into chunks at the "BEGIN:VCARD" lines, which are never confused with folded continuation lines. The file is assumed to be stored in UTF-8.
+	 * @param path The path of the file from which to read the vCards.
+	 * @param pool The pool in which to parse the vCards.
+	 * @return The vCards in the order they appear in the file.
+	 * @throws IOException if there is an error reading the vCards or the file contains a directory that is not a vCard.
+	 * @see DirectoryProcessor#processDirectoriesParallel(Path, String, ForkJoinPool, Consumer)
+	 */
+	public List<VCard> readAllParallel(final Path path, final ForkJoinPool pool) throws IOException {
+		final List<Directory> directories = getProcessor().processDirectoriesParallel(path, VCARD_PROFILE_NAME, pool, this::configureLexer);
+		final List<VCard> vcards = new ArrayList<VCard>(directories.size());
+		for(final Directory directory : directories) {
+			if(!(directory instanceof VCard)) { //if the directory is not a VCard
+				throw new IOException("Directory " + directory.getDisplayName() + " is not a vCard."); //TODO i18n
+			}
+			vcards.add((VCard)directory);
+		}
+		return vcards;
+	}
+
+	/**
+	 * Creates a parser that is fed the input of one or more concatenated vCards in chunks as it becomes available, such as from a non-blocking channel, reporting
+	 * each vCard as soon as it has been parsed. The parser will be configured using the settings of this object. Any directory that is not a vCard is reported as
+	 * an {@link UncheckedIOException} when it is parsed.
+	 * @param vcardConsumer The consumer to receive each vCard.
+	 * @return A new parser of vCards.
+	 * @see IncrementalDirectoryParser#feed(java.nio.ByteBuffer)
+	 * @see IncrementalDirectoryParser#finish()
+	 */
+	public IncrementalDirectoryParser createParser(final Consumer<? super VCard> vcardConsumer) {
+		final IncrementalDirectoryParser parser = IncrementalDirectoryParser.forDirectories(getProcessor(), directory -> {
+			if(!(directory instanceof VCard)) { //if the directory is not a VCard
+				throw new UncheckedIOException(new IOException("Directory " + directory.getDisplayName() + " is not a vCard.")); //TODO i18n
+			}
+			vcardConsumer.accept((VCard)directory);
+		});
+		configureLexer(parser.getLexer());
+		return parser;
+	}
+
+	/**
+	 * Creates a writer for writing many vCards one after another to an output stream in UTF-8, such as when exporting an address book. The writer will be
+	 * configured using the settings of this object, and reuses a single serializer and buffer for all the vCards. Unlike
+	 * {@link #write(OutputStream, URI, VCard)}, the output stream is not flushed after each vCard.
+	 * @param outputStream The output stream to which the vCards should be written.
+	 * @return A new writer of vCards, which must be flushed or closed after the last vCard is written.
+	 */
+	public VCardWriter createWriter(final OutputStream outputStream) {
+		final VCardSerializer vcardSerializer = new VCardSerializer(VCARD_PROFILE); //create a new vCard serializer using the vCard profile
+		vcardSerializer.setSingleValueNames(getSerializationSingleValueNames()); //set the single-value names, if any
+		return new VCardWriter(outputStream, vcardSerializer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws UnsupportedOperationException if the values of several properties with one of the {@link #getSerializationSingleValueNames()} cannot be combined,
+	 *           such as when they are not text.
+	 */
 	@Override
 	public void write(final OutputStream outputStream, final URI baseURI, final VCard object) throws IOException {
-		final ContentLine[] contentLines = VCardProfile.createContentLines(object); //create content lines from the vCard
-		final DirectorySerializer directorySerializer = new DirectorySerializer(); //create a new directory serializer
-		directorySerializer.setSingleValueNames(getSerializationSingleValueNames()); //set the single-value names, if any
-		directorySerializer.registerProfile(VCARD_PROFILE_NAME, VCARD_PROFILE); //register the vCard profile with the vCard serializer
-		final Writer writer = new OutputStreamWriter(outputStream, UTF_8); //write the vCard using UTF-8
-		directorySerializer.serializeContentLines(contentLines, writer); //serialize the content lines of the vCard TODO maybe allow the serializer to find a profile and convert to content lines automatically
-		writer.flush(); //flush all our output, because the calling class will close the input stream, not the writer we created		
+		final VCardSerializer vcardSerializer = new VCardSerializer(VCARD_PROFILE); //create a new vCard serializer using the vCard profile
+		vcardSerializer.setSingleValueNames(getSerializationSingleValueNames()); //set the single-value names, if any
+		vcardSerializer.serializeVCard(object, outputStream); //serialize the vCard fields directly to UTF-8, without creating content lines
 	}
 
 }
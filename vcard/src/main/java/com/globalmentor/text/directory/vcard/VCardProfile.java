@@ -18,20 +18,19 @@
 
 import java.io.*;
 import java.net.*;
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.Temporal;
+import java.time.temporal.TemporalAccessor;
 import java.util.*;
 
 import static com.globalmentor.io.ReaderParser.*;
 import static com.globalmentor.java.Characters.*;
-import static com.globalmentor.java.Conditions.*;
 import static com.globalmentor.text.ABNF.*;
 import static com.globalmentor.text.directory.Directory.*;
 import static com.globalmentor.text.directory.vcard.VCard.*;
-import static java.lang.Integer.parseInt;
-import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
 
 import com.globalmentor.io.*;
 import com.globalmentor.java.*;
@@ -94,6 +93,22 @@ public VCardProfile() {
 		registerValueType(KEY_TYPE, BINARY_VALUE_TYPE); //KEY: binary
 	}
 
+	/** The cache of parsed telephones, or <code>null</code> if telephone numbers should always be parsed. */
+	private TelephoneCache telephoneCache = null;
+
+	/** @return The cache of parsed telephones, or <code>null</code> if telephone numbers are always parsed. */
+	public TelephoneCache getTelephoneCache() {
+		return telephoneCache;
+	}
+
+	/**
+	 * Sets the cache of parsed telephones used when creating {@value VCard#TEL_TYPE} values.
+	 * @param telephoneCache The cache of parsed telephones, or <code>null</code> if telephone numbers should always be parsed.
+	 */
+	public void setTelephoneCache(final TelephoneCache telephoneCache) {
+		this.telephoneCache = telephoneCache;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -134,55 +149,97 @@ public Object[] createValues(final String profile, final String group, final Str
 			final String valueType, final Reader reader) throws IOException, ParseIOException {
 		//see if we recognize the value type
 		if(PHONE_NUMBER_VALUE_TYPE.equalsIgnoreCase(valueType)) { //phone-number
-			return new Object[] {processPhoneNumberValue(reader, paramList)}; //process the phone number value type			
-		}
-		//see if we recognize the type name		
-		//identification types
-		if(N_TYPE.equalsIgnoreCase(name)) { //N
-			return new Object[] {processNValue(reader, paramList)}; //process the N value
-		} else if(BDAY_TYPE.equalsIgnoreCase(name)) { //BDAY
-			final String bdayText = readUntilRequired(reader, CR); //a birthday should normally be a date, but sometimes it could be a date-time as well
-			LocalDate bday; //TODO bring back fuller date parsing, based upon VCard version
-			try {
-				bday = LocalDate.parse(bdayText);
-			} catch(final DateTimeParseException dateTimeParseException) { //if YYYY-MM-DD doesn't work, try YYYYMMDDT000000
-				checkArgument(bdayText.length() == 15 && bdayText.endsWith("T000000"),
-						format("VCard profile currently only supports `BDAY` in the `YYYY-MM-DD` or `YYYYMMDDT000000` formats; found `%s`.", bdayText));
-				bday = LocalDate.of(parseInt(bdayText.substring(0, 4)), parseInt(bdayText.substring(4, 6)), parseInt(bdayText.substring(6, 8)));
+			return new Object[] {processPhoneNumberValue(reader, paramList, getTelephoneCache())}; //process the phone number value type
+		} else if(BINARY_VALUE_TYPE.equalsIgnoreCase(valueType)) { //binary
+			final String encoding = getParamValue(paramList, ENCODING_PARAM_NAME);
+			if(B_ENCODING_TYPE.equalsIgnoreCase(encoding) || BASE64_ENCODING_TYPE.equalsIgnoreCase(encoding)) { //we only know how to keep base64 values
+				return new Object[] {processBinaryValue(reader)}; //process the binary value type
 			}
-			return new Object[] {bday};
 		}
-		//delivery addressing types
-		else if(ADR_TYPE.equalsIgnoreCase(name)) { //ADR
-			return new Object[] {processADRValue(reader, paramList)}; //process the ADR value
-		} else if(LABEL_TYPE.equalsIgnoreCase(name)) { //LABEL
-			final LocaledText[] localeTexts = PredefinedProfile.processTextValueList(reader, paramList); //process the text values
-
-			final Set<Address.Type> addressTypes = EnumSet.noneOf(Address.Type.class); //we'll determine the address types
-			List<String> typeStrings = getParamValues(paramList, TYPE_PARAM_NAME); //get the address types specified
-			if(typeStrings.isEmpty()) { //if no types were given, see if bare parameter names were given, in case some producers provide types as bare names instead of in the form TYPE=XXX
-				typeStrings = getParamNamesByValue(paramList, null);
+		//see if we recognize the type name
+		switch(foldName(name)) {
+			//identification types
+			case N_TYPE: //N
+				return new Object[] {processNValue(reader, paramList)}; //process the N value
+			case BDAY_TYPE: { //BDAY
+				final String bdayText = readUntilRequired(reader, CR); //a birthday should normally be a date, but sometimes it could be a date-time as well
+				final TemporalAccessor bdayValue = DateTimeValues.parseDateOrDateTime(bdayText);
+				if(!(bdayValue instanceof Temporal)) { //a month and day without a year can't be represented as a birthday
+					throw new ParseIOException("VCard profile does not support `BDAY` without a year; found `" + bdayText + "`.");
+				}
+				Temporal bday = (Temporal)bdayValue;
+				if(bday instanceof LocalDateTime && ((LocalDateTime)bday).toLocalTime().equals(LocalTime.MIDNIGHT)) { //some producers give a date as YYYYMMDDT000000
+					bday = ((LocalDateTime)bday).toLocalDate();
+				}
+				return new Object[] {bday};
 			}
-			for(final String typeString : typeStrings) {
+			//delivery addressing types
+			case ADR_TYPE: //ADR
+				return new Object[] {processADRValue(reader, paramList)}; //process the ADR value
+			case LABEL_TYPE: { //LABEL
+				final LocaledText[] localeTexts = PredefinedProfile.processTextValueList(reader, paramList); //process the text values
+
+				final Set<Address.Type> addressTypes;
 				try {
-					addressTypes.add(Address.Type.valueOf(typeString.toUpperCase()));
+					addressTypes = Address.TYPE_LOOKUP.getTypes(paramList); //determine the shared set of types
 				} catch(final IllegalArgumentException illegalArgumentException) {
-					throw new ParseIOException("Unrecognized address type: " + typeString, illegalArgumentException);
+					throw new ParseIOException(illegalArgumentException.getMessage(), illegalArgumentException);
 				}
+				final Label[] labels = new Label[localeTexts.length]; //create a new array of labels
+				for(int i = localeTexts.length - 1; i >= 0; --i) { //look at each locale text object
+					labels[i] = new Label(localeTexts[i], addressTypes); //create a label from the locale text
+				}
+				return labels; //return the labels we constructed from the locale test information
 			}
-			final Label[] labels = new Label[localeTexts.length]; //create a new array of labels
-			for(int i = localeTexts.length - 1; i >= 0; --i) { //look at each locale text object
-				labels[i] = new Label(localeTexts[i], addressTypes); //create a label from the locale text
-			}
-			return labels; //return the labels we constructed from the locale test information
-		}
-		//organizational types
-		else if(ORG_TYPE.equalsIgnoreCase(name)) { //ORG
-			return new Object[] {processORGValue(reader, paramList)}; //process the ORG value
+			//organizational types
+			case ORG_TYPE: //ORG
+				return new Object[] {processORGValue(reader, paramList)}; //process the ORG value
 		}
 		return null; //show that we can't create a value
 	}
 
+	/**
+	 * Processes a base64-encoded binary value, keeping the encoded characters as bytes without creating a string or decoding them.
+	 * <p>
+	 * Whatever delimiter ended the value will be left in the reader.
+	 * </p>
+	 * @param reader The reader that contains the lines of the directory.
+	 * @return An object representing the binary value.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public static BinaryValue processBinaryValue(Reader reader) throws IOException, ParseIOException {
+		if(!reader.markSupported()) { //we need to leave the CR in the reader
+			reader = new BufferedReader(reader);
+		}
+		final char[] chars = new char[8 * 1024];
+		byte[] bytes = new byte[chars.length];
+		int length = 0;
+		while(true) {
+			reader.mark(chars.length);
+			final int count = reader.read(chars);
+			if(count < 0) {
+				throw new ParseEOFException("Binary value is missing its ending CRLF.", -1, -1); //TODO i18n
+			}
+			int cr = 0;
+			while(cr < count && chars[cr] != CR) { //find the end of the value, if it is in this chunk
+				++cr;
+			}
+			if(length + cr > bytes.length) {
+				bytes = copyOf(bytes, Math.max(length + cr, bytes.length * 2));
+			}
+			for(int i = 0; i < cr; ++i) { //base64 is pure ASCII
+				bytes[length++] = (byte)chars[i];
+			}
+			if(cr < count) { //if we found the CR, leave it in the reader
+				reader.reset();
+				reader.skip(cr);
+				break;
+			}
+		}
+		return new BinaryValue(length == bytes.length ? bytes : copyOf(bytes, length));
+	}
+
 	/**
 	 * Processes the value for the <code>N</code> type name.
 	 * <p>
@@ -205,6 +262,9 @@ public static Name processNValue(final Reader reader, final List<NameValuePair<S
 		return new Name(familyNames, givenNames, additionalNames, honorificPrefixes, honorificSuffixes, locale); //create and return a vCard name object with the parsed information
 	}
 
+	/** The cache of short address fields shared by all address values. */
+	private static final StringCache ADDRESS_STRING_CACHE = new StringCache(4096);
+
 	/**
 	 * Processes the value for the <code>ADR</code> type name.
 	 * <p>
@@ -218,26 +278,21 @@ public static Name processNValue(final Reader reader, final List<NameValuePair<S
 	 */
 	public static Address processADRValue(final Reader reader, final List<NameValuePair<String, String>> paramList) throws IOException, ParseIOException {
 		final Locale locale = getLanguageParamValue(paramList); //get the language, if there is one
-		final Set<Address.Type> addressTypes = EnumSet.noneOf(Address.Type.class); //we'll determine the address types
-		List<String> typeStrings = getParamValues(paramList, TYPE_PARAM_NAME); //get the address types specified
-		if(typeStrings.isEmpty()) { //if no types were given, see if bare parameter names were given, in case some producers provide types as bare names instead of in the form TYPE=XXX
-			typeStrings = getParamNamesByValue(paramList, null);
-		}
-		for(final String typeString : typeStrings) {
-			try {
-				addressTypes.add(Address.Type.valueOf(typeString.toUpperCase()));
-			} catch(final IllegalArgumentException illegalArgumentException) {
-				throw new ParseIOException("Unrecognized address type: " + typeString, illegalArgumentException);
-			}
+		final Set<Address.Type> addressTypes;
+		try {
+			addressTypes = Address.TYPE_LOOKUP.getTypes(paramList); //determine the shared set of types
+		} catch(final IllegalArgumentException illegalArgumentException) {
+			throw new ParseIOException(illegalArgumentException.getMessage(), illegalArgumentException);
 		}
 		final String[][] fields = processStructuredTextValue(reader); //process the structured text fields
 		final String postOfficeBox = fields.length > 0 && fields[0].length > 0 ? fields[0][0] : null; //get the post office box, if present
 		final String[] extendedAddresses = fields.length > 1 ? fields[1] : new String[] {}; //get the extended addresses, if present
 		final String[] streetAddresses = fields.length > 2 ? fields[2] : new String[] {}; //get the street addresses, if present
-		final String locality = fields.length > 3 && fields[3].length > 0 ? fields[3][0] : null; //get the locality, if present
-		final String region = fields.length > 4 && fields[4].length > 0 ? fields[4][0] : null; //get the region, if present
+		//localities, regions, and country names repeat across many addresses, so reuse equal strings rather than keeping duplicates
+		final String locality = fields.length > 3 && fields[3].length > 0 ? ADDRESS_STRING_CACHE.intern(fields[3][0]) : null; //get the locality, if present
+		final String region = fields.length > 4 && fields[4].length > 0 ? ADDRESS_STRING_CACHE.intern(fields[4][0]) : null; //get the region, if present
 		final String postalCode = fields.length > 5 && fields[5].length > 0 ? fields[5][0] : null; //get the postal code, if present
-		final String countryName = fields.length > 6 && fields[6].length > 0 ? fields[6][0] : null; //get the country name, if present
+		final String countryName = fields.length > 6 && fields[6].length > 0 ? ADDRESS_STRING_CACHE.intern(fields[6][0]) : null; //get the country name, if present
 		return new Address(postOfficeBox, asList(extendedAddresses), asList(streetAddresses), locality, region, postalCode, countryName, addressTypes, locale); //create and return a vCard address with the parsed information
 	}
 
@@ -254,23 +309,37 @@ public static Address processADRValue(final Reader reader, final List<NameValueP
 	 */
 	public static Telephone processPhoneNumberValue(final Reader reader, final List<NameValuePair<String, String>> paramList)
 			throws IOException, ParseIOException {
+		return processPhoneNumberValue(reader, paramList, null);
+	}
+
+	/**
+	 * Processes the value for the <code>TEL</code> type name, optionally reusing telephones already parsed.
+	 * <p>
+	 * Whatever delimiter ended the value will be left in the reader.
+	 * </p>
+	 * @param reader The reader that contains the lines of the directory.
+	 * @param paramList The list of parameters; a <code>null</code> value indicates that the name/value pair contained only a name.
+	 * @param telephoneCache The cache of parsed telephones, or <code>null</code> if the telephone number should always be parsed.
+	 * @return A telephone object representing the value, or <code>null</code> if no value was present.
+	 * @throws IOException Thrown if there is an error reading the directory.
+	 * @throws ParseIOException Thrown if there is a an error interpreting the directory.
+	 */
+	public static Telephone processPhoneNumberValue(final Reader reader, final List<NameValuePair<String, String>> paramList,
+			final TelephoneCache telephoneCache) throws IOException, ParseIOException {
 		final Locale locale = getLanguageParamValue(paramList); //get the language, if there is one
 		final String telephoneNumberString = readUntilRequired(reader, CR); //read the string representing the telephone number
-		final Set<Telephone.Type> telephoneTypes = EnumSet.noneOf(Telephone.Type.class); //we'll determine the telephone types
-		List<String> typeStrings = getParamValues(paramList, TYPE_PARAM_NAME); //get the telephone types specified
-		//some VCard producers, such as Nokia, provide types as bare parameter names instead of in the form TYPE=XXX
-		if(typeStrings.isEmpty()) { //if no telephone types were given, see if bare parameter names were given
-			typeStrings = getParamNamesByValue(paramList, null);
-		}
-		for(final String typeString : typeStrings) {
-			try {
-				telephoneTypes.add(Telephone.Type.valueOf(typeString.toUpperCase()));
-			} catch(final IllegalArgumentException illegalArgumentException) {
-				throw new ParseIOException("Unrecognized telephone type: " + typeString, illegalArgumentException);
-			}
+		final Set<Telephone.Type> telephoneTypes;
+		try {
+			telephoneTypes = Telephone.TYPE_LOOKUP.getTypes(paramList); //determine the shared set of types
+		} catch(final IllegalArgumentException illegalArgumentException) {
+			throw new ParseIOException(illegalArgumentException.getMessage(), illegalArgumentException);
 		}
 		try {
-			return !telephoneNumberString.isEmpty() ? new Telephone(telephoneNumberString, telephoneTypes) : null; //if there is text, create a telephone from the telephone number and telephone type
+			if(telephoneNumberString.isEmpty()) { //if there is no text, there is no telephone
+				return null;
+			}
+			return telephoneCache != null ? telephoneCache.getTelephone(telephoneNumberString, telephoneTypes) //reuse the telephone if the number has been parsed before
+					: new Telephone(telephoneNumberString, telephoneTypes); //create a telephone from the telephone number and telephone type
 		} catch(final ArgumentSyntaxException syntaxException) { //if the telephone number was not syntactically correct
 			throw new ParseIOException(reader, syntaxException); //create an I/O parse exception from the telephone number syntax exception
 		}
@@ -439,21 +508,20 @@ public boolean serializeValue(final String profile, final String group, final St
 			writer.write(((Telephone)value).getCanonicalString()); //write the canonical version of the phone number
 			return true; //show that we serialized the value 
 		}
-		//see if we recognize the type name		
-		//identification types
-		if(N_TYPE.equalsIgnoreCase(name)) { //N
-			serializeNValue((Name)value, writer); //serialize the value
-			return true; //show that we serialized the value 
-		}
-		//delivery addressing types
-		else if(ADR_TYPE.equalsIgnoreCase(name)) { //ADR
-			serializeADRValue((Address)value, writer); //serialize the value
-			return true; //show that we serialized the value 
-		}
-		//organizational types
-		else if(ORG_TYPE.equalsIgnoreCase(name)) { //ORG
-			serializeORGValue((LocaledText[])value, writer); //serialize the value
-			return true; //show that we serialized the value 
+		//see if we recognize the type name
+		switch(foldName(name)) {
+			//identification types
+			case N_TYPE: //N
+				serializeNValue((Name)value, writer); //serialize the value
+				return true; //show that we serialized the value 
+			//delivery addressing types
+			case ADR_TYPE: //ADR
+				serializeADRValue((Address)value, writer); //serialize the value
+				return true; //show that we serialized the value 
+			//organizational types
+			case ORG_TYPE: //ORG
+				serializeORGValue((LocaledText[])value, writer); //serialize the value
+				return true; //show that we serialized the value 
 		}
 		return false; //show that we can't serialize the value
 	}
@@ -569,118 +637,112 @@ public VCard createDirectory(final ContentLine[] contentLines) {
 		final VCard vcard = new VCard(); //we'll store the vCard information here
 		for(int i = 0; i < contentLines.length; ++i) { //look at each content line
 			final ContentLine contentLine = contentLines[i]; //get a reference to this content line
-			final String typeName = contentLine.getName(); //get this content line's type name
-			if(BEGIN_TYPE.equalsIgnoreCase(typeName)) { //BEGIN
-				continue; //ignore begin; don't process this content line further TODO maybe only ignore these if they are the vCard profile
-			} else if(END_TYPE.equalsIgnoreCase(typeName)) { //END
-				continue; //ignore end; don't process this content line further
-			} else if(NAME_TYPE.equalsIgnoreCase(typeName)) { //if this is NAME
-				if(vcard.getDisplayName() == null) { //if the vCard does not yet have a display name
-					vcard.setDisplayName((LocaledText)contentLine.getValue()); //set the vCard display name
+			switch(foldName(contentLine.getName())) { //get this content line's type name, folded so that it can be matched regardless of case
+				case BEGIN_TYPE: //BEGIN
+					continue; //ignore begin; don't process this content line further TODO maybe only ignore these if they are the vCard profile
+				case END_TYPE: //END
+					continue; //ignore end; don't process this content line further
+				case NAME_TYPE: //if this is NAME
+					if(vcard.getDisplayName() == null) { //if the vCard does not yet have a display name
+						vcard.setDisplayName((LocaledText)contentLine.getValue()); //set the vCard display name
+						continue; //don't process this content line further
+					}
+					break;
+				//identification types
+				case FN_TYPE: //FN
+					if(vcard.getFormattedName() == null) { //if there is not yet a formatted name
+						vcard.setFormattedName((LocaledText)contentLine.getValue()); //get the formatted name
+						continue; //don't process this content line further
+					}
+					break;
+				case N_TYPE: //N
+					if(vcard.getName() == null) { //if there is not yet a name
+						vcard.setName((Name)contentLine.getValue()); //get the name
+						continue; //don't process this content line further
+					}
+					break;
+				case NICKNAME_TYPE: //NICKNAME
+					vcard.getNicknames().add((LocaledText)contentLine.getValue()); //add this nickname to our list
 					continue; //don't process this content line further
-				}
-			}
-			//identification types
-			else if(FN_TYPE.equalsIgnoreCase(typeName)) { //FN
-				if(vcard.getFormattedName() == null) { //if there is not yet a formatted name
-					vcard.setFormattedName((LocaledText)contentLine.getValue()); //get the formatted name
+				case BDAY_TYPE: { //BDAY
+					final Temporal bday = (Temporal)contentLine.getValue();
+					//TODO if a date and time were given, make sure it's not something that could be represented by just a date
+					//(Google, for instance, doesn't recognize birthdays composed of both date and time)
+					vcard.setBirthday(bday); //set the birthday
 					continue; //don't process this content line further
 				}
-			} else if(N_TYPE.equalsIgnoreCase(typeName)) { //N
-				if(vcard.getName() == null) { //if there is not yet a name
-					vcard.setName((Name)contentLine.getValue()); //get the name
+				//delivery addressing types
+				case ADR_TYPE: //ADR
+					vcard.getAddresses().add((Address)contentLine.getValue()); //add this address to our list
+					continue; //don't process this content line further
+				case LABEL_TYPE: //LABEL
+					vcard.getLabels().add((Label)contentLine.getValue()); //add this label to our list
+					continue; //don't process this content line further
+				//telecommunications addressing types
+				case TEL_TYPE: { //TEL
+					final Telephone telephone = (Telephone)contentLine.getValue();
+					if(telephone != null) { //TODO add null recognition and checks for all other non-string fields, as presumably some consumer may leave it blank
+						vcard.getTelephones().add(telephone); //add this telephone to our list
+					}
 					continue; //don't process this content line further
 				}
-			} else if(NICKNAME_TYPE.equalsIgnoreCase(typeName)) { //NICKNAME
-				vcard.getNicknames().add((LocaledText)contentLine.getValue()); //add this nickname to our list
-				continue; //don't process this content line further
-			} else if(BDAY_TYPE.equalsIgnoreCase(typeName)) { //BDAY
-				final Temporal bday = (Temporal)contentLine.getValue();
-				//TODO if a date and time were given, make sure it's not something that could be represented by just a date
-				//(Google, for instance, doesn't recognize birthdays composed of both date and time)
-				vcard.setBirthday(bday); //set the birthday
-				continue; //don't process this content line further
-			}
-			//delivery addressing types
-			else if(ADR_TYPE.equalsIgnoreCase(typeName)) { //ADR
-				vcard.getAddresses().add((Address)contentLine.getValue()); //add this address to our list
-				continue; //don't process this content line further
-			} else if(LABEL_TYPE.equalsIgnoreCase(typeName)) { //LABEL
-				vcard.getLabels().add((Label)contentLine.getValue()); //add this label to our list
-				continue; //don't process this content line further
-			}
-			//telecommunications addressing types
-			else if(TEL_TYPE.equalsIgnoreCase(typeName)) { //TEL
-				final Telephone telephone = (Telephone)contentLine.getValue();
-				if(telephone != null) { //TODO add null recognition and checks for all other non-string fields, as presumably some consumer may leave it blank
-					vcard.getTelephones().add(telephone); //add this telephone to our list
-				}
-				continue; //don't process this content line further
-			} else if(EMAIL_TYPE.equalsIgnoreCase(typeName)) { //EMAIL
-				final Set<Email.Type> emailTypes = EnumSet.noneOf(Email.Type.class); //we'll determine the email types
-				List<String> typeStrings = getParamValues(contentLine.getParamList(), TYPE_PARAM_NAME); //get the email types specified
-				if(typeStrings.isEmpty()) { //if no types were given, see if bare parameter names were given, in case some producers provide types as bare names instead of in the form TYPE=XXX
-					typeStrings = getParamNamesByValue(contentLine.getParamList(), null);
+				case EMAIL_TYPE: { //EMAIL
+					final Set<Email.Type> emailTypes = Email.TYPE_LOOKUP.getTypes(contentLine.getParamList()); //determine the shared set of types
+					final Email email = new Email(((LocaledText)contentLine.getValue()).getText(), emailTypes); //create an email from the address and types we parsed
+					vcard.getEmails().add(email); //add this email to our list
+					continue; //don't process this content line further
 				}
-				for(final String typeString : typeStrings) {
-					try {
-						emailTypes.add(Email.Type.valueOf(typeString.toUpperCase()));
-					} catch(final IllegalArgumentException illegalArgumentException) {
-						throw new IllegalArgumentException("Unrecognized email type: " + typeString, illegalArgumentException);
+				//organizational type
+				case ORG_TYPE: { //ORG
+					final List<LocaledText> org = asList((LocaledText[])contentLine.getValue()); //get the organization information
+					if(!org.isEmpty() && vcard.getOrganizationName() == null) { //if there is an organization name, and we haven't yet stored an organization name
+						vcard.setOrganizationName(org.get(0)); //set the organization name from the first organizational component
+						if(org.size() > 1) { //if there are units specified
+							final List<LocaledText> units = new ArrayList<LocaledText>(org); //create a list to contain all the units
+							units.remove(0); //remove the first item, the organization name
+							vcard.setOrganizationUnits(units.toArray(new LocaledText[units.size()])); //set the vCard units 
+						}
+						continue; //don't process this content line further
 					}
+					break;
 				}
-				final Email email = new Email(((LocaledText)contentLine.getValue()).getText(), emailTypes); //create an email from the address and types we parsed
-				vcard.getEmails().add(email); //add this email to our list
-				continue; //don't process this content line further
-			}
-			//organizational type
-			else if(ORG_TYPE.equalsIgnoreCase(typeName)) { //ORG
-				final List<LocaledText> org = asList((LocaledText[])contentLine.getValue()); //get the organization information
-				if(!org.isEmpty() && vcard.getOrganizationName() == null) { //if there is an organization name, and we haven't yet stored an organization name
-					vcard.setOrganizationName(org.get(0)); //set the organization name from the first organizational component
-					if(org.size() > 1) { //if there are units specified
-						final List<LocaledText> units = new ArrayList<LocaledText>(org); //create a list to contain all the units
-						units.remove(0); //remove the first item, the organization name
-						vcard.setOrganizationUnits(units.toArray(new LocaledText[units.size()])); //set the vCard units 
+				case TITLE_TYPE: //TITLE
+					if(vcard.getTitle() == null) { //if there is not yet a title
+						//TODO add support for multiple titles with multiple languages
+						vcard.setTitle((LocaledText)contentLine.getValue()); //set the title
+						continue; //don't process this content line further
 					}
+					break;
+				case ROLE_TYPE: //ROLE
+					if(vcard.getRole() == null) { //if there is not yet a role
+						vcard.setRole((LocaledText)contentLine.getValue()); //set the role
+						continue; //don't process this content line further
+					}
+					break;
+				//explanatory types
+				case CATEGORIES_TYPE: //CATEGORIES
+					vcard.getCategories().add((LocaledText)contentLine.getValue()); //add this category to our list
 					continue; //don't process this content line further
-				}
-			} else if(TITLE_TYPE.equalsIgnoreCase(typeName)) { //TITLE
-				if(vcard.getTitle() == null) { //if there is not yet a title
-					//TODO add support for multiple titles with multiple languages
-					vcard.setTitle((LocaledText)contentLine.getValue()); //set the title
-					continue; //don't process this content line further
-				}
-			} else if(ROLE_TYPE.equalsIgnoreCase(typeName)) { //ROLE
-				if(vcard.getRole() == null) { //if there is not yet a role
-					vcard.setRole((LocaledText)contentLine.getValue()); //set the role
+				case NOTE_TYPE: //NOTE
+					vcard.getNotes().add((LocaledText)contentLine.getValue()); //add this note to our list
 					continue; //don't process this content line further
-				}
-			}
-			//explanatory types
-			else if(CATEGORIES_TYPE.equalsIgnoreCase(typeName)) { //CATEGORIES
-				vcard.getCategories().add((LocaledText)contentLine.getValue()); //add this category to our list
-				continue; //don't process this content line further
-			} else if(NOTE_TYPE.equalsIgnoreCase(typeName)) { //NOTE
-				vcard.getNotes().add((LocaledText)contentLine.getValue()); //add this note to our list
-				continue; //don't process this content line further
-			}
-			/*TODO fix when we allow this to be edited
-						else if(SORT_STRING_TYPE.equalsIgnoreCase(typeName)) {	//SORT-STRING
-							if(vcard.getSortString()==null) {	//if there is not yet a sorting string
-								vcard.setSortString((LocaleText)contentLine.getValue());	//set the sorting string
-								continue;	//don't process this content line further
-							}
-						}
-			*/
-			else if(URL_TYPE.equalsIgnoreCase(typeName)) { //URL
-				if(vcard.getURL() == null) { //if there is not yet a URL
-					vcard.setURL((URI)contentLine.getValue()); //set the URL
+				/*TODO fix when we allow this to be edited
+							case SORT_STRING_TYPE:	//SORT-STRING
+								if(vcard.getSortString()==null) {	//if there is not yet a sorting string
+									vcard.setSortString((LocaleText)contentLine.getValue());	//set the sorting string
+									continue;	//don't process this content line further
+								}
+								break;
+				*/
+				case URL_TYPE: //URL
+					if(vcard.getURL() == null) { //if there is not yet a URL
+						vcard.setURL((URI)contentLine.getValue()); //set the URL
+						continue; //don't process this content line further
+					}
+					break;
+				case VERSION_TYPE: //VERSION
+					vcard.setVersion(((LocaledText)contentLine.getValue()).getText()); //set the version
 					continue; //don't process this content line further
-				}
-			} else if(VERSION_TYPE.equalsIgnoreCase(typeName)) { //VERSION
-				vcard.setVersion(((LocaledText)contentLine.getValue()).getText()); //set the version
-				continue; //don't process this content line further
 			}
 			//if we make it to here, we either don't recognize the content line
 			//	or we can't proces it (e.g. a duplicate value we don't support)
@@ -690,105 +752,204 @@ else if(URL_TYPE.equalsIgnoreCase(typeName)) { //URL
 	}
 
 	/**
-	 * Creates a list of content lines from the given vCard.
+	 * Receives the properties of a vCard in the order in which they are serialized.
+	 * @author Garret Wilson
+	 * @see VCardProfile#visitProperties(VCard, PropertyVisitor)
+	 */
+	@FunctionalInterface
+	public interface PropertyVisitor {
+
+		/**
+		 * Called for each property of a vCard.
+		 * @param name The name of the property.
+		 * @param value The value of the property, of the type described by {@link VCardProfile#visitProperties(VCard, PropertyVisitor)}.
+		 * @throws IOException Thrown if the visitor cannot process the property.
+		 */
+		public void visitProperty(final String name, final Object value) throws IOException;
+
+	}
+
+	/**
+	 * Visits the properties of the given vCard in the order in which they are serialized. This is the single list of the properties of a vCard, used both to
+	 * create content lines and to serialize a vCard directly, so that the two always produce the same properties in the same order.
 	 * <p>
-	 * This implementation ignores the version of the given vCard and adds a content line with the version used here: "3.0".
+	 * The values of the properties are as follows:
 	 * </p>
-	 * @param vcard The vCard object to be converted to content lines.
-	 * @return The content lines that represent the vCard information.
-	 * @see VCard#VCARD_VERSION_VALUE
+	 * <ul>
+	 * <li>{@value Directory#BEGIN_TYPE} and {@value Directory#END_TYPE}: the {@value VCard#VCARD_PROFILE_NAME} profile name.</li>
+	 * <li>{@value VCard#VERSION_TYPE}: the version used here, {@value VCard#VCARD_VERSION_VALUE}, regardless of the version of the vCard.</li>
+	 * <li>{@value Directory#NAME_TYPE}, {@value VCard#FN_TYPE}, {@value VCard#NICKNAME_TYPE}, {@value VCard#TITLE_TYPE}, {@value VCard#ROLE_TYPE},
+	 * {@value VCard#CATEGORIES_TYPE}, and {@value VCard#NOTE_TYPE}: a {@link LocaledText}.</li>
+	 * <li>{@value VCard#N_TYPE}: a {@link Name}.</li>
+	 * <li>{@value VCard#BDAY_TYPE}: a {@link Temporal}.</li>
+	 * <li>{@value VCard#ADR_TYPE}: an {@link Address}.</li>
+	 * <li>{@value VCard#LABEL_TYPE}: a {@link Label}.</li>
+	 * <li>{@value VCard#TEL_TYPE}: a {@link Telephone}.</li>
+	 * <li>{@value VCard#EMAIL_TYPE}: an {@link Email}.</li>
+	 * <li>{@value VCard#ORG_TYPE}: an array of {@link LocaledText}, beginning with the organization name if there is one, followed by the units.</li>
+	 * <li>{@value VCard#URL_TYPE}: a {@link URI}.</li>
+	 * <li>Unrecognized content lines: the {@link ContentLine} itself, with its name.</li>
+	 * </ul>
+	 * @param vcard The vCard the properties of which should be visited.
+	 * @param visitor The visitor to receive each property.
+	 * @throws IOException Thrown if the visitor cannot process a property.
+	 * @see #createContentLines(VCard)
+	 * @see VCardSerializer
 	 */
-	public static ContentLine[] createContentLines(final VCard vcard) { //TODO make sure displayName and formattedName are included
-		//TODO del		final List contentLineList=new ArrayList(vcard.getContentLineList());	//create a content line list initially containing all the unrecognized content lines of the vCard
-		final List<ContentLine> contentLineList = new ArrayList<ContentLine>(); //create a content line list to fill
-		contentLineList.add(new ContentLine(BEGIN_TYPE, new LocaledText(VCARD_PROFILE_NAME))); //BEGIN:VCARD
-		//ignore the given vCard version, and always create "version:3.0"
-		contentLineList.add(new ContentLine(VERSION_TYPE, new LocaledText(VCARD_VERSION_VALUE))); //VERSION
+	public static void visitProperties(final VCard vcard, final PropertyVisitor visitor) throws IOException { //TODO make sure displayName and formattedName are included
+		visitor.visitProperty(BEGIN_TYPE, VCARD_PROFILE_NAME); //BEGIN:VCARD
+		//ignore the given vCard version, and always use "version:3.0"
+		visitor.visitProperty(VERSION_TYPE, VCARD_VERSION_VALUE); //VERSION
 		//predefined directory types
 		if(vcard.getDisplayName() != null) { //NAME
-			contentLineList.add(new ContentLine(NAME_TYPE, vcard.getDisplayName())); //add the display name
-			//TODO del			contentLineList.add(0, new ContentLine(NAME_TYPE, vcard.getDisplayName()));	//add the display name at the front of the list
+			visitor.visitProperty(NAME_TYPE, vcard.getDisplayName());
 		}
 		//identification types
 		if(vcard.getFormattedName() != null) { //FN
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, FN_TYPE, vcard.getFormattedName())); //FN
+			visitor.visitProperty(FN_TYPE, vcard.getFormattedName());
 		}
 		if(vcard.getName() != null) { //N
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, N_TYPE, vcard.getName(), vcard.getName().getLocale())); //N
+			visitor.visitProperty(N_TYPE, vcard.getName());
 		}
-		for(final LocaledText nickname : vcard.getNicknames()) { //for each nickname
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, NICKNAME_TYPE, nickname)); //NICKNAME			
+		for(final LocaledText nickname : vcard.getNicknames()) { //NICKNAME
+			visitor.visitProperty(NICKNAME_TYPE, nickname);
 		}
 		if(vcard.getBirthday() != null) { //BDAY
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, BDAY_TYPE, vcard.getBirthday())); //BDAY
+			visitor.visitProperty(BDAY_TYPE, vcard.getBirthday());
 		}
 		//delivery addressing types
-		for(final Address address : vcard.getAddresses()) { //for each address
-			final ContentLine contentLine = createContentLine(VCARD_PROFILE_NAME, null, ADR_TYPE, address, address.getLocale()); //ADR
-			for(final Address.Type addressType : address.getTypes()) { //for each address type
-				addParam(contentLine.getParamList(), TYPE_PARAM_NAME, addressType.toString()); //add this address type parameter
-			}
-			contentLineList.add(contentLine); //add the content line
+		for(final Address address : vcard.getAddresses()) { //ADR
+			visitor.visitProperty(ADR_TYPE, address);
 		}
-		for(final Label label : vcard.getLabels()) { //for each label
-			final ContentLine contentLine = createContentLine(VCARD_PROFILE_NAME, null, LABEL_TYPE, label); //LABEL
-			for(final Address.Type addressType : label.getAddressTypes()) { //for each address type
-				addParam(contentLine.getParamList(), TYPE_PARAM_NAME, addressType.toString()); //add this address type parameter
-			}
-			contentLineList.add(contentLine); //add the content line
+		for(final Label label : vcard.getLabels()) { //LABEL
+			visitor.visitProperty(LABEL_TYPE, label);
 		}
 		//telecommunications addressing types
-		for(final Telephone telephone : vcard.getTelephones()) { //for each telephone
-			final ContentLine contentLine = new ContentLine(VCARD_PROFILE_NAME, null, TEL_TYPE, telephone); //TEL
-			for(final Telephone.Type telephoneType : telephone.getTypes()) { //for each telephone type
-				addParam(contentLine.getParamList(), TYPE_PARAM_NAME, telephoneType.toString()); //add this telephone type parameter
-			}
-			contentLineList.add(contentLine); //add the content line
+		for(final Telephone telephone : vcard.getTelephones()) { //TEL
+			visitor.visitProperty(TEL_TYPE, telephone);
 		}
-		for(final Email email : vcard.getEmails()) { //for each email
-			final ContentLine contentLine = createContentLine(VCARD_PROFILE_NAME, null, EMAIL_TYPE, new LocaledText(email.getAddress(), email.getLocale())); //EMAIL TODO maybe fix to store the email object, if that's what we decide to store there when reading the value
-			for(final Email.Type emailType : email.getTypes()) { //for each email type
-				addParam(contentLine.getParamList(), TYPE_PARAM_NAME, emailType.toString()); //add this email type parameter
-			}
-			contentLineList.add(contentLine); //add the content line
+		for(final Email email : vcard.getEmails()) { //EMAIL
+			visitor.visitProperty(EMAIL_TYPE, email);
 		}
-		//organizational type
-		final List<LocaledText> org; //we'll create an array for the org or, if there is no org name, just use the units array
+		//organizational types
+		final LocaledText organizationName = vcard.getOrganizationName();
 		final List<LocaledText> units = vcard.getOrganizationUnits(); //get the organizational units
-		if(vcard.getOrganizationName() != null) { //if a name is supplied
-			org = new ArrayList<LocaledText>(units.size() + 1); //create a new list with room for the name and the units
-			org.add(vcard.getOrganizationName()); //store the organization name as the first element
-			org.addAll(units); //copy the units into the list array after the organization name
-		} else { //if there is no name supplied
-			org = units; //just use the units, since there is no organization name
-		}
-		if(!org.isEmpty()) { //ORG
-			final Locale orgLocale = org.get(0).getLocale(); //get the locale of the first organization component
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, ORG_TYPE, org.toArray(new LocaledText[org.size()]), orgLocale)); //ORG
+		if(organizationName != null || !units.isEmpty()) { //ORG
+			final List<LocaledText> org = new ArrayList<LocaledText>(units.size() + 1);
+			if(organizationName != null) { //store the organization name as the first element
+				org.add(organizationName);
+			}
+			org.addAll(units);
+			visitor.visitProperty(ORG_TYPE, org.toArray(new LocaledText[org.size()]));
 		}
 		if(vcard.getTitle() != null) { //TITLE
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, TITLE_TYPE, vcard.getTitle())); //TITLE
+			visitor.visitProperty(TITLE_TYPE, vcard.getTitle());
 		}
 		if(vcard.getRole() != null) { //ROLE
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, ROLE_TYPE, vcard.getRole())); //ROLE
+			visitor.visitProperty(ROLE_TYPE, vcard.getRole());
 		}
 		//explanatory types
-		for(final LocaledText category : vcard.getCategories()) { //for each category
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, CATEGORIES_TYPE, category)); //CATEGORIES
+		for(final LocaledText category : vcard.getCategories()) { //CATEGORIES
+			visitor.visitProperty(CATEGORIES_TYPE, category);
 		}
-		for(final LocaledText note : vcard.getNotes()) { //for each note
-			contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, NOTE_TYPE, note)); //NOTE
+		for(final LocaledText note : vcard.getNotes()) { //NOTE
+			visitor.visitProperty(NOTE_TYPE, note);
 		}
 		/*TODO fix when we allow this to be edited
 				if(vcard.getSortString()!=null) {	//SORT-STRING
-					contentLineList.add(createContentLine(VCARD_PROFILE_NAME, null, SORT_STRING_TYPE, vcard.getNote()));	//SORT-STRING
+					visitor.visitProperty(SORT_STRING_TYPE, vcard.getSortString());	//SORT-STRING
 				}
 		*/
 		if(vcard.getURL() != null) { //URL
-			contentLineList.add(new ContentLine(VCARD_PROFILE_NAME, null, VCard.URL_TYPE, vcard.getURL())); //URL
+			visitor.visitProperty(URL_TYPE, vcard.getURL());
+		}
+		for(final ContentLine contentLine : vcard.getContentLineList()) { //unrecognized content lines
+			visitor.visitProperty(contentLine.getName(), contentLine);
+		}
+		visitor.visitProperty(END_TYPE, VCARD_PROFILE_NAME); //END:VCARD
+	}
+
+	/**
+	 * Creates a list of content lines from the given vCard.
+	 * <p>
+	 * This implementation ignores the version of the given vCard and adds a content line with the version used here: "3.0".
+	 * </p>
+	 * @param vcard The vCard object to be converted to content lines.
+	 * @return The content lines that represent the vCard information.
+	 * @see VCard#VCARD_VERSION_VALUE
+	 * @see #visitProperties(VCard, PropertyVisitor)
+	 */
+	public static ContentLine[] createContentLines(final VCard vcard) {
+		final List<ContentLine> contentLineList = new ArrayList<ContentLine>(); //create a content line list to fill
+		try {
+			visitProperties(vcard, (name, value) -> contentLineList.add(createContentLine(name, value)));
+		} catch(final IOException ioException) { //creating content lines never throws an I/O exception
+			throw Conditions.unexpected(ioException);
 		}
-		contentLineList.addAll(vcard.getContentLineList()); //add all of our unrecognized content lines
-		contentLineList.add(new ContentLine(END_TYPE, new LocaledText(VCARD_PROFILE_NAME))); //END:VCARD
 		return contentLineList.toArray(new ContentLine[contentLineList.size()]); //return the content lines we produced	
 	}
+
+	/**
+	 * Creates a content line for a property of a vCard.
+	 * @param name The name of the property.
+	 * @param value The value of the property, as described by {@link #visitProperties(VCard, PropertyVisitor)}.
+	 * @return A content line representing the property.
+	 */
+	private static ContentLine createContentLine(final String name, final Object value) {
+		if(value instanceof ContentLine) { //unrecognized content lines are used as is
+			return (ContentLine)value;
+		}
+		switch(name) {
+			case BEGIN_TYPE:
+			case END_TYPE:
+			case VERSION_TYPE:
+				return new ContentLine(name, new LocaledText((String)value));
+			case NAME_TYPE:
+				return new ContentLine(NAME_TYPE, value);
+			case N_TYPE:
+				return Directory.createContentLine(VCARD_PROFILE_NAME, null, N_TYPE, value, ((Name)value).getLocale());
+			case BDAY_TYPE:
+				return Directory.createContentLine(VCARD_PROFILE_NAME, null, BDAY_TYPE, value);
+			case ADR_TYPE: {
+				final Address address = (Address)value;
+				final ContentLine contentLine = Directory.createContentLine(VCARD_PROFILE_NAME, null, ADR_TYPE, address, address.getLocale());
+				for(final Address.Type addressType : address.getTypes()) { //for each address type
+					addParam(contentLine.getParamList(), TYPE_PARAM_NAME, addressType.toString()); //add this address type parameter
+				}
+				return contentLine;
+			}
+			case LABEL_TYPE: {
+				final Label label = (Label)value;
+				final ContentLine contentLine = Directory.createContentLine(VCARD_PROFILE_NAME, null, LABEL_TYPE, label);
+				for(final Address.Type addressType : label.getAddressTypes()) { //for each address type
+					addParam(contentLine.getParamList(), TYPE_PARAM_NAME, addressType.toString()); //add this address type parameter
+				}
+				return contentLine;
+			}
+			case TEL_TYPE: {
+				final Telephone telephone = (Telephone)value;
+				final ContentLine contentLine = new ContentLine(VCARD_PROFILE_NAME, null, TEL_TYPE, telephone);
+				for(final Telephone.Type telephoneType : telephone.getTypes()) { //for each telephone type
+					addParam(contentLine.getParamList(), TYPE_PARAM_NAME, telephoneType.toString()); //add this telephone type parameter
+				}
+				return contentLine;
+			}
+			case EMAIL_TYPE: {
+				final Email email = (Email)value;
+				final ContentLine contentLine = Directory.createContentLine(VCARD_PROFILE_NAME, null, EMAIL_TYPE, new LocaledText(email.getAddress(), email.getLocale())); //TODO maybe fix to store the email object, if that's what we decide to store there when reading the value
+				for(final Email.Type emailType : email.getTypes()) { //for each email type
+					addParam(contentLine.getParamList(), TYPE_PARAM_NAME, emailType.toString()); //add this email type parameter
+				}
+				return contentLine;
+			}
+			case ORG_TYPE: {
+				final LocaledText[] org = (LocaledText[])value;
+				return Directory.createContentLine(VCARD_PROFILE_NAME, null, ORG_TYPE, org, org[0].getLocale()); //use the locale of the first organization component
+			}
+			case URL_TYPE:
+				return new ContentLine(VCARD_PROFILE_NAME, null, URL_TYPE, value);
+			default: //FN, NICKNAME, TITLE, ROLE, CATEGORIES, NOTE
+				return Directory.createContentLine(VCARD_PROFILE_NAME, null, name, (LocaledText)value);
+		}
+	}
 }
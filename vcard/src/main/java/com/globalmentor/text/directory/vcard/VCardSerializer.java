@@ -0,0 +1,388 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory.vcard;
+
+import java.io.*;
+import java.util.*;
+
+import static com.globalmentor.java.Conditions.*;
+import static com.globalmentor.text.ABNF.*;
+import static com.globalmentor.text.directory.Directory.*;
+import static com.globalmentor.text.directory.vcard.VCard.*;
+
+import com.globalmentor.model.*;
+import com.globalmentor.text.directory.*;
+
+/**
+ * Serializes vCards by walking the fields of a {@link VCard} and writing each property name, its parameters, and its escaped value directly, without first
+ * creating content lines.
+ * <p>
+ * The properties and their order come from {@link VCardProfile#visitProperties(VCard, VCardProfile.PropertyVisitor)}, which also drives
+ * {@link VCardProfile#createContentLines(VCard)}; only the formatting of each property value is defined here.
+ * </p>
+ * <p>
+ * The output is identical to that produced by serializing the content lines returned by {@link VCardProfile#createContentLines(VCard)}. If a vCard has more
+ * than one property with one of the {@link #getSingleValueNames()}, the values must be combined, and the vCard is serialized by way of content lines.
+ * </p>
+ * @author Garret Wilson
+ * @see VCardProfile#createContentLines(VCard)
+ */
+public class VCardSerializer extends DirectorySerializer {
+
+	/** Default constructor, registering a new vCard profile. */
+	public VCardSerializer() {
+		this(new VCardProfile());
+	}
+
+	/**
+	 * Profile constructor.
+	 * @param vcardProfile The profile to register for serializing any unrecognized content lines of vCards.
+	 */
+	public VCardSerializer(final VCardProfile vcardProfile) {
+		registerProfile(VCARD_PROFILE_NAME, vcardProfile); //register the vCard profile
+	}
+
+	/**
+	 * Serializes a vCard.
+	 * @param vcard The vCard to serialize.
+	 * @param writer The writer to which the lines of the vCard should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
+	 */
+	public void serializeVCard(final VCard vcard, final Writer writer) throws IOException {
+		serializeFoldedVCard(vcard, new LineFoldWriter(writer)); //create a new line fold writer and use that to serialize the vCard
+	}
+
+	/**
+	 * Serializes a vCard directly to UTF-8 bytes, folding lines by their lengths in octets. The output stream is flushed but not closed.
+	 * @param vcard The vCard to serialize.
+	 * @param outputStream The output stream to which the lines of the vCard should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
+	 * @see Utf8LineFoldWriter
+	 */
+	public void serializeVCard(final VCard vcard, final OutputStream outputStream) throws IOException {
+		final Utf8LineFoldWriter writer = new Utf8LineFoldWriter(outputStream);
+		serializeFoldedVCard(vcard, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Serializes a vCard to a writer that folds lines.
+	 * <p>
+	 * The properties are visited using {@link VCardProfile#visitProperties(VCard, VCardProfile.PropertyVisitor)}, the same list of properties used by
+	 * {@link VCardProfile#createContentLines(VCard)}.
+	 * </p>
+	 * @param vcard The vCard to serialize.
+	 * @param writer The writer, such as a {@link LineFoldWriter} or a {@link Utf8LineFoldWriter}, to which the lines of the vCard should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 * @throws UnsupportedOperationException if the values of several content lines with one of the {@link #getSingleValueNames()} cannot be combined, such as
+	 *           when they are not text.
+	 * @see #serializeProperty(String, Object, Writer)
+	 */
+	protected void serializeFoldedVCard(final VCard vcard, final Writer writer) throws IOException {
+		if(hasRepeatedProperty(vcard, getSingleValueNames())) { //if values would need to be combined, let the content line serialization combine them
+			serializeFoldedContentLines(VCardProfile.createContentLines(vcard), writer);
+			return;
+		}
+		beginSerialization(); //prepare to keep track of profiles
+		try {
+			VCardProfile.visitProperties(vcard, (name, value) -> serializeProperty(name, value, writer));
+		} finally {
+			endSerialization(); //release the profile information
+		}
+	}
+
+	/**
+	 * Serializes a single property of a vCard directly.
+	 * @param name The name of the property.
+	 * @param value The value of the property, as described by {@link VCardProfile#visitProperties(VCard, VCardProfile.PropertyVisitor)}.
+	 * @param writer The writer to which the property should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected void serializeProperty(final String name, final Object value, final Writer writer) throws IOException {
+		if(value instanceof ContentLine) { //unrecognized content lines
+			serializeContentLine((ContentLine)value, writer);
+			return;
+		}
+		switch(name) {
+			case BEGIN_TYPE: //BEGIN:VCARD
+				writer.write(BEGIN_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write((String)value);
+				writer.write(CRLF);
+				pushProfile((String)value); //the following properties are in the vCard profile
+				break;
+			case END_TYPE: //END:VCARD
+				popProfile();
+				writer.write(END_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write((String)value);
+				writer.write(CRLF);
+				break;
+			case VERSION_TYPE:
+				writer.write(VERSION_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write((String)value);
+				writer.write(CRLF);
+				break;
+			case NAME_TYPE:
+				writer.write(NAME_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				serializeText(((LocaledText)value).getText(), writer);
+				writer.write(CRLF);
+				break;
+			case N_TYPE: {
+				final Name n = (Name)value;
+				writer.write(N_TYPE);
+				serializeLanguageParameter(n.getLocale(), writer);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				serializeStructuredTextField(n.getFamilyNames(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(n.getGivenNames(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(n.getAdditionalNames(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(n.getHonorificPrefixes(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(n.getHonorificSuffixes(), writer);
+				writer.write(CRLF);
+			}
+				break;
+			case BDAY_TYPE:
+				writer.write(BDAY_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write(value.toString());
+				writer.write(CRLF);
+				break;
+			case ADR_TYPE: {
+				final Address address = (Address)value;
+				writer.write(ADR_TYPE);
+				serializeLanguageParameter(address.getLocale(), writer);
+				serializeTypeParameter(address.getTypes(), writer);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				serializeStructuredTextField(address.getPostOfficeBox(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getExtendedAddresses(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getStreetAddresses(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getLocality(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getRegion(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getPostalCode(), writer);
+				writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+				serializeStructuredTextField(address.getCountryName(), writer);
+				writer.write(CRLF);
+			}
+				break;
+			case LABEL_TYPE: {
+				final Label label = (Label)value;
+				writer.write(LABEL_TYPE);
+				serializeLanguageParameter(label.getLocale(), writer);
+				serializeTypeParameter(label.getAddressTypes(), writer);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				serializeText(label.getText(), writer);
+				writer.write(CRLF);
+			}
+				break;
+			case TEL_TYPE: {
+				final Telephone telephone = (Telephone)value;
+				writer.write(TEL_TYPE);
+				serializeTypeParameter(telephone.getTypes(), writer);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write(telephone.getCanonicalString());
+				writer.write(CRLF);
+			}
+				break;
+			case EMAIL_TYPE: {
+				final Email email = (Email)value;
+				writer.write(EMAIL_TYPE);
+				serializeLanguageParameter(email.getLocale(), writer);
+				serializeTypeParameter(email.getTypes(), writer);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				serializeText(email.getAddress(), writer);
+				writer.write(CRLF);
+			}
+				break;
+			case ORG_TYPE: {
+				final LocaledText[] org = (LocaledText[])value;
+				writer.write(ORG_TYPE);
+				serializeLanguageParameter(org[0].getLocale(), writer); //use the locale of the first organization component
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				for(int i = 0; i < org.length; ++i) {
+					if(i > 0) {
+						writer.write(STRUCTURED_TEXT_VALUE_DELIMITER);
+					}
+					serializeStructuredTextField(org[i].getText(), writer);
+				}
+				writer.write(CRLF);
+			}
+				break;
+			case URL_TYPE:
+				writer.write(URL_TYPE);
+				writer.write(NAME_VALUE_SEPARATOR_CHAR);
+				writer.write(value.toString());
+				writer.write(CRLF);
+				break;
+			default: //FN, NICKNAME, TITLE, ROLE, CATEGORIES, NOTE
+				serializeTextProperty(name, (LocaledText)value, writer);
+				break;
+		}
+	}
+
+	/**
+	 * Determines whether more than one property with any of the given names would be serialized for a vCard, including any unrecognized content lines. All the
+	 * names are checked in a single visit of the properties, which is skipped altogether if there are no names.
+	 * @param vcard The vCard being serialized.
+	 * @param names The property names, matched with regard to case as when combining content line values.
+	 * @return <code>true</code> if any of the names would appear on more than one property.
+	 * @see VCardProfile#visitProperties(VCard, VCardProfile.PropertyVisitor)
+	 */
+	protected static boolean hasRepeatedProperty(final VCard vcard, final Set<String> names) {
+		if(names.isEmpty()) { //the usual case: nothing will be combined
+			return false;
+		}
+		final Set<String> foundNames = new HashSet<String>(names.size());
+		final boolean[] isRepeated = new boolean[1];
+		try {
+			VCardProfile.visitProperties(vcard, (name, value) -> {
+				if(names.contains(name) && !foundNames.add(name)) { //if we've seen this name before
+					isRepeated[0] = true;
+				}
+			});
+		} catch(final IOException ioException) { //checking properties never throws an I/O exception
+			throw unexpected(ioException);
+		}
+		return isRepeated[0];
+	}
+
+	/**
+	 * Serializes a complete property with a text value, along with a language parameter for the locale of the text, if any.
+	 * @param name The property name.
+	 * @param text The text value and its locale.
+	 * @param writer The writer to which the property should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected void serializeTextProperty(final String name, final LocaledText text, final Writer writer) throws IOException {
+		writer.write(name);
+		serializeLanguageParameter(text.getLocale(), writer);
+		writer.write(NAME_VALUE_SEPARATOR_CHAR);
+		serializeText(text.getText(), writer);
+		writer.write(CRLF);
+	}
+
+	/**
+	 * Serializes a language parameter, including the preceding parameter separator.
+	 * @param locale The locale to serialize as a language tag, or <code>null</code> if no language parameter should be written.
+	 * @param writer The writer to which the parameter should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeLanguageParameter(final Locale locale, final Writer writer) throws IOException {
+		if(locale != null) {
+			writer.write(PARAM_SEPARATOR_CHAR);
+			writer.write(LANGUAGE_PARAM_NAME);
+			writer.write(PARAM_NAME_VALUE_SEPARATOR_CHAR);
+			writer.write(Locales.getLanguageTag(locale));
+		}
+	}
+
+	/**
+	 * Serializes a type parameter with all the given types as values, including the preceding parameter separator.
+	 * @param types The types to serialize in iteration order; if there are no types, no type parameter is written.
+	 * @param writer The writer to which the parameter should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeTypeParameter(final Set<? extends Enum<?>> types, final Writer writer) throws IOException {
+		final Iterator<? extends Enum<?>> typeIterator = types.iterator();
+		if(typeIterator.hasNext()) {
+			writer.write(PARAM_SEPARATOR_CHAR);
+			writer.write(TYPE_PARAM_NAME);
+			writer.write(PARAM_NAME_VALUE_SEPARATOR_CHAR);
+			writer.write(typeIterator.next().toString());
+			while(typeIterator.hasNext()) {
+				writer.write(PARAM_VALUE_SEPARATOR_CHAR);
+				writer.write(typeIterator.next().toString());
+			}
+		}
+	}
+
+	/**
+	 * Serializes a text value. Text needing no escaping, which is the usual case, is written as is; otherwise it is escaped exactly as by
+	 * {@link Directory#encodeTextValue(String)}.
+	 * @param text The text value to serialize.
+	 * @param writer The writer to which the value should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeText(final String text, final Writer writer) throws IOException {
+		for(int i = text.length() - 1; i >= 0; --i) {
+			final char c = text.charAt(i);
+			if(c == CR || c == LF || c == TEXT_ESCAPE_CHAR || c == VALUE_SEPARATOR_CHAR) { //if the text needs escaping
+				writer.write(encodeTextValue(text));
+				return;
+			}
+		}
+		writer.write(text);
+	}
+
+	/**
+	 * Serializes a single-valued structured text field.
+	 * @param value The value of the field, or <code>null</code> if the field is empty.
+	 * @param writer The writer to which the field should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeStructuredTextField(final String value, final Writer writer) throws IOException {
+		if(value != null) {
+			VCardProfile.serializeStructuredTextFieldValue(value, writer);
+		}
+	}
+
+	/**
+	 * Serializes the values of a structured text field, separated by ','.
+	 * @param values The values of the field.
+	 * @param writer The writer to which the field should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeStructuredTextField(final String[] values, final Writer writer) throws IOException {
+		for(int i = 0; i < values.length; ++i) {
+			if(i > 0) {
+				writer.write(VALUE_SEPARATOR_CHAR);
+			}
+			VCardProfile.serializeStructuredTextFieldValue(values[i], writer);
+		}
+	}
+
+	/**
+	 * Serializes the values of a structured text field, separated by ','.
+	 * @param values The values of the field.
+	 * @param writer The writer to which the field should be serialized.
+	 * @throws IOException Thrown if there is an error writing to the directory.
+	 */
+	protected static void serializeStructuredTextField(final List<String> values, final Writer writer) throws IOException {
+		for(int i = 0; i < values.size(); ++i) {
+			if(i > 0) {
+				writer.write(VALUE_SEPARATOR_CHAR);
+			}
+			VCardProfile.serializeStructuredTextFieldValue(values.get(i), writer);
+		}
+	}
+
+}
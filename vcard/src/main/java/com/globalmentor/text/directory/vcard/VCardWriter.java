@@ -0,0 +1,121 @@
+/*
+ * Copyright © 1996-2011 GlobalMentor, Inc. <https://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.globalmentor.text.directory.vcard;
+
+import java.io.*;
+
+import com.globalmentor.text.directory.Utf8LineFoldWriter;
+
+/**
+ * Writes a series of vCards to an output stream in UTF-8, such as when exporting an address book.
+ * <p>
+ * A single serializer, encoder, and buffer are used for all the vCards written, and the encoded bytes are only written to the output stream when the buffer
+ * is full, when the writer is flushed, or when it is closed. This class is not thread-safe.
+ * </p>
+ * @author Garret Wilson
+ * @see VCardIO#createWriter(OutputStream)
+ */
+public class VCardWriter implements Closeable, Flushable {
+
+	/** The serializer of vCards. */
+	private final VCardSerializer vcardSerializer;
+
+	/** @return The serializer of vCards. */
+	public VCardSerializer getSerializer() {
+		return vcardSerializer;
+	}
+
+	/** The writer that encodes, folds, and buffers the serialized vCards. */
+	private final Utf8LineFoldWriter writer;
+
+	/** The number of vCards written. */
+	private long count = 0;
+
+	/** @return The number of vCards written so far. */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Output stream constructor using a default vCard serializer.
+	 * @param outputStream The output stream to which the vCards should be written.
+	 */
+	public VCardWriter(final OutputStream outputStream) {
+		this(outputStream, new VCardSerializer());
+	}
+
+	/**
+	 * Output stream and serializer constructor with a default buffer size.
+	 * @param outputStream The output stream to which the vCards should be written.
+	 * @param vcardSerializer The serializer to use for all vCards written.
+	 */
+	public VCardWriter(final OutputStream outputStream, final VCardSerializer vcardSerializer) {
+		this(outputStream, vcardSerializer, Utf8LineFoldWriter.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Output stream, serializer, and buffer size constructor.
+	 * @param outputStream The output stream to which the vCards should be written.
+	 * @param vcardSerializer The serializer to use for all vCards written.
+	 * @param bufferSize The size in bytes of the buffer of encoded vCards.
+	 * @throws IllegalArgumentException if the buffer size is too small to hold a folded character.
+	 */
+	public VCardWriter(final OutputStream outputStream, final VCardSerializer vcardSerializer, final int bufferSize) {
+		this.vcardSerializer = vcardSerializer;
+		this.writer = new Utf8LineFoldWriter(outputStream, bufferSize);
+	}
+
+	/**
+	 * Writes a vCard after any vCards already written. The vCard may remain buffered until the buffer is full or this writer is flushed or closed.
+	 * @param vcard The vCard to write.
+	 * @throws IOException if there is an error writing the vCard.
+	 * @throws UnsupportedOperationException if the values of several properties with one of the single-value names of the serializer cannot be combined, such
+	 *           as when they are not text.
+	 */
+	public void write(final VCard vcard) throws IOException {
+		vcardSerializer.serializeFoldedVCard(vcard, writer);
+		++count;
+	}
+
+	/**
+	 * Writes vCards one after another.
+	 * @param vcards The vCards to write.
+	 * @throws IOException if there is an error writing one of the vCards.
+	 * @throws UnsupportedOperationException if the values of several properties with one of the single-value names of the serializer cannot be combined, such
+	 *           as when they are not text.
+	 * @see #write(VCard)
+	 */
+	public void writeAll(final Iterable<? extends VCard> vcards) throws IOException {
+		for(final VCard vcard : vcards) {
+			write(vcard);
+		}
+	}
+
+	/** Writes any buffered vCards to the output stream and flushes the output stream. */
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/** Writes any buffered vCards to the output stream and closes the output stream. */
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+}
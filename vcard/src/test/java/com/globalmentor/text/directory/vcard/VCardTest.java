@@ -19,18 +19,40 @@
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.*;
+import static com.globalmentor.text.directory.vcard.VCard.*;
 
 import java.io.*;
 import java.net.URI;
-import java.time.LocalDate;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.*;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.globalmentor.io.ClassResources;
 import com.globalmentor.io.IO;
+import com.globalmentor.io.InputStreams;
+import com.globalmentor.io.ParseIOException;
+import com.globalmentor.io.ParseUnexpectedDataException;
 import com.globalmentor.itu.TelephoneNumber;
 import com.globalmentor.model.LocaledText;
-import com.globalmentor.text.directory.DirectorySerializer;
+import com.globalmentor.text.directory.*;
 
 /**
  * Tests for correctly reading and writing VCard data.
@@ -124,4 +146,540 @@ public void testWriteJaneDoeCombineNotes() throws IOException {
 				new LocaledText("This is just a test.\nIsso é só um exemplo." + DirectorySerializer.CONTENT_LINE_TEXT_COMBINE_STRING + "This is another note.")));
 	}
 
+	/** Tests lazily reading several concatenated vCards from a single input. */
+	@Test
+	public void testReadAll() throws IOException {
+		final String vcards = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nEMAIL:jane@example.com\r\nEND:VCARD\r\n" //
+				+ "\r\n" //
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:John\r\n  Doe\r\nEND:VCARD\r\n" //
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Richard Roe\r\nEND:VCARD\r\n";
+		final List<VCard> vcardList = new VCardIO().readAll(new ByteArrayInputStream(vcards.getBytes(UTF_8))).collect(toList());
+		assertThat(vcardList.size(), is(3));
+		assertThat(vcardList.get(0).getFormattedName().toString(), is("Jane Doe"));
+		assertThat(vcardList.get(0).getEmail().getAddress(), is("jane@example.com"));
+		assertThat(vcardList.get(1).getFormattedName().toString(), is("John Doe"));
+		assertThat(vcardList.get(2).getFormattedName().toString(), is("Richard Roe"));
+	}
+
+	/** Tests reading concatenated vCards from a memory-mapped file. */
+	@Test
+	public void testReadAllPath(@TempDir final Path tempDir) throws IOException {
+		final Path file = tempDir.resolve("contacts.vcf");
+		Files.write(file, ("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nEND:VCARD\r\n" //
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:John\r\n  Doe\r\nEND:VCARD\r\n").getBytes(UTF_8));
+		final List<VCard> vcardList;
+		try (final Stream<VCard> vcards = new VCardIO().readAll(file)) {
+			vcardList = vcards.collect(toList());
+		}
+		assertThat(vcardList.size(), is(2));
+		assertThat(vcardList.get(0).getFormattedName().toString(), is("Jane Doe"));
+		assertThat(vcardList.get(1).getFormattedName().toString(), is("John Doe"));
+	}
+
+	/**
+	 * Tests reading concatenated vCards from a file in parallel using chunks of various sizes, making sure that a "BEGIN:VCARD" line continuing a
+	 * quoted-printable value after a soft line break is not mistaken for the start of a vCard.
+	 */
+	@Test
+	public void testReadAllParallel(@TempDir final Path tempDir) throws IOException {
+		final Path file = tempDir.resolve("contacts.vcf");
+		final StringBuilder stringBuilder = new StringBuilder();
+		for(int i = 0; i < 200; i++) {
+			stringBuilder.append("BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Contact ").append(i).append("\r\n");
+			stringBuilder.append("NOTE;ENCODING=QUOTED-PRINTABLE:note ").append(i).append(" =\r\nBEGIN:VCARD\r\n");
+			for(int j = 0; j <= i % 3; j++) {
+				stringBuilder.append("X-ITEM:").append(j).append("\r\n");
+			}
+			stringBuilder.append("END:VCARD\r\n");
+		}
+		Files.write(file, stringBuilder.toString().getBytes(UTF_8));
+		assertThat(new VCardIO().readAllParallel(file).size(), is(200));
+		for(final long chunkSize : new long[] {1, 7, 13, 100, 1000, Long.MAX_VALUE / 2}) {
+			final List<Directory> directories = VCardIO.VCARD_PROCESSOR.processDirectoriesParallel(file, VCARD_PROFILE_NAME, ForkJoinPool.commonPool(), chunkSize);
+			assertThat(directories.size(), is(200));
+			for(int i = 0; i < 200; i++) {
+				final VCard vcard = (VCard)directories.get(i);
+				assertThat(vcard.getFormattedName().toString(), is("Contact " + i));
+				assertThat(vcard.getNotes().size(), is(1));
+				assertThat(vcard.getNotes().get(0).getText(), is("note " + i + " BEGIN:VCARD"));
+				assertThat(vcard.getContentLineList().size(), is(i % 3 + 1));
+			}
+		}
+	}
+
+	/**
+	 * Tests reading vCards from a file in parallel when a quoted-printable value continues with a "BEGIN:VCARD" line after more soft line breaks than can be
+	 * examined, making sure that the line is not assumed to start a vCard.
+	 */
+	@Test
+	public void testReadAllParallelLongQuotedPrintable(@TempDir final Path tempDir) throws IOException {
+		final Path file = tempDir.resolve("contacts.vcf");
+		final StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Contact 0\r\nEND:VCARD\r\n");
+		stringBuilder.append("BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Contact 1\r\nNOTE;ENCODING=QUOTED-PRINTABLE:");
+		final StringBuilder noteBuilder = new StringBuilder();
+		for(int i = 0; i < 2000; i++) { //about 100 KB of soft line breaks
+			final String noteLine = String.format("line %04d of a long note that continues after a soft line break ", i);
+			stringBuilder.append(noteLine).append("=\r\n");
+			noteBuilder.append(noteLine);
+		}
+		stringBuilder.append("BEGIN:VCARD\r\nEND:VCARD\r\n");
+		noteBuilder.append("BEGIN:VCARD");
+		stringBuilder.append("BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Contact 2\r\nEND:VCARD\r\n");
+		Files.write(file, stringBuilder.toString().getBytes(UTF_8));
+		for(final long chunkSize : new long[] {1, 1000, 50000, Long.MAX_VALUE / 2}) {
+			final List<Directory> directories = VCardIO.VCARD_PROCESSOR.processDirectoriesParallel(file, VCARD_PROFILE_NAME, ForkJoinPool.commonPool(), chunkSize);
+			assertThat(directories.size(), is(3));
+			for(int i = 0; i < 3; i++) {
+				assertThat(((VCard)directories.get(i)).getFormattedName().toString(), is("Contact " + i));
+			}
+			final VCard vcard = (VCard)directories.get(1);
+			assertThat(vcard.getNotes().size(), is(1));
+			assertThat(vcard.getNotes().get(0).getText(), is(noteBuilder.toString()));
+		}
+	}
+
+	/** Tests that an error reading vCards from a file in parallel reports the line relative to the beginning of the file, regardless of the chunk size. */
+	@Test
+	public void testReadAllParallelErrorLineIndex(@TempDir final Path tempDir) throws IOException {
+		final Path file = tempDir.resolve("contacts.vcf");
+		final StringBuilder stringBuilder = new StringBuilder();
+		for(int i = 0; i < 100; i++) {
+			stringBuilder.append("BEGIN:VCARD\r\nVERSION:3.0\r\nFN").append(i == 90 ? " " : ":").append("Contact ").append(i).append("\r\nEND:VCARD\r\n");
+		}
+		Files.write(file, stringBuilder.toString().getBytes(UTF_8));
+		for(final long chunkSize : new long[] {1, 100, 1000, Long.MAX_VALUE / 2}) {
+			final ParseUnexpectedDataException parseException = assertThrows(ParseUnexpectedDataException.class,
+					() -> VCardIO.VCARD_PROCESSOR.processDirectoriesParallel(file, VCARD_PROFILE_NAME, ForkJoinPool.commonPool(), chunkSize));
+			assertThat(parseException.getLineIndex(), is(90L * 4 + 2));
+			assertThat(parseException.getCharIndex(), is((long)"FN Contact 90".length())); //the CR where the name delimiter was expected
+		}
+	}
+
+	/**
+	 * Tests that the shared vCard processor produces the same content lines, including their profiles within nested "begin:"/"end:" blocks, when used by many
+	 * threads at once as when used sequentially.
+	 */
+	@Test
+	public void testSharedProcessorConcurrent() throws Exception {
+		final List<String> vcardStrings = new ArrayList<>();
+		for(int i = 0; i < 200; i++) {
+			vcardStrings.add("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Contact " + i + "\r\nBEGIN:X-ITEM\r\nNOTE:item " + i + "\r\nEND:X-ITEM\r\n"
+					+ "EMAIL;TYPE=INTERNET:contact" + i + "@example.com\r\nCATEGORIES:friends,family\r\nNOTE:note " + i + "\r\nEND:VCARD\r\n");
+		}
+		final List<String> expected = new ArrayList<>();
+		for(final String vcardString : vcardStrings) {
+			expected.add(asList(VCardIO.VCARD_PROCESSOR.processContentLines(new StringReader(vcardString))).toString());
+		}
+		final ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			for(int round = 0; round < 10; round++) {
+				final List<Future<String>> futures = new ArrayList<>();
+				for(final String vcardString : vcardStrings) {
+					futures.add(executorService.submit(() -> asList(VCardIO.VCARD_PROCESSOR.processContentLines(new StringReader(vcardString))).toString()));
+				}
+				for(int i = 0; i < futures.size(); i++) {
+					assertThat(futures.get(i).get(), is(expected.get(i)));
+				}
+			}
+		} finally {
+			executorService.shutdown();
+		}
+		assertThat(expected.get(7), containsString("[X-ITEM] NOTE:item 7"));
+		assertThat(expected.get(7), containsString("[VCARD] NOTE:note 7"));
+	}
+
+	/** Tests that type names are recognized regardless of case. */
+	@Test
+	public void testReadMixedCaseNames() throws IOException {
+		final VCard vcard = new VCardIO().read(new ByteArrayInputStream("begin:vcard\r\nVersion:3.0\r\nfn:Jane Doe\r\nn:Doe;Jane;;;\r\nOrg:Example\r\nEnd:VCard\r\n".getBytes(UTF_8)), null);
+		assertThat(vcard.getFormattedName().toString(), is("Jane Doe"));
+		assertThat(vcard.getName().getGivenNames()[0], is("Jane"));
+		assertThat(vcard.getOrganizationName().toString(), is("Example"));
+		assertThat(vcard.getContentLineList(), is(empty()));
+	}
+
+	/** Tests that lazy content lines are only decoded when requested, and that a directory created from them is the same as one decoded eagerly. */
+	@Test
+	public void testLazyValues() throws IOException {
+		final DirectoryProcessor processor = new DirectoryProcessor(true);
+		processor.registerProfile(VCARD_PROFILE_NAME, new VCardProfile());
+		final String vcardString = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nTEL:+14155551212\r\nCATEGORIES:friends,family\r\nEND:VCARD\r\n";
+		final ContentLine[] contentLines = processor.processContentLines(new StringReader(vcardString));
+		final LazyContentLine telContentLine = (LazyContentLine)contentLines[3];
+		assertThat(telContentLine.getName(), is(TEL_TYPE));
+		assertThat(telContentLine.isDecoded(), is(false));
+		assertThat(telContentLine.getRawValue(), is("+14155551212"));
+		assertThat(((LazyContentLine)contentLines[4]).getValues().length, is(2));
+		assertThat(contentLines[2].getValue().toString(), is("Jane Doe"));
+		assertThat(telContentLine.isDecoded(), is(false));
+		final VCard vcard = (VCard)processor.createDirectory(contentLines);
+		assertThat(vcard.getTelephone(new TelephoneNumber("+14155551212")), is(notNullValue()));
+		assertThat(vcard.getCategories().size(), is(2));
+	}
+
+	/** Tests that reading with a projection returns only the requested properties, skipping folded and malformed lines that are not requested. */
+	@Test
+	public void testReadAllProjection() throws IOException {
+		final String vcardString = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nNOTE;BAD\"PARAM:folded\r\n note\r\nitem1.EMAIL;TYPE=INTERNET:jane@example.com\r\n"
+				+ "PHOTO;ENCODING=b:AAAA\r\n AAAA\r\nTEL:+14155551212\r\nEND:VCARD\r\n";
+		final List<VCard> vcards;
+		try (final Stream<VCard> vcardStream = new VCardIO().readAll(new ByteArrayInputStream(vcardString.getBytes(UTF_8)),
+				new HashSet<>(asList("fn", EMAIL_TYPE)))) {
+			vcards = vcardStream.collect(toList());
+		}
+		assertThat(vcards.size(), is(1));
+		final VCard vcard = vcards.get(0);
+		assertThat(vcard.getFormattedName().toString(), is("Jane Doe"));
+		assertThat(vcard.getEmail().getAddress(), is("jane@example.com"));
+		assertThat(vcard.getTelephones(), is(empty()));
+		assertThat(vcard.getNotes(), is(empty()));
+		assertThat(vcard.getContentLineList(), is(empty()));
+	}
+
+	/** Tests that base64-encoded binary values are kept encoded and decoded as streams, and that they can be skipped entirely. */
+	@Test
+	public void testBinaryValues() throws IOException {
+		final String vcardString = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nPHOTO;ENCODING=b;TYPE=JPEG:AQID\r\n BAUG\r\nEND:VCARD\r\n";
+		final VCardIO vcardIO = new VCardIO();
+		final VCard vcard = vcardIO.read(new ByteArrayInputStream(vcardString.getBytes(UTF_8)), null);
+		final ContentLine photoContentLine = vcard.getContentLineList().stream().filter(contentLine -> contentLine.getName().equals(PHOTO_TYPE)).findAny().get();
+		final BinaryValue photo = (BinaryValue)photoContentLine.getValue();
+		assertThat(photo.getEncodedLength(), is(8));
+		try (final InputStream photoInputStream = photo.openStream()) {
+			assertThat(InputStreams.readBytes(photoInputStream), is(new byte[] {1, 2, 3, 4, 5, 6}));
+		}
+		assertThat(photo.toByteArray(), is(new byte[] {1, 2, 3, 4, 5, 6}));
+		vcardIO.setBinaryValuesSkipped(true);
+		final VCard skippedVCard = vcardIO.read(new ByteArrayInputStream(vcardString.getBytes(UTF_8)), null);
+		assertThat(skippedVCard.getFormattedName().toString(), is("Jane Doe"));
+		assertThat(skippedVCard.getContentLineList(), is(empty()));
+	}
+
+	/** Tests that vCards fed to an incremental parser in chunks of every size are parsed the same as when read all at once. */
+	@Test
+	public void testIncrementalParser() throws IOException {
+		final String vcardsString = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jos\u00E9 \uD83D\uDE00 Doe\r\nNOTE:folded\r\n  note\r\nTEL:+14155551212\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:John Smith\r\nEND:VCARD\r\n";
+		final byte[] vcardsBytes = vcardsString.getBytes(UTF_8);
+		for(int chunkSize = 1; chunkSize <= vcardsBytes.length; ++chunkSize) {
+			final List<VCard> vcards = new ArrayList<>();
+			final IncrementalDirectoryParser byteParser = new VCardIO().createParser(vcards::add);
+			for(int offset = 0; offset < vcardsBytes.length; offset += chunkSize) {
+				byteParser.feed(ByteBuffer.wrap(vcardsBytes, offset, Math.min(chunkSize, vcardsBytes.length - offset)));
+			}
+			byteParser.finish();
+			final IncrementalDirectoryParser charParser = new VCardIO().createParser(vcards::add);
+			for(int offset = 0; offset < vcardsString.length(); offset += chunkSize) {
+				charParser.feed(CharBuffer.wrap(vcardsString, offset, Math.min(offset + chunkSize, vcardsString.length())));
+			}
+			charParser.finish();
+			assertThat(vcards.size(), is(4));
+			for(int i = 0; i < vcards.size(); i += 2) {
+				assertThat(vcards.get(i).getFormattedName().toString(), is("Jos\u00E9 \uD83D\uDE00 Doe"));
+				assertThat(vcards.get(i).getNotes().get(0).toString(), is("folded note"));
+				assertThat(vcards.get(i).getTelephones().size(), is(1));
+				assertThat(vcards.get(i + 1).getFormattedName().toString(), is("John Smith"));
+			}
+		}
+	}
+
+	/** Tests that lenient reading skips malformed vCards and stray lines, reporting where each error occurred, and resumes with the next vCard. */
+	@Test
+	public void testReadAllLenient() throws IOException {
+		final String goodVCard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nEND:VCARD\r\n";
+		final String strayLine = "stray\r\n";
+		final String badBdayVCard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Bad Birthday\r\nBDAY:sometime\r\nEND:VCARD\r\n";
+		final String badLineVCard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN Bad Line\r\nEND:VCARD\r\n";
+		final String vcardsString = goodVCard + strayLine + badBdayVCard + badLineVCard + goodVCard;
+		final List<DirectoryParseError> errors = new ArrayList<>();
+		final List<VCard> vcards;
+		try (final Stream<VCard> vcardStream = new VCardIO().readAllLenient(new ByteArrayInputStream(vcardsString.getBytes(UTF_8)), errors::add)) {
+			vcards = vcardStream.collect(toList());
+		}
+		assertThat(vcards.size(), is(2));
+		assertThat(vcards.get(1).getFormattedName().toString(), is("Jane Doe"));
+		assertThat(errors.size(), is(3));
+		assertThat(errors.get(0).getDirectoryIndex(), is(1L));
+		assertThat(errors.get(0).getLineIndex(), is(4L));
+		assertThat(errors.get(0).getOffset(), is((long)goodVCard.length()));
+		assertThat(errors.get(1).getDirectoryIndex(), is(1L));
+		assertThat(errors.get(1).getLineIndex(), is(8L));
+		assertThat(errors.get(1).getOffset(), is((long)(goodVCard.length() + strayLine.length() + badBdayVCard.indexOf("BDAY"))));
+		assertThat(errors.get(2).getDirectoryIndex(), is(2L));
+		assertThat(errors.get(2).getLineIndex(), is(12L));
+		assertThat(errors.get(2).getOffset(), is((long)(goodVCard.length() + strayLine.length() + badBdayVCard.length() + badLineVCard.indexOf("FN"))));
+	}
+
+	/** Tests decoding vCard 2.1 quoted-printable values with soft line breaks dividing multi-byte characters, and values in other charsets. */
+	@Test
+	public void testQuotedPrintable() throws IOException {
+		final String vcard = "BEGIN:VCARD\r\nVERSION:2.1\r\nN;CHARSET=UTF-8;ENCODING=QUOTED-PRINTABLE:M=C3=BCller;J=C3=\r\n=BCrgen\r\n"
+				+ "NOTE;QUOTED-PRINTABLE;CHARSET=ISO-8859-1:Caf=E9 =3D=0D=0A=\r\nau lait\r\nEND:VCARD\r\n";
+		final byte[] latin1Line = "X-LATIN;CHARSET=ISO-8859-1:Caf\u00E9\r\n".getBytes(ISO_8859_1);
+		final ByteArrayOutputStream vcardBytes = new ByteArrayOutputStream();
+		vcardBytes.write(vcard.substring(0, vcard.length() - "END:VCARD\r\n".length()).getBytes(US_ASCII));
+		vcardBytes.write(latin1Line);
+		vcardBytes.write("END:VCARD\r\n".getBytes(US_ASCII));
+		final VCard byteVCard = new VCardIO().read(new ByteArrayInputStream(vcardBytes.toByteArray()), null);
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		directoryProcessor.registerProfile(VCARD_PROFILE_NAME, new VCardProfile());
+		final VCard charVCard = (VCard)directoryProcessor.createDirectory(directoryProcessor.processContentLines(new LineUnfoldReader(new StringReader(vcard))));
+		for(final VCard vcardRead : asList(byteVCard, charVCard)) {
+			assertThat(vcardRead.getName().getFamilyName(), is("M\u00FCller"));
+			assertThat(vcardRead.getName().getGivenName(), is("J\u00FCrgen"));
+			assertThat(vcardRead.getNotes().get(0).toString(), is("Caf\u00E9 =\r\nau lait"));
+		}
+		final ContentLine latin1ContentLine = byteVCard.getContentLineList().get(0);
+		assertThat(latin1ContentLine.getValue().toString(), is("Caf\u00E9"));
+		final List<VCard> incrementalVCards = new ArrayList<>();
+		final IncrementalDirectoryParser parser = new VCardIO().createParser(incrementalVCards::add);
+		for(final byte b : vcard.getBytes(US_ASCII)) {
+			parser.feed(ByteBuffer.wrap(new byte[] {b}));
+		}
+		parser.finish();
+		assertThat(incrementalVCards.get(0).getName().getGivenName(), is("J\u00FCrgen"));
+	}
+
+	/** Tests that names, parameter values, locales, and short address fields repeated across cards are read as the same instances. */
+	@Test
+	public void testRepeatedStringsShared() throws IOException {
+		final String vcard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nADR;TYPE=home;LANGUAGE=en-US:;;1 Main St;Springfield;IL;62701;USA\r\n"
+				+ "X-PET;TYPE=home:cat\r\nEND:VCARD\r\n";
+		final List<VCard> vcardList = new VCardIO().readAll(new ByteArrayInputStream((vcard + vcard).getBytes(UTF_8))).collect(toList());
+		final Address address1 = vcardList.get(0).getAddress();
+		final Address address2 = vcardList.get(1).getAddress();
+		assertThat(address2.getLocality(), is(sameInstance(address1.getLocality())));
+		assertThat(address2.getCountryName(), is(sameInstance(address1.getCountryName())));
+		assertThat(address2.getLocale(), is(sameInstance(address1.getLocale())));
+		final ContentLine contentLine1 = vcardList.get(0).getContentLineList().get(0);
+		final ContentLine contentLine2 = vcardList.get(1).getContentLineList().get(0);
+		assertThat(contentLine2.getName(), is(sameInstance(contentLine1.getName())));
+		assertThat(contentLine2.getParamList().get(0).getName(), is(sameInstance(contentLine1.getParamList().get(0).getName())));
+		assertThat(contentLine2.getParamList().get(0).getValue(), is(sameInstance(contentLine1.getParamList().get(0).getValue())));
+	}
+
+	/** Tests reading birthdays in the basic, extended, and date-time forms. */
+	@Test
+	public void testReadBirthdayForms() throws IOException {
+		for(final String bday : asList("1970-01-02", "19700102", "19700102T000000", "1970-01-02T00:00:00")) {
+			final String vcard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nBDAY:" + bday + "\r\nEND:VCARD\r\n";
+			assertThat(new VCardIO().read(new ByteArrayInputStream(vcard.getBytes(UTF_8)), null).getBirthday(), is(LocalDate.of(1970, 1, 2)));
+		}
+	}
+
+	/** Tests that type tokens are resolved regardless of case and that equal combinations of types share the same immutable set. */
+	@Test
+	public void testSharedTypeSets() throws IOException {
+		final String vcards = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nTEL;TYPE=home,voice:+14155551212\r\nEMAIL;TYPE=INTERNET,pref:jane@example.com\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:John Doe\r\nTEL;type=Voice;type=HOME:+19185551212\r\nEMAIL;internet;PREF:john@example.com\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Richard Roe\r\nTEL;HOME;VOICE:+15105551212\r\nEND:VCARD\r\n";
+		final List<VCard> vcardList = new VCardIO().readAll(new ByteArrayInputStream(vcards.getBytes(UTF_8))).collect(toList());
+		final Set<Telephone.Type> telephoneTypes = vcardList.get(0).getTelephones().get(0).getTypes();
+		assertThat(telephoneTypes, is(EnumSet.of(Telephone.Type.HOME, Telephone.Type.VOICE)));
+		assertThat(vcardList.get(1).getTelephones().get(0).getTypes(), is(sameInstance(telephoneTypes)));
+		assertThat(vcardList.get(2).getTelephones().get(0).getTypes(), is(sameInstance(telephoneTypes)));
+		assertThrows(UnsupportedOperationException.class, () -> telephoneTypes.add(Telephone.Type.CELL));
+		assertThat(vcardList.get(0).getEmail().getTypes(), is(EnumSet.of(Email.Type.INTERNET, Email.Type.PREF)));
+		assertThat(vcardList.get(1).getEmail().getTypes(), is(sameInstance(vcardList.get(0).getEmail().getTypes())));
+		final String badTypeVCard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nTEL;TYPE=homestead:+14155551212\r\nEND:VCARD\r\n";
+		assertThrows(ParseIOException.class, () -> new VCardIO().read(new ByteArrayInputStream(badTypeVCard.getBytes(UTF_8)), null));
+	}
+
+	/** Tests that a telephone cache reuses telephones parsed from the same number with the same types, and counts hits and misses. */
+	@Test
+	public void testTelephoneCache() throws IOException {
+		final String vcards = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nTEL;TYPE=work,voice:+14155551212\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:John Doe\r\nTEL;TYPE=VOICE,WORK:+14155551212\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Richard Roe\r\nTEL;TYPE=fax:+14155551212\r\nEND:VCARD\r\n";
+		final TelephoneCache telephoneCache = new TelephoneCache(100);
+		final VCardProfile vcardProfile = new VCardProfile();
+		vcardProfile.setTelephoneCache(telephoneCache);
+		final DirectoryProcessor directoryProcessor = new DirectoryProcessor();
+		directoryProcessor.registerProfile(VCARD_PROFILE_NAME, vcardProfile);
+		final List<Telephone> telephones = directoryProcessor.processDirectories(new ByteContentLineLexer(new ByteArrayInputStream(vcards.getBytes(UTF_8))))
+				.map(directory -> ((VCard)directory).getTelephones().get(0)).collect(toList());
+		assertThat(telephones.get(1), is(sameInstance(telephones.get(0))));
+		assertThat(telephones.get(2), is(not(sameInstance(telephones.get(0)))));
+		assertThat(telephones.get(2).getTypes(), is(EnumSet.of(Telephone.Type.FAX)));
+		assertThat(telephones.get(2).getCanonicalString(), is(telephones.get(0).getCanonicalString()));
+		assertThat(telephoneCache.getHitCount(), is(1L));
+		assertThat(telephoneCache.getMissCount(), is(2L));
+		assertThat(telephoneCache.getHitRate(), is(closeTo(1.0 / 3, 0.0001)));
+		assertThat(telephoneCache.size(), is(1));
+	}
+
+	/** Tests that a telephone cache set on a {@link VCardIO} is used by that instance only, and that there is no cache by default. */
+	@Test
+	public void testVCardIOTelephoneCache() throws IOException {
+		final String vcard = "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Jane Doe\r\nTEL;TYPE=work:+14155551212\r\nEND:VCARD\r\n";
+		final VCardIO cachingVCardIO = new VCardIO();
+		assertThat(cachingVCardIO.getTelephoneCache(), is(nullValue()));
+		final TelephoneCache telephoneCache = new TelephoneCache(100);
+		cachingVCardIO.setTelephoneCache(telephoneCache);
+		final Telephone telephone = cachingVCardIO.read(new ByteArrayInputStream(vcard.getBytes(UTF_8)), null).getTelephones().get(0);
+		assertThat(cachingVCardIO.read(new ByteArrayInputStream(vcard.getBytes(UTF_8)), null).getTelephones().get(0), is(sameInstance(telephone)));
+		final VCardIO vcardIO = new VCardIO();
+		assertThat(vcardIO.getTelephoneCache(), is(nullValue()));
+		assertThat(vcardIO.read(new ByteArrayInputStream(vcard.getBytes(UTF_8)), null).getTelephones().get(0), is(not(sameInstance(telephone))));
+		assertThat(telephoneCache.getHitCount(), is(1L));
+		assertThat(telephoneCache.getMissCount(), is(1L));
+		cachingVCardIO.setTelephoneCache(null);
+		assertThat(cachingVCardIO.read(new ByteArrayInputStream(vcard.getBytes(UTF_8)), null).getTelephones().get(0), is(not(sameInstance(telephone))));
+		assertThat(telephoneCache.getMissCount(), is(1L));
+	}
+
+	/** Tests that writing a vCard folds lines by octets without splitting encoded characters, and that the folded lines unfold to the original. */
+	@Test
+	public void testUtf8LineFold() throws IOException {
+		final StringBuilder note = new StringBuilder();
+		for(int i = 0; i < 40; ++i) {
+			note.append("Caf\u00E9 \u65E5\u672C \uD83D\uDE00 ").append(i).append(' ');
+		}
+		final VCard vcard = new VCard();
+		vcard.setFormattedName(new LocaledText("Jane Doe"));
+		vcard.getNotes().add(new LocaledText(note.toString()));
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new VCardIO().write(outputStream, null, vcard);
+		final byte[] bytes = outputStream.toByteArray();
+		int lineStart = 0;
+		for(int i = 0; i < bytes.length; ++i) {
+			if(bytes[i] == '\r') {
+				assertThat(i - lineStart, is(lessThanOrEqualTo(Directory.LONG_LINE_LENGTH)));
+				assertThat(bytes[i + 1], is((byte)'\n'));
+				if(i + 2 < bytes.length && bytes[i + 2] == ' ') { //the first byte after a fold must not continue an encoded character
+					assertThat(bytes[i + 3] & 0xC0, is(not(0x80)));
+				}
+				lineStart = i + 2;
+			}
+		}
+		assertThat(new VCardIO().read(new ByteArrayInputStream(bytes), null).getNotes().get(0).getText(), is(note.toString()));
+	}
+
+	/**
+	 * Serializes a vCard both directly and by way of content lines, asserting that the output is identical.
+	 * @param vcard The vCard to serialize.
+	 * @param singleValueNames The names of properties to reduce to a single value.
+	 */
+	private static void assertDirectSerializationIdentical(final VCard vcard, final String... singleValueNames) throws IOException {
+		final VCardSerializer vcardSerializer = new VCardSerializer();
+		vcardSerializer.setSerializationSingleValueNames(singleValueNames);
+		final DirectorySerializer directorySerializer = new DirectorySerializer();
+		directorySerializer.setSerializationSingleValueNames(singleValueNames);
+		directorySerializer.registerProfile(VCARD_PROFILE_NAME, new VCardProfile());
+		final ByteArrayOutputStream directOutputStream = new ByteArrayOutputStream();
+		vcardSerializer.serializeVCard(vcard, directOutputStream);
+		final ByteArrayOutputStream contentLinesOutputStream = new ByteArrayOutputStream();
+		directorySerializer.serializeContentLines(VCardProfile.createContentLines(vcard), contentLinesOutputStream);
+		assertArrayEquals(contentLinesOutputStream.toByteArray(), directOutputStream.toByteArray());
+		final StringWriter directWriter = new StringWriter();
+		vcardSerializer.serializeVCard(vcard, directWriter);
+		final StringWriter contentLinesWriter = new StringWriter();
+		directorySerializer.serializeContentLines(VCardProfile.createContentLines(vcard), contentLinesWriter);
+		assertThat(directWriter.toString(), is(contentLinesWriter.toString()));
+	}
+
+	/**
+	 * Tests that serializing the fields of a vCard read from a device directly produces output identical to serializing content lines. The fixture is read with
+	 * its line endings normalized to CRLF, so that the test does not depend on the line endings with which the fixture was checked out.
+	 */
+	@Test
+	public void testDirectSerializationNokiaC301JaneDoe() throws IOException {
+		final String janeDoeString = new String(ClassResources.readBytes(getClass(), "nokia-c3-01-janedoe.vcf"), UTF_8).replaceAll("\r?\n", "\r\n");
+		final VCard janeDoe = new VCardIO().read(new ByteArrayInputStream(janeDoeString.getBytes(UTF_8)), null);
+		assertThat(janeDoe.getNotes().size(), is(2));
+		assertThat(janeDoe.getTelephones().size(), is(4));
+		assertDirectSerializationIdentical(janeDoe);
+		assertDirectSerializationIdentical(janeDoe, NOTE_TYPE); //combined notes fall back to content lines
+	}
+
+	/** Tests that serializing vCard fields directly produces output identical to serializing content lines. */
+	@Test
+	public void testDirectSerialization() throws IOException {
+		final VCard vcard = new VCard();
+		vcard.setDisplayName(new LocaledText("Display, Name"));
+		vcard.setFormattedName(new LocaledText("Dr. Jos\u00E9 Garc\u00EDa", new Locale("es")));
+		vcard.setName(new Name(new String[] {"Garc\u00EDa", "L\u00F3pez"}, new String[] {"Jos\u00E9"}, new String[] {}, new String[] {"Dr."},
+				new String[] {"Jr; III"}, Locale.US));
+		vcard.getNicknames().add(new LocaledText("Pepe"));
+		vcard.getNicknames().add(new LocaledText("Jos\u00E9ito", new Locale("es", "MX")));
+		vcard.setBirthday(LocalDate.of(1970, 1, 2));
+		vcard.getAddresses().add(new Address(null, asList("Suite 5", "Floor 2"), asList("123 Main St."), "Springfield", null, "12345", "USA",
+				EnumSet.of(Address.Type.WORK, Address.Type.POSTAL), Locale.US));
+		vcard.getAddresses().add(new Address(null, asList(), asList(), null, null, null, null, EnumSet.noneOf(Address.Type.class), null));
+		vcard.getLabels().add(new Label("123 Main St.\r\nSpringfield, USA", EnumSet.of(Address.Type.WORK), Locale.US));
+		vcard.getTelephones().add(new Telephone("+14155551212", EnumSet.of(Telephone.Type.WORK, Telephone.Type.PREF)));
+		vcard.getTelephones().add(new Telephone("+442071234567", EnumSet.noneOf(Telephone.Type.class)));
+		vcard.getEmails().add(new Email("jose@example.com", EnumSet.of(Email.Type.INTERNET, Email.Type.PREF), Locale.US));
+		vcard.getEmails().add(new Email("pepe@example.com"));
+		vcard.setOrganizationName(new LocaledText("Example, Inc.", Locale.US));
+		vcard.setOrganizationUnits(new LocaledText("Research; Development"), new LocaledText("Widgets"));
+		vcard.setTitle(new LocaledText("Chief \\ Engineer"));
+		vcard.setRole(new LocaledText("Builder"));
+		vcard.getCategories().add(new LocaledText("friends"));
+		vcard.getCategories().add(new LocaledText("work"));
+		final StringBuilder note = new StringBuilder();
+		for(int i = 0; i < 30; ++i) {
+			note.append("Line ").append(i).append(", caf\u00E9 \u65E5\u672C\r\n\r\n\r\r\n\n");
+		}
+		vcard.getNotes().add(new LocaledText(note.toString(), Locale.FRENCH));
+		vcard.getNotes().add(new LocaledText("Second note"));
+		vcard.setURL(URI.create("https://example.com/jose"));
+		vcard.getContentLineList().add(new ContentLine(VCARD_PROFILE_NAME, null, "X-CUSTOM", new LocaledText("custom, value")));
+		vcard.getContentLineList().add(Directory.createContentLine(VCARD_PROFILE_NAME, "item1", NOTE_TYPE, new LocaledText("Grouped note")));
+		assertDirectSerializationIdentical(vcard);
+		assertDirectSerializationIdentical(vcard, FN_TYPE, ORG_TYPE);
+		assertDirectSerializationIdentical(vcard, NOTE_TYPE);
+		assertDirectSerializationIdentical(new VCard());
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new VCardIO().write(outputStream, null, vcard);
+		final VCard readVCard = new VCardIO().read(new ByteArrayInputStream(outputStream.toByteArray()), null);
+		assertThat(readVCard.getFormattedName(), is(vcard.getFormattedName()));
+		assertThat(readVCard.getTelephones(), is(vcard.getTelephones()));
+	}
+
+	/** Tests that a vCard writer writes many vCards identically to writing them individually, without writing to the output stream until needed. */
+	@Test
+	public void testVCardWriter() throws IOException {
+		final VCardIO vcardIO = new VCardIO();
+		vcardIO.setSerializationSingleValueNames(NOTE_TYPE);
+		final List<VCard> vcards = new ArrayList<>();
+		final ByteArrayOutputStream expectedOutputStream = new ByteArrayOutputStream();
+		for(int i = 0; i < 1000; ++i) {
+			final VCard vcard = new VCard();
+			vcard.setFormattedName(new LocaledText("Person " + i));
+			vcard.getEmails().add(new Email("person" + i + "@example.com"));
+			vcard.getNotes().add(new LocaledText("First note"));
+			vcard.getNotes().add(new LocaledText("Second note"));
+			vcards.add(vcard);
+			vcardIO.write(expectedOutputStream, null, vcard);
+		}
+		final int[] flushCount = new int[1];
+		final int[] writeCount = new int[1];
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+			@Override
+			public synchronized void write(final byte[] b, final int off, final int len) {
+				++writeCount[0];
+				super.write(b, off, len);
+			}
+
+			@Override
+			public void flush() {
+				++flushCount[0];
+			}
+		};
+		try (final VCardWriter vcardWriter = vcardIO.createWriter(outputStream)) {
+			vcardWriter.writeAll(vcards.subList(0, 1));
+			assertThat(outputStream.size(), is(0)); //nothing is written until the buffer is full
+			vcardWriter.writeAll(vcards.subList(1, vcards.size()));
+			assertThat(vcardWriter.getCount(), is((long)vcards.size()));
+			assertThat(flushCount[0], is(0));
+		}
+		assertThat(writeCount[0], is(lessThanOrEqualTo(expectedOutputStream.size() / Utf8LineFoldWriter.DEFAULT_BUFFER_SIZE + 1)));
+		assertArrayEquals(expectedOutputStream.toByteArray(), outputStream.toByteArray());
+		try (final Stream<VCard> readVCards = vcardIO.readAll(new ByteArrayInputStream(outputStream.toByteArray()))) {
+			assertThat(readVCards.count(), is((long)vcards.size()));
+		}
+	}
+
 }
@@ -72,22 +72,25 @@ public void run() {
 
 		try {
 			final List<File> files = inputFiles.stream().map(File::getAbsoluteFile).collect(toUnmodifiableList()); //TODO switch to `Path.toRealPath(NOFOLLOW_LINKS)`
-			final OutputStream outputStream = outputFile != null ? new BufferedOutputStream(new FileOutputStream(outputFile)) : System.out;
+			final VCardIO vcardIO = new VCardIO();
+			vcardIO.setSerializationSingleValueNames(VCard.NOTE_TYPE); //combine notes TODO make this optional
+			final OutputStream outputStream = outputFile != null ? new FileOutputStream(outputFile) : System.out; //the vCard writer does its own buffering
+			final VCardWriter vcardWriter = vcardIO.createWriter(outputStream); //write all the vCards through a single writer
 			try {
-				final VCardIO vcardIO = new VCardIO();
-				vcardIO.setSerializationSingleValueNames(VCard.NOTE_TYPE); //combine notes TODO make this optional
 				for(final File file : files) { //look at all the specified files
 					try {
 						//read the card from resources
 						final VCard vcard = Files.read(file, vcardIO); //read this VCard
-						vcardIO.write(outputStream, null, vcard); //write the VCard to the output
+						vcardWriter.write(vcard); //write the VCard to the output
 					} catch(final Throwable throwable) {
 						throw new RuntimeException(format("Error processing VCard file `%s`: %s.", file, throwable.getMessage()), throwable);
 					}
 				}
 			} finally {
 				if(outputFile != null) { //if we opened a special file
-					outputStream.close(); //close the file
+					vcardWriter.close(); //write any remaining vCards and close the file
+				} else {
+					vcardWriter.flush(); //write any remaining vCards, even if processing failed, but leave standard output open
 				}
 			}
 		} catch(final IOException ioException) {